@@ -2,8 +2,10 @@ package kr.chatq.server.chatq_server;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ChatqServerApplication {
 
 	public static void main(String[] args) {
@@ -27,6 +27,10 @@ public class DataSourceConfig {
     @Value("${spring.datasource.secondary.driver-class-name}")
     private String defaultDriverClassName;
 
+    // 조회 결과를 나눠 받을 행 수 (0 이면 드라이버 기본값: 전체를 한 번에 받음)
+    @Value("${chatq.query.fetch-size:0}")
+    private int queryFetchSize;
+
     /**
      * Primary DataSource - 기본 데이터소스 (mysrm 사용자)
      */
@@ -72,6 +76,10 @@ public class DataSourceConfig {
      */
     @Bean(name = "secondaryJdbcTemplate")
     public JdbcTemplate secondaryJdbcTemplate(@Qualifier("secondaryDataSource") DataSource dataSource) {
-        return new JdbcTemplate(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (queryFetchSize > 0) {
+            jdbcTemplate.setFetchSize(queryFetchSize);
+        }
+        return jdbcTemplate;
     }
 }
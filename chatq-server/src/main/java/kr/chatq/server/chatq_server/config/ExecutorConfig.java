@@ -0,0 +1,19 @@
+package kr.chatq.server.chatq_server.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * 스트리밍 응답 / 병렬 LLM 호출용 Executor (virtual thread per task)
+     */
+    @Bean(name = "chatqExecutor", destroyMethod = "shutdown")
+    public ExecutorService chatqExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,96 @@
+package kr.chatq.server.chatq_server.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kr.chatq.server.chatq_server.service.LlmEndpointPool;
+
+@Configuration
+public class LlmPoolConfig {
+
+    @Value("${spring.ai.ollama.base-url:http://localhost:11434}")
+    private String ollamaBaseUrl;
+
+    @Value("${spring.ai.openai.base-url:https://api.openai.com}")
+    private String openAiBaseUrl;
+
+    @Value("${spring.ai.openai.api-key:}")
+    private String openAiApiKey;
+
+    // 쉼표로 구분한 Ollama 서버 목록 (비어 있으면 spring.ai.ollama.base-url 한 개)
+    @Value("${chatq.llm.pool.ollama.base-urls:}")
+    private List<String> ollamaBaseUrls;
+
+    // 쉼표로 구분한 OpenAI (호환) endpoint 목록과 key 목록 (key 가 한 개면 모든 endpoint 에 사용)
+    @Value("${chatq.llm.pool.openai.base-urls:}")
+    private List<String> openAiBaseUrls;
+
+    @Value("${chatq.llm.pool.openai.api-keys:}")
+    private List<String> openAiApiKeys;
+
+    @Value("${chatq.llm.pool.failure-threshold:3}")
+    private int failureThreshold;
+
+    @Value("${chatq.llm.pool.cooldown-seconds:30}")
+    private long cooldownSeconds;
+
+    @Value("${chatq.llm.pool.failover:true}")
+    private boolean failover;
+
+    /**
+     * LLM endpoint pool. 각 endpoint 는 auto-configure 된 ChatModel 의 기본 옵션(모델, temperature 등)을 그대로 사용한다.
+     */
+    @Bean
+    public LlmEndpointPool llmEndpointPool(OllamaChatModel ollamaChatModel, OpenAiChatModel openAiChatModel,
+            MeterRegistry meterRegistry) {
+        List<LlmEndpointPool.Endpoint> ollama = new ArrayList<>();
+        List<String> ollamaUrls = nonBlank(ollamaBaseUrls);
+        if (ollamaUrls.isEmpty()) {
+            ollama.add(new LlmEndpointPool.Endpoint(LlmEndpointPool.OLLAMA, ollamaBaseUrl, ollamaChatModel));
+        } else {
+            OllamaOptions ollamaOptions = (OllamaOptions) ollamaChatModel.getDefaultOptions();
+            for (String url : ollamaUrls) {
+                ollama.add(LlmEndpointPool.ollama(url, OllamaOptions.fromOptions(ollamaOptions)));
+            }
+        }
+
+        List<LlmEndpointPool.Endpoint> openAi = new ArrayList<>();
+        List<String> openAiUrls = nonBlank(openAiBaseUrls);
+        List<String> keys = nonBlank(openAiApiKeys);
+        if (openAiUrls.isEmpty()) {
+            if (openAiApiKey != null && !openAiApiKey.isEmpty()) {
+                openAi.add(new LlmEndpointPool.Endpoint(LlmEndpointPool.OPENAI, openAiBaseUrl, openAiChatModel));
+            }
+        } else {
+            OpenAiChatOptions openAiOptions = (OpenAiChatOptions) openAiChatModel.getDefaultOptions();
+            for (int i = 0; i < openAiUrls.size(); i++) {
+                String key = keys.isEmpty() ? openAiApiKey : keys.get(Math.min(i, keys.size() - 1));
+                openAi.add(LlmEndpointPool.openAi(openAiUrls.get(i), key, OpenAiChatOptions.fromOptions(openAiOptions)));
+            }
+        }
+
+        return new LlmEndpointPool(ollama, openAi, failureThreshold, cooldownSeconds * 1000, failover,
+                meterRegistry);
+    }
+
+    private List<String> nonBlank(List<String> values) {
+        List<String> result = new ArrayList<>();
+        if (values != null) {
+            for (String value : values) {
+                if (value != null && !value.isBlank()) {
+                    result.add(value.trim());
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -13,10 +13,17 @@ public class OpenAIConfig {
     @Value("${spring.ai.openai.api-key:}")
     private String openAiApiKey;
 
+    // Spring AI 와 같은 서버 사용 (SDK 는 /v1 까지 포함한 주소를 받음)
+    @Value("${spring.ai.openai.base-url:https://api.openai.com}")
+    private String openAiBaseUrl;
+
     @Bean
     public OpenAIClient openAIClient() {
+        String baseUrl = openAiBaseUrl.endsWith("/") ? openAiBaseUrl.substring(0, openAiBaseUrl.length() - 1)
+                : openAiBaseUrl;
         return OpenAIOkHttpClient.builder()
                 .apiKey(openAiApiKey)
+                .baseUrl(baseUrl.endsWith("/v1") ? baseUrl : baseUrl + "/v1")
                 .build();
     }
 }
@@ -9,16 +9,32 @@ import kr.chatq.server.chatq_server.dto.PasswordChangeRequest;
 import kr.chatq.server.chatq_server.dto.AuthDto;
 import kr.chatq.server.chatq_server.dto.ChartRequest;
 import kr.chatq.server.chatq_server.dto.ChartResponse;
+import kr.chatq.server.chatq_server.dto.ColumnarData;
+import kr.chatq.server.chatq_server.dto.TokenUsage;
 import kr.chatq.server.chatq_server.service.QueryService;
+import kr.chatq.server.chatq_server.service.ChatQueryMetrics;
 import kr.chatq.server.chatq_server.service.ChatqLogService;
+import kr.chatq.server.chatq_server.service.MasterDetailService;
+import kr.chatq.server.chatq_server.service.QueryResultStream;
+import kr.chatq.server.chatq_server.service.ResultCursorService;
 import kr.chatq.server.chatq_server.dto.ColumnDto;
 import kr.chatq.server.chatq_server.entity.QueryTopic;
 
+import kr.chatq.server.chatq_server.config.CompanyContext;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -27,7 +43,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
 @RestController
@@ -40,6 +63,29 @@ public class QueryController {
     @Autowired
     private ChatqLogService chatqLogService;
 
+    @Autowired
+    private ChatQueryMetrics chatQueryMetrics;
+
+    @Autowired
+    private ResultCursorService resultCursorService;
+
+    @Autowired
+    private MasterDetailService masterDetailService;
+
+    @Autowired
+    @Qualifier("chatqExecutor")
+    private ExecutorService chatqExecutor;
+
+    @Value("${chatq.stream.timeout-ms:180000}")
+    private long streamTimeoutMs;
+
+    // /api/chatq 조회 결과를 ResultSet 에서 응답으로 바로 쓰기
+    @Value("${chatq.result.streaming.enabled:false}")
+    private boolean resultStreaming;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(QueryController.class);
 
     @GetMapping("/test")
@@ -70,7 +116,11 @@ public class QueryController {
     }
 
     @PostMapping("/chatq")
-    public ResponseEntity<QueryResponse> executeChatQuery(@RequestBody QueryRequest request) {
+    public ResponseEntity<QueryResponse> executeChatQuery(@RequestBody QueryRequest request,
+            HttpServletResponse httpResponse) {
+        if (resultStreaming) {
+            return streamChatQuery(request, httpResponse);
+        }
         try {
             QueryResponse response = queryService.executeChatQuery(
                     request.getConversationId(),
@@ -82,28 +132,256 @@ public class QueryController {
                     request.getTableAlias(),
                     request.getHeaderColumns(),
                     request.getLastColumns(),
-                    request.getCodeMaps());
-            
+                    request.getCodeMaps(),
+                    null,
+                    null,
+                    isColumnar(request));
+
+            saveChatqLog(request, response);
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error executing chat query: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 조회 결과를 ResultSet 에서 응답으로 바로 쓴다 (JSON 모양은 같음). 응답을 이미 썼으면 null 반환.
+     * 결과 커서/마스터-디테일 핸들이나 결과 캐시로 응답하면 (크기가 max-rows 등으로 제한됨) 아무것도 쓰지 않았으므로
+     * 스트림 대신 일반 응답으로 반환한다.
+     */
+    private ResponseEntity<QueryResponse> streamChatQuery(QueryRequest request, HttpServletResponse httpResponse) {
+        boolean saveLog = request.getId() > 0 || request.getTopicId() > 0;
+        QueryResultStream resultStream = new QueryResultStream(httpResponse, objectMapper, saveLog);
+        try {
+            QueryResponse response = queryService.executeChatQuery(
+                    request.getConversationId(),
+                    request.getPrompt(),
+                    request.getLastDetailYn(),
+                    request.getLastQuery(),
+                    request.getTableQuery(),
+                    request.getTableName(),
+                    request.getTableAlias(),
+                    request.getHeaderColumns(),
+                    request.getLastColumns(),
+                    request.getCodeMaps(),
+                    null,
+                    resultStream,
+                    isColumnar(request));
+
+            if (!resultStream.isStarted()) {
+                saveChatqLog(request, response);
+                return ResponseEntity.ok(response);
+            }
+            resultStream.finish(response,
+                    saveLog ? logResponse -> saveChatqLog(request, response, logResponse) : null);
+            return null;
+        } catch (Exception e) {
+            logger.error("Error executing chat query: {}", e.getMessage(), e);
+            // 결과를 쓰기 시작한 뒤에는 상태 코드를 바꿀 수 없음 (잘린 응답)
+            return resultStream.isStarted() ? null : ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 결과 커서의 page 번째 페이지 (0부터). 핸들이 없거나 만료됐으면 404
+     */
+    @GetMapping("/results/{handle}")
+    public ResponseEntity<QueryResponse> getResultPage(@PathVariable String handle,
+            @RequestParam(defaultValue = "0") int page, HttpSession session) {
+        try {
+            Object user = session.getAttribute("USER");
+            QueryResponse response = resultCursorService.page(handle, CompanyContext.getCompany(),
+                    user != null ? user.toString() : "guest", page);
+            return response != null ? ResponseEntity.ok(response) : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            logger.error("Error fetching result page {} of {}: {}", page, handle, e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 결과 커서의 결과 전체 (엑셀/차트, max-rows 까지). 핸들이 없거나 만료됐으면 404
+     */
+    @GetMapping("/results/{handle}/all")
+    public ResponseEntity<QueryResponse> getAllResults(@PathVariable String handle, HttpSession session) {
+        try {
+            Object user = session.getAttribute("USER");
+            QueryResponse response = resultCursorService.all(handle, CompanyContext.getCompany(),
+                    user != null ? user.toString() : "guest");
+            return response != null ? ResponseEntity.ok(response) : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            logger.error("Error fetching all results of {}: {}", handle, e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 만료된 결과 핸들을 응답의 resultQuery 로 다시 연다 (새 resultHandle/detailHandle 과 첫 페이지).
+     * headerColumns 가 있으면 마스터-디테일 결과로 연다
+     */
+    @PostMapping("/results/reopen")
+    public ResponseEntity<QueryResponse> reopenResult(@RequestBody QueryRequest request) {
+        try {
+            return ResponseEntity.ok(queryService.reopenResult(request.getResultQuery(), request.getHeaderColumns(),
+                    isColumnar(request)));
+        } catch (Exception e) {
+            logger.error("Error reopening result: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 마스터-디테일 응답의 row 번째 헤더 행(headerData, 0부터)의 상세 행. 핸들이 없거나 만료됐으면 404
+     */
+    @GetMapping("/details/{handle}")
+    public ResponseEntity<QueryResponse> getDetails(@PathVariable String handle, @RequestParam int row,
+            HttpSession session) {
+        try {
+            Object user = session.getAttribute("USER");
+            QueryResponse response = masterDetailService.details(handle, CompanyContext.getCompany(),
+                    user != null ? user.toString() : "guest", row);
+            return response != null ? ResponseEntity.ok(response) : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            logger.error("Error fetching details {} of {}: {}", row, handle, e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * 마스터-디테일 응답의 상세 행 전체 (엑셀/차트/전체 보기, max-rows 까지). 핸들이 없거나 만료됐으면 404
+     */
+    @GetMapping("/details/{handle}/all")
+    public ResponseEntity<QueryResponse> getAllDetails(@PathVariable String handle, HttpSession session) {
+        try {
+            Object user = session.getAttribute("USER");
+            QueryResponse response = masterDetailService.allDetails(handle, CompanyContext.getCompany(),
+                    user != null ? user.toString() : "guest");
+            return response != null ? ResponseEntity.ok(response) : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            logger.error("Error fetching all details of {}: {}", handle, e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * /api/chatq 의 SSE 스트리밍 버전.
+     * stage(테이블 선택/SQL 생성 단계), token(LLM 토큰), sql(실행 SQL), rows(결과 행 조각), result(QueryResponse) 순으로 이벤트를 보낸다.
+     * rows 를 보냈으면 result 에는 data 를 뺀다. 결과 커서/마스터-디테일/결과 캐시 응답은 rows 없이 result 에 통째로 온다.
+     */
+    @PostMapping(value = "/chatq/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter executeChatQueryStream(@RequestBody QueryRequest request) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        RequestAttributes requestAttributes = RequestContextHolder.currentRequestAttributes();
+        String company = CompanyContext.getCompany();
+
+        chatqExecutor.execute(() -> {
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            CompanyContext.setCompany(company);
+            AtomicBoolean rowsSent = new AtomicBoolean();
+            try {
+                QueryResponse response = queryService.executeChatQuery(
+                        request.getConversationId(),
+                        request.getPrompt(),
+                        request.getLastDetailYn(),
+                        request.getLastQuery(),
+                        request.getTableQuery(),
+                        request.getTableName(),
+                        request.getTableAlias(),
+                        request.getHeaderColumns(),
+                        request.getLastColumns(),
+                        request.getCodeMaps(),
+                        (event, data) -> {
+                            if ("rows".equals(event)) {
+                                rowsSent.set(true);
+                            }
+                            sendEvent(emitter, event, data);
+                        },
+                        null,
+                        isColumnar(request));
+
+                saveChatqLog(request, response);
+
+                // 행은 rows 이벤트로 이미 보냄 (chatqlog 에는 data 를 포함해 저장한 뒤)
+                if (rowsSent.get()) {
+                    response.setData(null);
+                }
+                sendEvent(emitter, "result", response);
+                emitter.complete();
+            } catch (Exception e) {
+                logger.error("Error executing chat query stream: {}", e.getMessage(), e);
+                sendEvent(emitter, "error", e.getMessage() != null ? e.getMessage() : "FAIL");
+                emitter.complete();
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+                CompanyContext.clear();
+            }
+        });
+        return emitter;
+    }
+
+    // 클라이언트가 칼럼 단위 결과를 요청했는지
+    private boolean isColumnar(QueryRequest request) {
+        return ColumnarData.FORMAT.equals(request.getDataFormat());
+    }
+
+    private void sendEvent(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // 클라이언트 연결 종료 시 나머지 이벤트는 무시
+            logger.debug("SSE send failed ({}): {}", event, e.getMessage());
+        }
+    }
+
+    private void saveChatqLog(QueryRequest request, QueryResponse response) {
+        saveChatqLog(request, response, response);
+    }
+
+    /**
+     * logResponse: chatqlog.response 로 저장할 내용 (스트리밍시 응답에 쓴 JSON)
+     * @return 저장된 로그 id (저장하지 않으면 0)
+     */
+    private int saveChatqLog(QueryRequest request, QueryResponse response, Object logResponse) {
+        TokenUsage usage = response.getUsage();
+        return chatQueryMetrics.time(ChatQueryMetrics.LOG_PERSISTENCE, () -> {
             // tableAlias가 없는 경우 chatqtopic 저장
-            if ((request.getLastQuery() == null || request.getLastQuery().isEmpty()) 
-                && request.getTopicId() > 0 && response.getTableAlias() != null) {
+            if ((request.getLastQuery() == null || request.getLastQuery().isEmpty())
+                    && request.getTopicId() > 0 && response.getTableAlias() != null) {
                 chatqLogService.saveChatqTopic(request.getTopicId(), request.getPrompt(), response.getTableAlias());
             }
-            
+
             // chatqlog 테이블에 로그 저장 또는 업데이트
             if (request.getId() > 0) {
                 // id가 있으면 response만 업데이트
-                chatqLogService.updateResponse(request.getId(), response);
+                chatqLogService.updateResponse(request.getId(), logResponse);
                 response.setId(request.getId());
+                chatqLogService.saveUsage(request.getId(), usage);
             } else if (request.getTopicId() > 0) {
                 // id가 없고 topicId가 있으면 새로 저장
-                int logId = chatqLogService.saveChatqLog(request.getTopicId(), request, response);
+                int logId = chatqLogService.saveChatqLog(request.getTopicId(), request, logResponse);
                 response.setId(logId);
+                chatqLogService.saveUsage(logId, usage);
             }
-            
-            return ResponseEntity.ok(response);
+            return response.getId();
+        });
+    }
+
+    /**
+     * 일별 LLM 토큰 사용량 (from, to: yyyyMMdd, 기본값 최근 7일)
+     */
+    @GetMapping("/admin/usage")
+    public ResponseEntity<List<Map<String, Object>>> getUsage(@RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        try {
+            DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyyMMdd");
+            String toDate = (to != null && !to.isEmpty()) ? to : LocalDate.now().format(format);
+            String fromDate = (from != null && !from.isEmpty()) ? from
+                    : LocalDate.parse(toDate, format).minusDays(6).format(format);
+            return ResponseEntity.ok(chatqLogService.getUsageRollup(fromDate, toDate));
         } catch (Exception e) {
-            logger.error("Error executing chat query: {}", e.getMessage(), e);
+            logger.error("Error fetching token usage: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().build();
         }
     }
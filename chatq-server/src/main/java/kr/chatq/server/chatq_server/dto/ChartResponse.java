@@ -2,8 +2,15 @@ package kr.chatq.server.chatq_server.dto;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * 차트 생성 결과. LLM structured output 의 JSON schema 로도 사용 (모든 필드 필수)
+ */
 public class ChartResponse {
+    @JsonProperty(required = true)
     private List<String> labels;
+    @JsonProperty(required = true)
     private List<ChartDataset> datasets;
 
     public ChartResponse() {
@@ -31,10 +38,15 @@ public class ChartResponse {
     }
 
     public static class ChartDataset {
+        @JsonProperty(required = true)
         private String label;
+        @JsonProperty(required = true)
         private List<Number> data;
+        @JsonProperty(required = true)
         private String backgroundColor;
+        @JsonProperty(required = true)
         private String borderColor;
+        @JsonProperty(required = true)
         private Integer borderWidth;
 
         public ChartDataset() {
@@ -0,0 +1,150 @@
+package kr.chatq.server.chatq_server.dto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * 칼럼 단위 결과 (QueryRequest.dataFormat = "columnar").
+ * 칼럼명은 한 번만 보내고 값은 칼럼별 배열로 보낸다. 값 종류가 적은 문자열 칼럼은
+ * 사전(dict) + 코드(codes, null 은 -1) 로 보낸다.
+ * 예) {"names":["지역","금액"],"rowCount":3,"columns":[{"dict":["서울","부산"],"codes":[0,0,1]},{"values":[1,2,3]}]}
+ */
+public class ColumnarData {
+
+    public static final String FORMAT = "columnar";
+
+    private final List<String> names;
+    private final int rowCount;
+    private final List<Column> columns;
+
+    private ColumnarData(List<String> names, int rowCount, List<Column> columns) {
+        this.names = names;
+        this.rowCount = rowCount;
+        this.columns = columns;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 행 단위 결과로 되돌린다
+     */
+    public RowSet toRowSet() {
+        RowSet rows = new RowSet(names);
+        Object[] values = new Object[names.size()];
+        for (int r = 0; r < rowCount; r++) {
+            for (int c = 0; c < values.length; c++) {
+                values[c] = columns.get(c).valueAt(r);
+            }
+            rows.addRow(values);
+        }
+        return rows;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Column {
+        private final List<Object> values;
+        private final List<String> dict;
+        private final int[] codes;
+
+        private Column(List<Object> values, List<String> dict, int[] codes) {
+            this.values = values;
+            this.dict = dict;
+            this.codes = codes;
+        }
+
+        public List<Object> getValues() {
+            return values;
+        }
+
+        public List<String> getDict() {
+            return dict;
+        }
+
+        public int[] getCodes() {
+            return codes;
+        }
+
+        // row 번째 값 (사전 인코딩이면 사전에서 찾음)
+        public Object valueAt(int row) {
+            if (values != null) {
+                return values.get(row);
+            }
+            return codes[row] >= 0 ? dict.get(codes[row]) : null;
+        }
+    }
+
+    /**
+     * 행 단위로 값을 받아 칼럼 배열로 모은다
+     */
+    public static class Builder {
+        private final List<String> names;
+        private final List<List<Object>> values;
+        private int rowCount;
+
+        public Builder(List<String> names) {
+            this.names = names;
+            this.values = new ArrayList<>(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                values.add(new ArrayList<>());
+            }
+        }
+
+        // row 는 names 순서의 값 (배열은 재사용해도 됨)
+        public void addRow(Object[] row) {
+            for (int i = 0; i < row.length; i++) {
+                values.get(i).add(row[i]);
+            }
+            rowCount++;
+        }
+
+        public ColumnarData build() {
+            List<Column> columns = new ArrayList<>(names.size());
+            for (List<Object> column : values) {
+                columns.add(encode(column, rowCount));
+            }
+            return new ColumnarData(names, rowCount, columns);
+        }
+
+        // 문자열 칼럼이고 값이 평균 두 번 이상 반복되면 사전 인코딩
+        private static Column encode(List<Object> column, int rowCount) {
+            Map<String, Integer> codeOf = new HashMap<>();
+            List<String> dict = new ArrayList<>();
+            int[] codes = new int[column.size()];
+            for (int r = 0; r < codes.length; r++) {
+                Object value = column.get(r);
+                if (value == null) {
+                    codes[r] = -1;
+                    continue;
+                }
+                if (!(value instanceof String text) || dict.size() * 2 > rowCount) {
+                    return new Column(column, null, null);
+                }
+                Integer code = codeOf.get(text);
+                if (code == null) {
+                    code = dict.size();
+                    codeOf.put(text, code);
+                    dict.add(text);
+                }
+                codes[r] = code;
+            }
+            if (dict.isEmpty() || dict.size() * 2 > rowCount) {
+                return new Column(column, null, null);
+            }
+            return new Column(null, dict, codes);
+        }
+    }
+}
@@ -16,6 +16,10 @@ public class QueryRequest {
     private List<String> headerColumns;
     private List<String> lastColumns;
     private Map<String, String> codeMaps;
+    // 결과 data 형식 ("columnar" 면 칼럼 단위, 없으면 행 단위)
+    private String dataFormat;
+    // /api/results/reopen: 다시 열 결과의 resultQuery (응답 값 그대로)
+    private String resultQuery;
 
     public String getPrompt() {
         return prompt;
@@ -112,4 +116,20 @@ public class QueryRequest {
     public void setId(int id) {
         this.id = id;
     }
-}
\ No newline at end of file
+
+    public String getDataFormat() {
+        return dataFormat;
+    }
+
+    public void setDataFormat(String dataFormat) {
+        this.dataFormat = dataFormat;
+    }
+
+    public String getResultQuery() {
+        return resultQuery;
+    }
+
+    public void setResultQuery(String resultQuery) {
+        this.resultQuery = resultQuery;
+    }
+}
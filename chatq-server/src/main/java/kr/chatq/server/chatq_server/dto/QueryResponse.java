@@ -3,6 +3,9 @@ package kr.chatq.server.chatq_server.dto;
 import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class QueryResponse {
     private int id;
     private List<String> columns;
@@ -19,6 +22,27 @@ public class QueryResponse {
     private String tableAlias;
     private String lastDetailYn;
     private Map<String, String> codeMaps;
+    // 요청의 LLM 토큰 사용량 (chatqusage 저장용). 브라우저 응답과 chatqlog.response 에는 넣지 않음
+    @JsonIgnore
+    private TokenUsage usage;
+    // dataFormat = "columnar" 요청일 때 data 대신 채움
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ColumnarData columnar;
+    // 결과 커서 (chatq.result.cursor.enabled): 다음 페이지는 /api/results/{resultHandle}?page=
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String resultHandle;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer page;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer pageSize;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean hasMore;
+    // 마스터-디테일 지연 조회 핸들 (상세 행은 /api/details/{detailHandle}?row=)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String detailHandle;
+    // 핸들을 다시 열 때 쓰는 실행 SQL (암호화). 핸들이 만료되면 /api/results/reopen 으로 보냄
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String resultQuery;
 
     public String getTableName() {
         return tableName;
@@ -139,4 +163,68 @@ public class QueryResponse {
     public void setId(int id) {
         this.id = id;
     }
-}
\ No newline at end of file
+
+    public TokenUsage getUsage() {
+        return usage;
+    }
+
+    public void setUsage(TokenUsage usage) {
+        this.usage = usage;
+    }
+
+    public ColumnarData getColumnar() {
+        return columnar;
+    }
+
+    public void setColumnar(ColumnarData columnar) {
+        this.columnar = columnar;
+    }
+
+    public String getResultHandle() {
+        return resultHandle;
+    }
+
+    public void setResultHandle(String resultHandle) {
+        this.resultHandle = resultHandle;
+    }
+
+    public Integer getPage() {
+        return page;
+    }
+
+    public void setPage(Integer page) {
+        this.page = page;
+    }
+
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public Boolean getHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(Boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public String getDetailHandle() {
+        return detailHandle;
+    }
+
+    public void setDetailHandle(String detailHandle) {
+        this.detailHandle = detailHandle;
+    }
+
+    public String getResultQuery() {
+        return resultQuery;
+    }
+
+    public void setResultQuery(String resultQuery) {
+        this.resultQuery = resultQuery;
+    }
+}
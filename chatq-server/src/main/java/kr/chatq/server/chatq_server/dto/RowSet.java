@@ -0,0 +1,238 @@
+package kr.chatq.server.chatq_server.dto;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * 조회 결과 행 목록. 칼럼명/인덱스는 한 번만 두고 행마다 Object[] 만 보관한다 (행마다 HashMap 을 만들지 않음).
+ * List<Map> 로도 읽을 수 있고 (get 은 읽기 전용 Map 뷰), JSON 은 중간 Map 없이 배열에서 바로 쓴다.
+ */
+@JsonSerialize(using = RowSet.Serializer.class)
+public class RowSet extends AbstractList<Map<String, Object>> {
+
+    private final List<String> names;
+    private final Map<String, Integer> indexes;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    public RowSet(List<String> names) {
+        this.names = List.copyOf(names);
+        this.indexes = new HashMap<>(names.size() * 2);
+        for (int i = 0; i < names.size(); i++) {
+            indexes.put(names.get(i), i);
+        }
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * 칼럼 위치 (없으면 -1)
+     */
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * names 순서의 값을 한 행으로 추가 (배열은 복사하므로 재사용해도 됨)
+     */
+    public void addRow(Object[] values) {
+        rows.add(values.clone());
+    }
+
+    /**
+     * 한 행의 값 배열 (names 순서, 수정하지 말 것)
+     */
+    public Object[] getRow(int row) {
+        return rows.get(row);
+    }
+
+    public Object getValue(int row, int column) {
+        return rows.get(row)[column];
+    }
+
+    /**
+     * 지정한 칼럼만의 행 목록 (중복 제거, 원래 순서 유지)
+     */
+    public RowSet distinct(List<String> columns) {
+        int[] positions = columns.stream().mapToInt(this::indexOf).toArray();
+        Set<List<Object>> seen = new LinkedHashSet<>();
+        for (Object[] values : rows) {
+            List<Object> projected = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                projected.add(position >= 0 ? values[position] : null);
+            }
+            seen.add(projected);
+        }
+        RowSet distinct = new RowSet(columns);
+        for (List<Object> projected : seen) {
+            distinct.rows.add(projected.toArray());
+        }
+        return distinct;
+    }
+
+    public Long getLong(int row, int column) {
+        Object value = getValue(row, column);
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    public Double getDouble(int row, int column) {
+        Object value = getValue(row, column);
+        return value != null ? ((Number) value).doubleValue() : null;
+    }
+
+    public BigDecimal getBigDecimal(int row, int column) {
+        Object value = getValue(row, column);
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        Number number = (Number) value;
+        return number instanceof Double || number instanceof Float
+                ? BigDecimal.valueOf(number.doubleValue())
+                : BigDecimal.valueOf(number.longValue());
+    }
+
+    // DATE, DATETIME 칼럼 (java.sql.Date / Timestamp / java.time) 을 LocalDate 로
+    public LocalDate getLocalDate(int row, int column) {
+        Object value = getValue(row, column);
+        if (value == null || value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toLocalDate();
+        }
+        return ((LocalDateTime) value).toLocalDate();
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        return new Row(rows.get(index));
+    }
+
+    @Override
+    public int size() {
+        return rows.size();
+    }
+
+    // 한 행의 읽기 전용 Map 뷰 (칼럼 순서 유지)
+    private final class Row extends AbstractMap<String, Object> {
+        private final Object[] values;
+
+        private Row(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer index = indexes.get(key);
+            return index != null ? values[index] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexes.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < values.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (next >= values.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new SimpleImmutableEntry<>(names.get(i), values[i]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.length;
+                }
+            };
+        }
+    }
+
+    /**
+     * [{"칼럼": 값, ...}, ...] 형식 (행 단위 data 와 같은 모양)
+     */
+    public static class Serializer extends JsonSerializer<RowSet> {
+        @Override
+        public void serialize(RowSet rowSet, JsonGenerator json, SerializerProvider provider) throws IOException {
+            json.writeStartArray(rowSet, rowSet.size());
+            for (Object[] values : rowSet.rows) {
+                json.writeStartObject();
+                for (int i = 0; i < values.length; i++) {
+                    json.writeFieldName(rowSet.names.get(i));
+                    writeValue(json, values[i], provider);
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    /**
+     * 자주 나오는 타입은 직접 쓰고, 날짜 등은 ObjectMapper 설정대로 직렬화
+     */
+    public static void writeValue(JsonGenerator json, Object value, SerializerProvider provider) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else if (value instanceof String s) {
+            json.writeString(s);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+                || value instanceof Byte) {
+            json.writeNumber(((Number) value).longValue());
+        } else if (value instanceof BigDecimal d) {
+            json.writeNumber(d);
+        } else if (value instanceof Double d) {
+            json.writeNumber(d);
+        } else if (value instanceof Boolean b) {
+            json.writeBoolean(b);
+        } else if (provider != null) {
+            provider.defaultSerializeValue(value, json);
+        } else {
+            json.writeObject(value);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package kr.chatq.server.chatq_server.dto;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 한 요청에서 발생한 LLM 토큰 사용량 (단계, provider, 모델별 합계)
+ */
+public class TokenUsage {
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public synchronized void add(String stage, String provider, String model, int promptTokens,
+            int completionTokens, int cachedTokens) {
+        Entry entry = entries.computeIfAbsent(stage + "|" + provider + "|" + model,
+                key -> new Entry(stage, provider, model));
+        entry.calls++;
+        entry.promptTokens += promptTokens;
+        entry.completionTokens += completionTokens;
+        entry.cachedTokens += cachedTokens;
+    }
+
+    /**
+     * 다른 TokenUsage 의 사용량을 합침 (다른 스레드에서 따로 모은 호출)
+     */
+    public void addAll(TokenUsage other) {
+        for (Entry entry : other.getEntries()) {
+            synchronized (this) {
+                Entry merged = entries.computeIfAbsent(
+                        entry.stage + "|" + entry.provider + "|" + entry.model,
+                        key -> new Entry(entry.stage, entry.provider, entry.model));
+                merged.calls += entry.calls;
+                merged.promptTokens += entry.promptTokens;
+                merged.completionTokens += entry.completionTokens;
+                merged.cachedTokens += entry.cachedTokens;
+            }
+        }
+    }
+
+    public synchronized List<Entry> getEntries() {
+        List<Entry> copy = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            copy.add(entry.copy());
+        }
+        return copy;
+    }
+
+    public synchronized int getPromptTokens() {
+        return entries.values().stream().mapToInt(Entry::getPromptTokens).sum();
+    }
+
+    public synchronized int getCompletionTokens() {
+        return entries.values().stream().mapToInt(Entry::getCompletionTokens).sum();
+    }
+
+    public synchronized int getCachedTokens() {
+        return entries.values().stream().mapToInt(Entry::getCachedTokens).sum();
+    }
+
+    public static class Entry {
+        private final String stage;
+        private final String provider;
+        private final String model;
+        private int calls;
+        private int promptTokens;
+        private int completionTokens;
+        private int cachedTokens;
+
+        public Entry(String stage, String provider, String model) {
+            this.stage = stage;
+            this.provider = provider;
+            this.model = model;
+        }
+
+        private Entry copy() {
+            Entry copy = new Entry(stage, provider, model);
+            copy.calls = calls;
+            copy.promptTokens = promptTokens;
+            copy.completionTokens = completionTokens;
+            copy.cachedTokens = cachedTokens;
+            return copy;
+        }
+
+        public String getStage() {
+            return stage;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
+        public int getPromptTokens() {
+            return promptTokens;
+        }
+
+        public int getCompletionTokens() {
+            return completionTokens;
+        }
+
+        public int getCachedTokens() {
+            return cachedTokens;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 캐시 키 생성용 유틸리티
+ */
+public final class CacheKeys {
+
+    private CacheKeys() {
+    }
+
+    // 긴 문자열(프롬프트, SQL 등)을 고정 길이 키로 변환
+    public static String sha256(String text) {
+        if (text == null) {
+            return "";
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package kr.chatq.server.chatq_server.service;
+
+/**
+ * executeChatQuery 진행 상황을 호출자(SSE 등)에게 전달하기 위한 콜백.
+ * event 이름: stage, token, sql, rows (결과 행 RowSet 조각)
+ */
+@FunctionalInterface
+public interface ChatQueryEventSink {
+
+    void send(String event, Object data);
+}
@@ -0,0 +1,142 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kr.chatq.server.chatq_server.config.CompanyContext;
+
+/**
+ * chat-query 파이프라인 단계별 소요 시간 (chatq.query.stage) 과 재요청 횟수 (chatq.query.retries).
+ * company, provider, model, stage, outcome 으로 태그하며 p50/p95/p99 용 percentile histogram 을 함께 발행한다.
+ */
+@Service
+public class ChatQueryMetrics {
+
+    public static final String METADATA = "metadata";
+    public static final String EMBEDDING = "embedding";
+    public static final String TABLE_PICK = "table_pick";
+    public static final String ONE_SHOT = "one_shot";
+    public static final String SQL_GENERATION = "sql_generation";
+    public static final String SQL_RETRY = "sql_retry";
+    public static final String SQL_EXECUTION = "sql_execution";
+    public static final String LOG_PERSISTENCE = "log_persistence";
+
+    // 현재 스레드에서 실행 중인 단계 (토큰 사용량을 단계별로 나누는 데 사용)
+    private static final ThreadLocal<String> currentStage = new ThreadLocal<>();
+
+    @FunctionalInterface
+    public interface Stage<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    @Value("${spring.ai.type:ollama}")
+    private String aiType;
+
+    @Value("${spring.ai.ollama.chat.options.model:}")
+    private String ollamaModel;
+
+    @Value("${spring.ai.openai.chat.options.model:gpt-4o-mini}")
+    private String openAiModel;
+
+    @Value("${spring.ai.embedding.type:openai}")
+    private String embeddingType;
+
+    @Value("${spring.ai.openai.embedding.options.model:text-embedding-3-small}")
+    private String openAiEmbeddingModel;
+
+    @Value("${spring.ai.ollama.embedding.options.model:}")
+    private String ollamaEmbeddingModel;
+
+    // histogram 버킷 범위 (LLM 호출은 수십 초까지 걸릴 수 있음)
+    @Value("${chatq.metrics.stage.max-expected-seconds:120}")
+    private long maxExpectedSeconds;
+
+    private final MeterRegistry meterRegistry;
+
+    public ChatQueryMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 단계 실행 시간 기록 (예외가 나면 outcome=error 로 기록 후 그대로 던짐)
+     */
+    public <T, E extends Exception> T time(String stage, Stage<T, E> body) throws E {
+        long start = System.nanoTime();
+        String outcome = "error";
+        String previousStage = currentStage.get();
+        currentStage.set(stage);
+        try {
+            T result = body.run();
+            outcome = "success";
+            return result;
+        } finally {
+            if (previousStage != null) {
+                currentStage.set(previousStage);
+            } else {
+                currentStage.remove();
+            }
+            timer(stage, outcome).record(Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * 현재 스레드에서 time 으로 실행 중인 단계 (없으면 null)
+     */
+    public static String currentStage() {
+        return currentStage.get();
+    }
+
+    /**
+     * 검증 실패로 LLM 에 SQL 을 다시 요청한 횟수
+     */
+    public void countRetry() {
+        Counter.builder("chatq.query.retries")
+                .description("SQL re-prompts after validation failure")
+                .tag("company", company())
+                .tag("provider", provider(SQL_RETRY))
+                .tag("model", model(SQL_RETRY))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer timer(String stage, String outcome) {
+        return Timer.builder("chatq.query.stage")
+                .description("Chat-query pipeline stage latency")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .tag("company", company())
+                .tag("provider", provider(stage))
+                .tag("model", model(stage))
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(maxExpectedSeconds))
+                .register(meterRegistry);
+    }
+
+    private String company() {
+        String company = CompanyContext.getCompany();
+        return company != null ? company : "default";
+    }
+
+    // 임베딩 단계는 임베딩 provider/모델, 그 외는 chat provider/모델로 태그
+    private String provider(String stage) {
+        String provider = EMBEDDING.equals(stage) ? embeddingType : aiType;
+        return provider != null ? provider.toLowerCase() : "";
+    }
+
+    private String model(String stage) {
+        String provider = provider(stage);
+        String model;
+        if (EMBEDDING.equals(stage)) {
+            model = "ollama".equals(provider) ? ollamaEmbeddingModel : openAiEmbeddingModel;
+        } else {
+            model = "openai".equals(provider) ? openAiModel : ollamaModel;
+        }
+        return model != null ? model : "";
+    }
+}
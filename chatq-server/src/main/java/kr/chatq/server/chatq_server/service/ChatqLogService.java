@@ -1,9 +1,11 @@
 package kr.chatq.server.chatq_server.service;
 
 import kr.chatq.server.chatq_server.config.CompanyContext;
+import kr.chatq.server.chatq_server.dto.TokenUsage;
 import kr.chatq.server.chatq_server.entity.QueryTopic;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.util.RawValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -57,7 +59,7 @@ public class ChatqLogService {
             // response를 JSON으로 변환
             String responseJson = null;
             if (response != null) {
-                responseJson = objectMapper.writeValueAsString(response);
+                responseJson = toJson(response);
             }
 
             String sql = "INSERT INTO chatqlog (company, user, topic_id, add_date, add_time, add_user, request, response) " +
@@ -98,7 +100,7 @@ public class ChatqLogService {
     public void updateResponse(int id, Object response) {
         try {
             // response를 JSON으로 변환
-            String responseJson = objectMapper.writeValueAsString(response);
+            String responseJson = toJson(response);
 
             String sql = "UPDATE chatqlog SET response = ? WHERE id = ?";
             
@@ -112,6 +114,14 @@ public class ChatqLogService {
         }
     }
 
+    // 이미 JSON 인 응답 (스트리밍시 응답에 쓴 JSON, RawValue) 은 다시 직렬화하지 않고 그대로 사용
+    private String toJson(Object response) throws JsonProcessingException {
+        if (response instanceof RawValue raw && raw.rawValue() instanceof String json) {
+            return json;
+        }
+        return objectMapper.writeValueAsString(response);
+    }
+
     public Map<String, Object> getChatqLog(int id) {
         String sql = "SELECT * FROM chatqlog WHERE id = ?";
         try {
@@ -234,6 +244,70 @@ public class ChatqLogService {
         }
     }
 
+    /**
+     * chatqusage 테이블에 로그의 LLM 토큰 사용량 저장 (단계, provider, 모델별 한 행)
+     * 사용량 저장 실패는 로그 저장에 영향을 주지 않음
+     */
+    public void saveUsage(int logId, TokenUsage usage) {
+        if (logId <= 0 || usage == null) {
+            return;
+        }
+        List<TokenUsage.Entry> entries = usage.getEntries();
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            String company = CompanyContext.getCompany();
+            String user = getCurrentUser();
+            LocalDateTime now = LocalDateTime.now();
+            String addDate = now.format(DATE_FORMATTER);
+            String addTime = now.format(TIME_FORMATTER);
+
+            String sql = "INSERT INTO chatqusage (log_id, company, user, add_date, add_time, stage, provider, model, " +
+                         "calls, prompt_tokens, completion_tokens, cached_tokens) " +
+                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            jdbcTemplate.batchUpdate(sql, entries, entries.size(), (ps, entry) -> {
+                ps.setInt(1, logId);
+                ps.setString(2, company);
+                ps.setString(3, user);
+                ps.setString(4, addDate);
+                ps.setString(5, addTime);
+                ps.setString(6, entry.getStage());
+                ps.setString(7, entry.getProvider());
+                ps.setString(8, entry.getModel());
+                ps.setInt(9, entry.getCalls());
+                ps.setInt(10, entry.getPromptTokens());
+                ps.setInt(11, entry.getCompletionTokens());
+                ps.setInt(12, entry.getCachedTokens());
+            });
+            logger.info("Saved token usage - log id: {}, prompt: {}, completion: {}, cached: {}", logId,
+                    usage.getPromptTokens(), usage.getCompletionTokens(), usage.getCachedTokens());
+        } catch (Exception e) {
+            logger.error("Error saving token usage for log {}: {}", logId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 현재 company 의 일별 토큰 사용량 (add_date, user, stage, provider, model 별 합계)
+     * @param fromDate 시작일 yyyyMMdd (포함)
+     * @param toDate 종료일 yyyyMMdd (포함)
+     */
+    public List<Map<String, Object>> getUsageRollup(String fromDate, String toDate) {
+        String company = CompanyContext.getCompany();
+        String sql = "SELECT add_date, user, stage, provider, model, COUNT(DISTINCT log_id) AS requests, " +
+                     "SUM(calls) AS calls, SUM(prompt_tokens) AS prompt_tokens, " +
+                     "SUM(completion_tokens) AS completion_tokens, SUM(cached_tokens) AS cached_tokens " +
+                     "FROM chatqusage WHERE company = ? AND add_date BETWEEN ? AND ? " +
+                     "GROUP BY add_date, user, stage, provider, model " +
+                     "ORDER BY add_date DESC, prompt_tokens DESC";
+        try {
+            return jdbcTemplate.queryForList(sql, company, fromDate, toDate);
+        } catch (Exception e) {
+            logger.error("Error retrieving token usage rollup: {}", e.getMessage(), e);
+            return new java.util.ArrayList<>();
+        }
+    }
+
     /**
      * 세션에서 현재 사용자 정보 가져오기
      */
@@ -0,0 +1,105 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * chatqcomp 테이블의 회사(테넌트)별 설정 조회.
+ * 설정 칼럼이 없거나 값이 비어 있으면 호출자가 넘긴 기본값(application.properties)을 사용한다.
+ * 읽은 행은 ttl-seconds 동안 보관하고 그 뒤 다시 읽는다 (읽기에 실패한 빈 설정도 같은 시간 뒤 다시 시도).
+ */
+@Service
+public class CompanySettingService {
+    private static final Logger logger = LoggerFactory.getLogger(CompanySettingService.class);
+
+    @Value("${chatq.cache.company-settings.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // company -> chatqcomp row
+    private final Map<String, Settings> settings = new ConcurrentHashMap<>();
+
+    public CompanySettingService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public String getString(String company, String column, String defaultValue) {
+        Object value = getSettings(company).get(column.toLowerCase());
+        if (value == null || value.toString().isEmpty()) {
+            return defaultValue;
+        }
+        return value.toString();
+    }
+
+    public boolean isYes(String company, String column, boolean defaultValue) {
+        String value = getString(company, column, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return "Y".equalsIgnoreCase(value);
+    }
+
+    public long getLong(String company, String column, long defaultValue) {
+        String value = getString(company, column, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid chatqcomp.{} value for company {}: {}", column, company, value);
+            return defaultValue;
+        }
+    }
+
+    // chatqcomp 변경 후 다시 읽도록 캐시 제거
+    public void refresh(String company) {
+        settings.remove(key(company));
+    }
+
+    private Map<String, Object> getSettings(String company) {
+        String key = key(company);
+        long now = System.currentTimeMillis();
+        Settings cached = settings.get(key);
+        if (cached == null || cached.expiresAt < now) {
+            cached = new Settings(loadSettings(key), now + ttlSeconds * 1000);
+            settings.put(key, cached);
+        }
+        return cached.row;
+    }
+
+    private Map<String, Object> loadSettings(String company) {
+        Map<String, Object> row = new HashMap<>();
+        try {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT * FROM chatqcomp WHERE company = ?",
+                    company);
+            if (!rows.isEmpty()) {
+                for (Map.Entry<String, Object> e : rows.get(0).entrySet()) {
+                    row.put(e.getKey().toLowerCase(), e.getValue());
+                }
+                // 접속 정보는 보관하지 않음
+                row.remove("password");
+            }
+        } catch (Exception e) {
+            logger.warn("Could not load chatqcomp settings for company {}: {}", company, e.getMessage());
+        }
+        return row;
+    }
+
+    private String key(String company) {
+        return (company == null || company.isEmpty()) ? "chatq" : company;
+    }
+
+    // row: 칼럼명 소문자
+    private record Settings(Map<String, Object> row, long expiresAt) {
+    }
+}
@@ -0,0 +1,234 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * 대화 메모리 저장소 (conversationId -> 메시지 리스트).
+ * 여러 요청 스레드에서 동시에 사용하며, idle TTL / 최대 대화 수로 제거하고 대화별 토큰 예산을 넘으면 오래된 메시지부터 버린다.
+ * compaction 모드에서는 히스토리가 임계치를 넘으면 오래된 턴을 요약(마지막 SQL, tableAlias, 적용 조건) 한 개로 대체한다.
+ * 대화 수와 보관 중인 추정 토큰 합계를 gauge 로 기록한다.
+ */
+@Service
+public class ConversationMemoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationMemoryService.class);
+    private static final int SWEEP_INTERVAL = 100;
+    private static final Pattern WHERE_CLAUSE = Pattern.compile(
+            "\\bwhere\\b([\\s\\S]*?)(?:\\bgroup\\s+by\\b|\\border\\s+by\\b|\\blimit\\b|;|$)",
+            Pattern.CASE_INSENSITIVE);
+
+    @Value("${chatq.conversation.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${chatq.conversation.idle-ttl-minutes:60}")
+    private long idleTtlMinutes;
+
+    // 대화별 히스토리 토큰 상한 (추정치, 프롬프트 토큰 예산을 넘지 않음)
+    @Value("${chatq.conversation.max-tokens:6000}")
+    private int maxTokens;
+
+    @Value("${chatq.conversation.compaction.enabled:false}")
+    private boolean compactionEnabled;
+
+    // 히스토리 추정 토큰이 이 값을 넘으면 요약으로 압축
+    @Value("${chatq.conversation.compaction.threshold-tokens:2000}")
+    private int compactionThresholdTokens;
+
+    // 압축 시 원문 그대로 유지할 최근 턴 수
+    @Value("${chatq.conversation.compaction.keep-turns:1}")
+    private int compactionKeepTurns;
+
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+    private final AtomicInteger writes = new AtomicInteger();
+    private final PromptTokenEstimator tokenEstimator;
+
+    public ConversationMemoryService(PromptTokenEstimator tokenEstimator, MeterRegistry meterRegistry) {
+        this.tokenEstimator = tokenEstimator;
+        Gauge.builder("chatq.conversation.count", this, ConversationMemoryService::size).register(meterRegistry);
+        Gauge.builder("chatq.conversation.tokens", this, ConversationMemoryService::retainedTokens)
+                .description("Estimated tokens retained in conversation histories")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void checkMaxTokens() {
+        if (maxTokens > tokenEstimator.budget()) {
+            logger.warn("chatq.conversation.max-tokens ({}) exceeds the prompt token budget ({}), using the budget",
+                    maxTokens, tokenEstimator.budget());
+        }
+    }
+
+    /**
+     * 대화 히스토리 복사본 반환 (없으면 빈 리스트)
+     */
+    public List<Message> getMessages(String conversationId) {
+        Conversation conversation = conversations.get(conversationId);
+        if (conversation == null) {
+            return new ArrayList<>();
+        }
+        synchronized (conversation) {
+            if (isExpired(conversation, System.currentTimeMillis())) {
+                conversations.remove(conversationId, conversation);
+                return new ArrayList<>();
+            }
+            conversation.lastAccess = System.currentTimeMillis();
+            return new ArrayList<>(conversation.messages);
+        }
+    }
+
+    /**
+     * 한 턴(사용자 메시지 + AI 응답)을 히스토리에 추가
+     */
+    public void append(String conversationId, Message userMessage, Message assistantMessage) {
+        conversations.compute(conversationId, (id, conversation) -> {
+            if (conversation == null || isExpired(conversation, System.currentTimeMillis())) {
+                conversation = new Conversation();
+            }
+            synchronized (conversation) {
+                conversation.messages.add(userMessage);
+                conversation.messages.add(assistantMessage);
+                compact(conversation);
+                trimToBudget(conversation);
+                conversation.lastAccess = System.currentTimeMillis();
+            }
+            return conversation;
+        });
+
+        if (conversations.size() > maxEntries || writes.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            evict();
+        }
+    }
+
+    /**
+     * 대화에서 마지막으로 실행에 성공한 SQL 과 테이블을 기록 (요약에 사용)
+     */
+    public void recordContext(String conversationId, String tableAlias, String sql) {
+        Conversation conversation = conversations.get(conversationId);
+        if (conversation == null) {
+            return;
+        }
+        synchronized (conversation) {
+            conversation.tableAlias = tableAlias;
+            conversation.lastSql = sql;
+        }
+    }
+
+    public void remove(String conversationId) {
+        conversations.remove(conversationId);
+    }
+
+    public int size() {
+        return conversations.size();
+    }
+
+    private long retainedTokens() {
+        long tokens = 0;
+        for (Conversation conversation : conversations.values()) {
+            tokens += conversation.tokens;
+        }
+        return tokens;
+    }
+
+    // 오래된 턴을 요약 시스템 메시지 하나로 대체 (턴당 프롬프트 크기를 일정하게 유지)
+    private void compact(Conversation conversation) {
+        List<Message> messages = conversation.messages;
+        if (!compactionEnabled || conversation.lastSql == null
+                || tokenEstimator.estimate(messages) <= compactionThresholdTokens) {
+            return;
+        }
+        int keep = Math.min(messages.size(), compactionKeepTurns * 2);
+        List<Message> recent = new ArrayList<>(messages.subList(messages.size() - keep, messages.size()));
+        int before = messages.size();
+        messages.clear();
+        messages.add(new SystemMessage(summarize(conversation)));
+        messages.addAll(recent);
+        logger.debug("Conversation compacted - messages: {} -> {}", before, messages.size());
+    }
+
+    private String summarize(Conversation conversation) {
+        StringBuilder summary = new StringBuilder("이전 대화 요약.");
+        if (conversation.tableAlias != null) {
+            summary.append(" 정보종류: __").append(conversation.tableAlias).append("__.");
+        }
+        summary.append(" 마지막으로 실행한 SQL: ").append(conversation.lastSql);
+        String filters = extractFilters(conversation.lastSql);
+        if (filters != null) {
+            summary.append("\n 적용된 조건: ").append(filters);
+        }
+        return summary.toString();
+    }
+
+    // SQL 의 WHERE 절 (GROUP BY / ORDER BY / LIMIT 앞까지)
+    static String extractFilters(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        Matcher m = WHERE_CLAUSE.matcher(sql);
+        if (m.find()) {
+            return m.group(1).trim();
+        }
+        return null;
+    }
+
+    // 오래된 턴(2개 메시지 단위)부터 제거, 마지막 턴은 유지. 상한은 max-tokens 와 프롬프트 토큰 예산 중 작은 값
+    private void trimToBudget(Conversation conversation) {
+        List<Message> messages = conversation.messages;
+        int limit = Math.min(maxTokens, tokenEstimator.budget());
+        int tokens = tokenEstimator.estimate(messages);
+        // 요약 메시지는 유지하고 그 다음 턴부터 제거
+        int start = (!messages.isEmpty() && messages.get(0) instanceof SystemMessage) ? 1 : 0;
+        while (tokens > limit && messages.size() - start > 2) {
+            tokens -= tokenEstimator.estimate(messages.remove(start).getText());
+            tokens -= tokenEstimator.estimate(messages.remove(start).getText());
+        }
+        conversation.tokens = tokens;
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        conversations.entrySet().removeIf(e -> isExpired(e.getValue(), now));
+
+        int overflow = conversations.size() - maxEntries;
+        if (overflow > 0) {
+            // 가장 오래 사용하지 않은 대화부터 제거
+            conversations.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .limit(overflow)
+                    .map(Map.Entry::getKey)
+                    .toList()
+                    .forEach(conversations::remove);
+        }
+        logger.debug("Conversation memory sweep - remaining: {}", conversations.size());
+    }
+
+    private boolean isExpired(Conversation conversation, long now) {
+        return now - conversation.lastAccess > idleTtlMinutes * 60_000L;
+    }
+
+    private static final class Conversation {
+        private final List<Message> messages = new ArrayList<>();
+        private volatile long lastAccess = System.currentTimeMillis();
+        // messages 의 추정 토큰 수 (gauge 용)
+        private volatile int tokens;
+        private String tableAlias;
+        private String lastSql;
+    }
+}
@@ -32,6 +32,9 @@ public class EmbeddingService {
     @Autowired(required = false)
     private OllamaEmbeddingModel ollamaEmbeddingModel;
 
+    @Autowired
+    private OllamaWarmPoolManager warmPool;
+
     private static final Map<String, Map<String, List<Double>>> storage = new ConcurrentHashMap<>();
     private Runnable initializer;
     private static final AtomicBoolean initializing = new AtomicBoolean(false);
@@ -46,9 +49,7 @@ public class EmbeddingService {
                 throw new IllegalStateException("OllamaEmbeddingModel is not configured.");
             }
 
-            OllamaOptions options = OllamaOptions.builder()
-                    .model(ollamaEmbeddingModelName)
-                    .build();
+            OllamaOptions options = warmPool.embeddingOptions(ollamaEmbeddingModelName);
             EmbeddingRequest request = new EmbeddingRequest(Collections.singletonList(text), options);
             float[] floatVector = ollamaEmbeddingModel.call(request).getResult().getOutput();
 
@@ -109,6 +110,12 @@ public class EmbeddingService {
     }
 
     public List<Map.Entry<String, Double>> search(String dbName, String queryText, int topN, List<String> keyFilter) {
+        return searchByVector(dbName, embed(queryText), topN, keyFilter);
+    }
+
+    // 이미 계산된 질문 임베딩으로 검색 (임베딩 재사용)
+    public List<Map.Entry<String, Double>> searchByVector(String dbName, List<Double> queryVector, int topN,
+            List<String> keyFilter) {
         if ((!storage.containsKey(dbName) || storage.get(dbName).isEmpty()) && initializer != null) {
             if (initializing.compareAndSet(false, true)) {
                 try {
@@ -120,7 +127,6 @@ public class EmbeddingService {
         }
 
         Map<String, List<Double>> dbStorage = storage.getOrDefault(dbName, new HashMap<>());
-        List<Double> queryVector = embed(queryText);
 
         return dbStorage.entrySet().stream()
                 .filter(entry -> keyFilter == null || keyFilter.isEmpty() || keyFilter.contains(entry.getKey()))
@@ -132,7 +138,7 @@ public class EmbeddingService {
                 .collect(Collectors.toList());
     }
 
-    private double cosineSimilarity(List<Double> v1, List<Double> v2) {
+    public static double cosineSimilarity(List<Double> v1, List<Double> v2) {
         if (v1.size() != v2.size())
             return 0.0;
 
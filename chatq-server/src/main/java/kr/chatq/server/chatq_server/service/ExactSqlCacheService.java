@@ -0,0 +1,124 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 정규화된 질문 기준 SQL 완전일치 캐시 (시멘틱 캐시 앞단).
+ * key: company, auth, level, tableAlias, 쿼리 프롬프트(질문 제외) hash, 정규화된 질문.
+ * 최대 건수(LRU)와 TTL 로 제한하며, 회사별로 chatqcomp.sql_cache_yn 또는 chatq.cache.exact.enabled 로 사용 여부를 정한다.
+ */
+@Service
+public class ExactSqlCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExactSqlCacheService.class);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCT = Pattern.compile("[\\s?？.!。]+$");
+
+    @Value("${chatq.cache.exact.enabled:false}")
+    private boolean defaultEnabled;
+
+    @Value("${chatq.cache.exact.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${chatq.cache.exact.ttl-seconds:3600}")
+    private long ttlSeconds;
+
+    private final MeterRegistry meterRegistry;
+    private final CompanySettingService companySettingService;
+
+    // access-order LinkedHashMap 으로 LRU 구현
+    private final LinkedHashMap<String, CacheEntry> storage = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    public ExactSqlCacheService(MeterRegistry meterRegistry, CompanySettingService companySettingService) {
+        this.meterRegistry = meterRegistry;
+        this.companySettingService = companySettingService;
+    }
+
+    public boolean isEnabled(String company) {
+        return companySettingService.isYes(company, "sql_cache_yn", defaultEnabled);
+    }
+
+    public String key(String company, String auth, int level, String tableAlias, String queryPrompt,
+            String message) {
+        // 프롬프트에서 질문 부분을 빼고 hash -> 같은 스키마/baseQuery/codeMaps 에서만 일치
+        String template = (queryPrompt != null && message != null) ? queryPrompt.replace(message, "") : queryPrompt;
+        return String.join("|", company, auth, String.valueOf(level), String.valueOf(tableAlias),
+                CacheKeys.sha256(template), normalize(message));
+    }
+
+    public String get(String company, String key) {
+        CacheEntry entry;
+        synchronized (storage) {
+            entry = storage.get(key);
+            if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+                storage.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            counter(company, "miss").increment();
+            return null;
+        }
+        counter(company, "hit").increment();
+        logger.info("Exact SQL cache hit - company: {}, key: {}", company, key);
+        return entry.sql;
+    }
+
+    public void put(String key, String sql) {
+        if (sql == null || sql.isEmpty()) {
+            return;
+        }
+        synchronized (storage) {
+            storage.put(key, new CacheEntry(sql, System.currentTimeMillis() + ttlSeconds * 1000));
+        }
+    }
+
+    public void invalidateCompany(String company) {
+        String prefix = company + "|";
+        synchronized (storage) {
+            storage.keySet().removeIf(k -> k.startsWith(prefix));
+        }
+    }
+
+    // 공백/대소문자/끝 문장부호 차이를 무시
+    static String normalize(String message) {
+        if (message == null) {
+            return "";
+        }
+        String normalized = WHITESPACE.matcher(message.trim().toLowerCase()).replaceAll(" ");
+        return TRAILING_PUNCT.matcher(normalized).replaceAll("");
+    }
+
+    private Counter counter(String company, String result) {
+        return Counter.builder("chatq.sql.cache")
+                .tag("tier", "exact")
+                .tag("result", result)
+                .tag("company", company != null ? company : "chatq")
+                .register(meterRegistry);
+    }
+
+    private static final class CacheEntry {
+        private final String sql;
+        private final long expiresAt;
+
+        private CacheEntry(String sql, long expiresAt) {
+            this.sql = sql;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.retry.support.RetryTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+
+/**
+ * provider(ollama, openai) 별 LLM endpoint pool.
+ * 진행 중 요청 수가 가장 적은 정상 endpoint 를 고르고 (least outstanding), 연속 실패가 threshold 에 이르면
+ * cooldown 동안 제외한다 (passive health check). pool 의 모든 endpoint 가 실패하면 다른 provider 로 넘긴다.
+ * 4xx 등 요청 자체의 오류(NonTransientAiException)는 endpoint 장애로 보지 않고 바로 던진다.
+ */
+public class LlmEndpointPool {
+    private static final Logger logger = LoggerFactory.getLogger(LlmEndpointPool.class);
+
+    public static final String OLLAMA = "ollama";
+    public static final String OPENAI = "openai";
+
+    private final List<Endpoint> ollamaEndpoints;
+    private final List<Endpoint> openAiEndpoints;
+    private final int failureThreshold;
+    private final long cooldownMillis;
+    private final boolean failover;
+    private final AtomicInteger rotation = new AtomicInteger();
+    private final Counter failoverCounter;
+    private final MeterRegistry meterRegistry;
+
+    public LlmEndpointPool(List<Endpoint> ollamaEndpoints, List<Endpoint> openAiEndpoints, int failureThreshold,
+            long cooldownMillis, boolean failover, MeterRegistry meterRegistry) {
+        this.ollamaEndpoints = List.copyOf(ollamaEndpoints);
+        this.openAiEndpoints = List.copyOf(openAiEndpoints);
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.cooldownMillis = cooldownMillis;
+        this.failover = failover;
+        this.meterRegistry = meterRegistry;
+        this.failoverCounter = Counter.builder("chatq.llm.failover")
+                .description("LLM calls moved to the other provider after the pool was exhausted")
+                .register(meterRegistry);
+        for (Endpoint endpoint : this.ollamaEndpoints) {
+            registerGauge(endpoint);
+        }
+        for (Endpoint endpoint : this.openAiEndpoints) {
+            registerGauge(endpoint);
+        }
+    }
+
+    /**
+     * provider pool 에서 endpoint 를 골라 호출. 실패하면 같은 pool 의 다른 endpoint, 그 다음 다른 provider 순으로 시도
+     */
+    public ChatResponse call(String provider, Prompt prompt) {
+        return call(provider, prompt, new ArrayList<>(), null);
+    }
+
+    /**
+     * tried 를 제외한 provider pool 의 endpoint, 그 다음 다른 provider 순으로 시도 (LlmHedger 가 직접 시도한 뒤 이어서 사용)
+     *
+     * @param tried     이미 시도한 endpoint (시도할 때마다 추가됨)
+     * @param lastError 앞서 실패한 오류 (모두 실패하면 던짐, 없으면 null)
+     */
+    public ChatResponse call(String provider, Prompt prompt, List<Endpoint> tried, RuntimeException lastError) {
+        Endpoint endpoint;
+        while ((endpoint = select(provider, tried)) != null) {
+            tried.add(endpoint);
+            try {
+                return call(endpoint, prompt);
+            } catch (NonTransientAiException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                lastError = e;
+                logger.warn("LLM endpoint failed - provider: {}, url: {}, error: {}", provider, endpoint.baseUrl,
+                        e.getMessage());
+            }
+        }
+
+        String other = OLLAMA.equals(provider) ? OPENAI : OLLAMA;
+        if (failover && !endpoints(other).isEmpty()) {
+            failoverCounter.increment();
+            logger.warn("LLM pool {} exhausted, failing over to {}", provider, other);
+            // provider 별 옵션은 다른 provider 에 맞지 않으므로 메시지만 넘기고 endpoint 기본 옵션 사용
+            Prompt otherPrompt = new Prompt(prompt.getInstructions());
+            Endpoint otherEndpoint;
+            List<Endpoint> otherTried = new ArrayList<>();
+            while ((otherEndpoint = select(other, otherTried)) != null) {
+                otherTried.add(otherEndpoint);
+                try {
+                    return call(otherEndpoint, otherPrompt);
+                } catch (NonTransientAiException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    lastError = e;
+                    logger.warn("LLM endpoint failed - provider: {}, url: {}, error: {}", other,
+                            otherEndpoint.baseUrl, e.getMessage());
+                }
+            }
+        }
+
+        if (lastError != null) {
+            throw lastError;
+        }
+        throw new IllegalStateException("No LLM endpoint available for provider " + provider);
+    }
+
+    /**
+     * 지정한 endpoint 로 호출 (진행 중 요청 수, 성공/실패 기록)
+     */
+    public ChatResponse call(Endpoint endpoint, Prompt prompt) {
+        return call(endpoint, prompt, () -> false);
+    }
+
+    /**
+     * 지정한 endpoint 로 호출. 실패했을 때 cancelled 가 true 면 (hedge 에서 진 요청을 취소) endpoint 장애로 보지 않는다
+     */
+    public ChatResponse call(Endpoint endpoint, Prompt prompt, BooleanSupplier cancelled) {
+        endpoint.outstanding.incrementAndGet();
+        try {
+            ChatResponse response = endpoint.model.call(prompt);
+            endpoint.markSuccess();
+            return response;
+        } catch (NonTransientAiException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if (!cancelled.getAsBoolean()) {
+                endpoint.markFailure(failureThreshold, cooldownMillis);
+            }
+            throw e;
+        } finally {
+            endpoint.outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * 스트리밍 호출. 응답 도중 실패는 다른 endpoint 로 넘기지 않는다.
+     */
+    public Flux<ChatResponse> stream(String provider, Prompt prompt) {
+        return Flux.defer(() -> {
+            Endpoint endpoint = select(provider, List.of());
+            if (endpoint == null) {
+                return Flux.error(new IllegalStateException("No LLM endpoint available for provider " + provider));
+            }
+            endpoint.outstanding.incrementAndGet();
+            return endpoint.model.stream(prompt)
+                    .doOnComplete(endpoint::markSuccess)
+                    .doOnError(e -> {
+                        if (!(e instanceof NonTransientAiException)) {
+                            endpoint.markFailure(failureThreshold, cooldownMillis);
+                        }
+                    })
+                    .doFinally(signal -> endpoint.outstanding.decrementAndGet());
+        });
+    }
+
+    /**
+     * 정상 endpoint 중 진행 중 요청이 가장 적은 것 (같으면 순환). 정상 endpoint 가 없으면 cooldown 이 가장 먼저 끝나는 것을 시도
+     *
+     * @param exclude 이번 요청에서 이미 시도한 endpoint
+     * @return 없으면 null
+     */
+    public Endpoint select(String provider, List<Endpoint> exclude) {
+        List<Endpoint> endpoints = endpoints(provider);
+        if (endpoints.isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        int start = Math.floorMod(rotation.getAndIncrement(), endpoints.size());
+        Endpoint best = null;
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint candidate = endpoints.get((start + i) % endpoints.size());
+            if (exclude.contains(candidate) || !candidate.isHealthy(now)) {
+                continue;
+            }
+            if (best == null || candidate.outstanding.get() < best.outstanding.get()) {
+                best = candidate;
+            }
+        }
+        if (best == null && exclude.isEmpty()) {
+            // 모두 cooldown 중이면 가장 먼저 풀리는 endpoint 로 한 번 시도
+            for (Endpoint candidate : endpoints) {
+                if (best == null || candidate.unhealthyUntil < best.unhealthyUntil) {
+                    best = candidate;
+                }
+            }
+        }
+        return best;
+    }
+
+    public List<Endpoint> endpoints(String provider) {
+        return OPENAI.equals(provider) ? openAiEndpoints : ollamaEndpoints;
+    }
+
+    private void registerGauge(Endpoint endpoint) {
+        Gauge.builder("chatq.llm.endpoint.outstanding", endpoint.outstanding, AtomicInteger::get)
+                .tag("provider", endpoint.provider)
+                .tag("url", endpoint.baseUrl)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ollama endpoint 생성 (Spring AI 재시도 없이 실패를 바로 pool 에 알림)
+     */
+    public static Endpoint ollama(String baseUrl, OllamaOptions defaultOptions) {
+        OllamaChatModel model = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(baseUrl).build())
+                .defaultOptions(defaultOptions)
+                .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+                .build();
+        return new Endpoint(OLLAMA, baseUrl, model);
+    }
+
+    /**
+     * OpenAI (호환) endpoint 생성
+     */
+    public static Endpoint openAi(String baseUrl, String apiKey, OpenAiChatOptions defaultOptions) {
+        OpenAiChatModel model = OpenAiChatModel.builder()
+                .openAiApi(OpenAiApi.builder().baseUrl(baseUrl).apiKey(apiKey).build())
+                .defaultOptions(defaultOptions)
+                .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+                .build();
+        return new Endpoint(OPENAI, baseUrl, model);
+    }
+
+    public static class Endpoint {
+        private final String provider;
+        private final String baseUrl;
+        private final ChatModel model;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private int consecutiveFailures;
+        private volatile long unhealthyUntil;
+
+        public Endpoint(String provider, String baseUrl, ChatModel model) {
+            this.provider = provider;
+            this.baseUrl = baseUrl;
+            this.model = model;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public ChatModel getModel() {
+            return model;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        public boolean isHealthy(long now) {
+            return unhealthyUntil <= now;
+        }
+
+        private synchronized void markSuccess() {
+            consecutiveFailures = 0;
+            unhealthyUntil = 0;
+        }
+
+        private synchronized void markFailure(int threshold, long cooldownMillis) {
+            consecutiveFailures++;
+            if (consecutiveFailures >= threshold) {
+                unhealthyUntil = System.currentTimeMillis() + cooldownMillis;
+                logger.warn("LLM endpoint marked unhealthy for {} ms - provider: {}, url: {}", cooldownMillis,
+                        provider, baseUrl);
+            }
+        }
+    }
+}
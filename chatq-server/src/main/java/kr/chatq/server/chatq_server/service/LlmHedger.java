@@ -0,0 +1,186 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hedged LLM 요청.
+ * 첫 요청이 최근 응답 시간의 percentile 만큼 지나도 끝나지 않으면 pool 의 다른 endpoint 로 같은 요청을 한 번 더 보내고,
+ * 먼저 성공한 응답을 쓰며 나머지 요청은 취소한다. 보낸 hedge 수와 hedge 가 이긴 수를 기록한다.
+ * 보낸 요청이 모두 실패하면 남은 endpoint 와 다른 provider 로의 전환은 LlmEndpointPool.call 에 맡긴다.
+ */
+@Service
+public class LlmHedger {
+    private static final Logger logger = LoggerFactory.getLogger(LlmHedger.class);
+    private static final int WINDOW = 200;
+
+    @Value("${chatq.llm.hedge.enabled:false}")
+    private boolean enabled;
+
+    // hedge 지연 = 최근 응답 시간의 percentile
+    @Value("${chatq.llm.hedge.percentile:0.95}")
+    private double percentile;
+
+    @Value("${chatq.llm.hedge.min-delay-ms:1000}")
+    private long minDelayMs;
+
+    // 응답 시간 표본이 min-samples 보다 적을 때 사용할 지연
+    @Value("${chatq.llm.hedge.initial-delay-ms:10000}")
+    private long initialDelayMs;
+
+    @Value("${chatq.llm.hedge.min-samples:20}")
+    private int minSamples;
+
+    private final LlmEndpointPool pool;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    public LlmHedger(LlmEndpointPool pool, @Qualifier("chatqExecutor") ExecutorService executor,
+            MeterRegistry meterRegistry) {
+        this.pool = pool;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ChatResponse call(String provider, Prompt prompt) {
+        LlmEndpointPool.Endpoint primary = pool.select(provider, List.of());
+        if (primary == null) {
+            return pool.call(provider, prompt);
+        }
+
+        CompletionService<Attempt> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Attempt>> futures = new ArrayList<>();
+        List<LlmEndpointPool.Endpoint> tried = new ArrayList<>();
+        // 응답을 고른 뒤 true (진 요청의 실패는 endpoint 장애로 기록하지 않음)
+        AtomicBoolean cancelled = new AtomicBoolean();
+        futures.add(completion.submit(() -> attempt(primary, prompt, false, cancelled)));
+        tried.add(primary);
+        boolean hedged = false;
+        RuntimeException lastError = null;
+
+        try {
+            long delay = hedgeDelay(provider);
+            Future<Attempt> done = completion.poll(delay, TimeUnit.MILLISECONDS);
+            int pending = 1;
+            while (true) {
+                if (done == null) {
+                    // 지연 시간 안에 응답이 없으면 다른 endpoint 로 hedge
+                    LlmEndpointPool.Endpoint secondary = hedged ? null : pool.select(provider, tried);
+                    if (secondary != null) {
+                        hedged = true;
+                        counter("chatq.llm.hedge.sent", provider).increment();
+                        logger.info("Hedging LLM request after {} ms - provider: {}, url: {}", delay, provider,
+                                secondary.getBaseUrl());
+                        tried.add(secondary);
+                        futures.add(completion.submit(() -> attempt(secondary, prompt, true, cancelled)));
+                        pending++;
+                    }
+                    done = completion.take();
+                }
+                pending--;
+                try {
+                    Attempt result = done.get();
+                    if (result.hedge) {
+                        counter("chatq.llm.hedge.wins", provider).increment();
+                    }
+                    return result.response;
+                } catch (ExecutionException e) {
+                    lastError = e.getCause() instanceof RuntimeException re ? re
+                            : new IllegalStateException(e.getCause());
+                    if (lastError instanceof NonTransientAiException) {
+                        throw lastError;
+                    }
+                    if (pending == 0) {
+                        // 모두 실패하면 pool 의 남은 endpoint, 그 다음 다른 provider 로 (failover)
+                        return pool.call(provider, prompt, tried, lastError);
+                    }
+                    done = completion.take();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("LLM request interrupted", e);
+        } finally {
+            // 진 요청은 취소 (HTTP 호출 스레드 interrupt)
+            cancelled.set(true);
+            for (Future<Attempt> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Attempt attempt(LlmEndpointPool.Endpoint endpoint, Prompt prompt, boolean hedge,
+            AtomicBoolean cancelled) {
+        long start = System.nanoTime();
+        ChatResponse response = pool.call(endpoint, prompt, cancelled::get);
+        record(endpoint.getProvider(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new Attempt(response, hedge);
+    }
+
+    void record(String provider, long millis) {
+        latencies.computeIfAbsent(provider, p -> new LatencyWindow()).record(millis);
+    }
+
+    long hedgeDelay(String provider) {
+        LatencyWindow window = latencies.get(provider);
+        long delay = window != null ? window.percentile(percentile, minSamples) : -1;
+        return Math.max(minDelayMs, delay < 0 ? initialDelayMs : delay);
+    }
+
+    private Counter counter(String name, String provider) {
+        return Counter.builder(name).tag("provider", provider).register(meterRegistry);
+    }
+
+    private record Attempt(ChatResponse response, boolean hedge) {
+    }
+
+    // 최근 WINDOW 개 응답 시간 (ms)
+    static final class LatencyWindow {
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void record(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+
+        synchronized long percentile(double p, int minSamples) {
+            if (count < minSamples) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(p * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))];
+        }
+    }
+}
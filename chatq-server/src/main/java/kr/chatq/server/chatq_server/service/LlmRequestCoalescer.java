@@ -0,0 +1,168 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 동일한 LLM 요청(provider, model, 전체 프롬프트: 메시지와 옵션)이 동시에 들어오면 하나의 ChatModel.call 결과를
+ * 공유한다. (single-flight)
+ * 호출은 별도 작업(chatqExecutor)으로 실행하고 요청들은 그 결과를 기다린다. 기다리던 스레드가 interrupt 되면 그 요청만
+ * 빠지고, 기다리는 요청이 하나도 남지 않으면 호출을 cancel(true) 로 중단한다.
+ */
+@Service
+public class LlmRequestCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmRequestCoalescer.class);
+
+    @Value("${chatq.llm.coalesce.enabled:true}")
+    private boolean enabled;
+
+    private final ExecutorService executor;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+    private final Counter cancelledCounter;
+
+    public LlmRequestCoalescer(@Qualifier("chatqExecutor") ExecutorService executor, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.coalescedCounter = Counter.builder("chatq.llm.coalesced")
+                .description("LLM calls served by an identical in-flight request")
+                .register(meterRegistry);
+        this.cancelledCounter = Counter.builder("chatq.llm.coalesce.cancelled")
+                .description("LLM calls cancelled because every waiting request detached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * call 은 작업 스레드에서 실행하므로 요청 스레드의 ThreadLocal(TokenUsage 등)에 기대면 안 된다.
+     * received 는 응답을 처음 받은 요청 스레드에서 한 번만 실행한다 (사용량 기록: 결과를 공유받은 요청은 비용 없음).
+     * 기다리는 중 interrupt 되면 IllegalStateException (interrupt 상태 유지)
+     */
+    public ChatResponse call(String provider, String model, Prompt prompt, Supplier<ChatResponse> call,
+            Consumer<ChatResponse> received) {
+        if (!enabled) {
+            ChatResponse response = call.get();
+            received.accept(response);
+            return response;
+        }
+
+        String key = provider + "|" + model + "|" + CacheKeys.sha256(promptText(prompt));
+        Flight flight = join(key, call, provider, model);
+        try {
+            ChatResponse response = flight.result.get();
+            if (flight.received.compareAndSet(false, true)) {
+                received.accept(response);
+            }
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("LLM call interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            leave(key, flight);
+        }
+    }
+
+    // 같은 key 의 호출에 합류하거나 (취소 중인 호출이면 새로) 호출을 시작
+    private Flight join(String key, Supplier<ChatResponse> call, String provider, String model) {
+        while (true) {
+            Flight mine = new Flight();
+            Flight existing = inFlight.putIfAbsent(key, mine);
+            if (existing == null) {
+                Future<?> task = executor.submit(() -> {
+                    try {
+                        mine.result.complete(call.get());
+                    } catch (Throwable t) {
+                        mine.result.completeExceptionally(t);
+                    } finally {
+                        inFlight.remove(key, mine);
+                    }
+                });
+                synchronized (mine) {
+                    mine.task = task;
+                }
+                return mine;
+            }
+            synchronized (existing) {
+                if (existing.waiters > 0) {
+                    existing.waiters++;
+                    coalescedCounter.increment();
+                    logger.info("Coalesced LLM request - provider: {}, model: {}", provider, model);
+                    return existing;
+                }
+            }
+            inFlight.remove(key, existing);
+        }
+    }
+
+    // 요청이 빠짐. 끝나지 않은 호출을 기다리는 요청이 더 없으면 호출을 중단
+    private void leave(String key, Flight flight) {
+        synchronized (flight) {
+            flight.waiters--;
+            if (flight.waiters > 0 || flight.result.isDone()) {
+                return;
+            }
+            flight.result.cancel(false);
+            if (flight.task != null) {
+                flight.task.cancel(true);
+            }
+        }
+        inFlight.remove(key, flight);
+        cancelledCounter.increment();
+        logger.info("Cancelled LLM call with no waiting requests");
+    }
+
+    // 메시지와 옵션 (Ollama format 스키마, temperature, model 등이 다르면 다른 요청)
+    private String promptText(Prompt prompt) {
+        StringBuilder sb = new StringBuilder();
+        for (Message message : prompt.getInstructions()) {
+            sb.append(message.getMessageType()).append(':').append(message.getText()).append('\n');
+        }
+        ChatOptions options = prompt.getOptions();
+        if (options != null) {
+            sb.append("OPTIONS:").append(options.getClass().getName()).append(':').append(optionsText(options));
+        }
+        return sb.toString();
+    }
+
+    private static String optionsText(ChatOptions options) {
+        try {
+            return ModelOptionsUtils.toJsonString(options);
+        } catch (RuntimeException e) {
+            // 직렬화할 수 없는 옵션은 합치지 않도록 인스턴스마다 다른 값
+            return "@" + System.identityHashCode(options);
+        }
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<ChatResponse> result = new CompletableFuture<>();
+        private final AtomicBoolean received = new AtomicBoolean();
+        // 결과를 기다리는 요청 수 (synchronized(this))
+        private int waiters = 1;
+        private Future<?> task;
+    }
+}
@@ -0,0 +1,291 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import kr.chatq.server.chatq_server.dto.ColumnarData;
+import kr.chatq.server.chatq_server.dto.QueryResponse;
+import kr.chatq.server.chatq_server.dto.RowSet;
+
+/**
+ * 마스터-디테일 지연 조회 (chatqtable.detail_yn = Y).
+ * 첫 응답에는 헤더 칼럼만 SELECT DISTINCT 로 읽어 headerData 로 주고 (data 없음), 상세 행은 헤더 행을 선택할 때
+ * /api/details/{handle}?row= 로 그 헤더 값의 행만 읽는다. 헤더 값은 서버에 보관한 값을 그대로 바인딩한다.
+ * 엑셀/차트/전체 보기는 /api/details/{handle}/all 로 상세 행 전체(max-rows 까지)를 읽는다.
+ * 핸들은 회사/사용자별이며 최대 건수(LRU)와 TTL(마지막 접근 기준)로 제한한다. pre_query/post_query 대신 max-rows 로 제한
+ * (LIMIT 문법 DB 면 SQL 에 LIMIT, 아니면 읽는 행 수로). 만료된 핸들은 응답의 resultQuery 로 다시 연다 (QueryService.reopenResult).
+ */
+@Service
+public class MasterDetailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MasterDetailService.class);
+
+    @Value("${chatq.result.master-detail.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chatq.result.master-detail.max-rows:10000}")
+    private int maxRows;
+
+    @Value("${chatq.result.master-detail.ttl-seconds:1800}")
+    private long ttlSeconds;
+
+    @Value("${chatq.result.master-detail.max-entries:200}")
+    private int maxEntries;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlValidator sqlValidator;
+    private final ChatQueryMetrics chatQueryMetrics;
+    private final ResultCacheService resultCache;
+
+    // access-order LinkedHashMap 으로 LRU 구현
+    private final LinkedHashMap<String, Master> storage = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Master> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    public MasterDetailService(@Qualifier("secondaryJdbcTemplate") JdbcTemplate jdbcTemplate,
+            SqlValidator sqlValidator, ChatQueryMetrics chatQueryMetrics, ResultCacheService resultCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sqlValidator = sqlValidator;
+        this.chatQueryMetrics = chatQueryMetrics;
+        this.resultCache = resultCache;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 헤더 행(중복 제거)만 조회해 detailHandle 과 함께 반환. 결과에 헤더 칼럼이 없으면 null (호출자가 전체 행을 조회)
+     */
+    public QueryResponse open(String company, String user, int level, String sql, List<String> headerColumnList,
+            boolean columnar) {
+        if (headerColumnList == null || headerColumnList.isEmpty()) {
+            return null;
+        }
+        String baseSql = SqlValidator.stripSemicolons(sql);
+        // 행 없이 칼럼 라벨만 읽음
+        String columnSql = "SELECT * FROM (" + baseSql + ") AS subquery WHERE 1 = 0";
+        List<String> columns = chatQueryMetrics.time(ChatQueryMetrics.SQL_EXECUTION,
+                () -> jdbcTemplate.query(columnSql, (ResultSet rs) -> new ResultSetRows(rs, "N", null).columns()));
+        if (!ResultSetRows.hasHeader(columns, "Y", headerColumnList)) {
+            return null;
+        }
+
+        List<String> selected = new ArrayList<>(headerColumnList.size());
+        for (String headerColumn : headerColumnList) {
+            selected.add(quote(headerColumn));
+        }
+        String headerSql = "SELECT DISTINCT " + String.join(", ", selected) + " FROM (" + baseSql + ") AS subquery"
+                + orderBy(baseSql, headerColumnList) + limit(maxRows + 1);
+
+        RowSet headerData;
+        ResultCacheService.CachedResult cached = resultCache.get(company, level, headerSql);
+        if (cached != null) {
+            headerData = cached.rows();
+        } else {
+            logger.info("Executing SQL for company: {} - SQL: {}", company != null ? company : "default(chatq)",
+                    headerSql);
+            ResultCacheService.Collector collector = resultCache.collector(company, level, headerSql);
+            headerData = chatQueryMetrics.time(ChatQueryMetrics.SQL_EXECUTION,
+                    () -> jdbcTemplate.query(headerSql, (ResultSet rs) -> {
+                        ResultSetRows rows = new ResultSetRows(rs, "N", null);
+                        RowSet headers = new RowSet(rows.names());
+                        collector.start(rows.columns(), rows.names());
+                        boolean complete = true;
+                        for (Object[] values = rows.next(); values != null; values = rows.next()) {
+                            if (headers.size() == maxRows) {
+                                complete = false;
+                                break;
+                            }
+                            headers.addRow(values);
+                            collector.add(values);
+                        }
+                        if (complete) {
+                            collector.finish();
+                        }
+                        return headers;
+                    }));
+        }
+
+        Master master = new Master(company, user, baseSql, headerColumnList, headerData, columnar);
+        master.expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+        String handle = UUID.randomUUID().toString();
+        synchronized (storage) {
+            storage.put(handle, master);
+        }
+
+        QueryResponse response = new QueryResponse();
+        response.setColumns(columns);
+        response.setHeaderColumns(headerColumnList);
+        response.setHeaderData(headerData);
+        response.setDetailYn("Y");
+        response.setDetailHandle(handle);
+        return response;
+    }
+
+    /**
+     * row(0부터) 번째 헤더 행의 상세 행. 핸들이 없거나 만료됐거나 다른 회사/사용자의 핸들이거나 row 가 범위 밖이면 null
+     */
+    public QueryResponse details(String handle, String company, String user, int row) {
+        Master master = master(handle, company, user);
+        if (master == null || row < 0 || row >= master.headerData.size()) {
+            return null;
+        }
+
+        Object[] key = master.headerData.getRow(row);
+        List<String> conditions = new ArrayList<>(key.length);
+        List<Object> params = new ArrayList<>(key.length);
+        for (int i = 0; i < key.length; i++) {
+            String column = quote(master.headerColumns.get(i));
+            if (key[i] == null) {
+                conditions.add(column + " IS NULL");
+            } else {
+                conditions.add(column + " = ?");
+                params.add(key[i]);
+            }
+        }
+        String detailSql = "SELECT * FROM (" + master.sql + ") AS subquery WHERE " + String.join(" AND ", conditions)
+                + limit(maxRows + 1);
+        logger.debug("Master-detail detail SQL: {}", detailSql);
+
+        QueryResponse response = query(master, detailSql, params.toArray());
+        response.setDetailYn("N");
+        return response;
+    }
+
+    /**
+     * 모든 헤더 행의 상세 행 (헤더 칼럼 순, max-rows 까지). 더 있으면 hasMore = true.
+     * headerColumns/headerData 를 함께 주므로 응답은 executeQuery 의 마스터-디테일 결과와 같은 모양이다.
+     */
+    public QueryResponse allDetails(String handle, String company, String user) {
+        Master master = master(handle, company, user);
+        if (master == null) {
+            return null;
+        }
+        String allSql = "SELECT * FROM (" + master.sql + ") AS subquery" + orderBy(master.sql, master.headerColumns)
+                + limit(maxRows + 1);
+        logger.info("Executing SQL for company: {} - SQL: {}", company != null ? company : "default(chatq)", allSql);
+
+        QueryResponse response = query(master, allSql);
+        response.setHeaderColumns(master.headerColumns);
+        response.setHeaderData(master.headerData);
+        response.setDetailYn("Y");
+        return response;
+    }
+
+    // 핸들의 Master (없거나 만료됐거나 다른 회사/사용자의 핸들이면 null). 찾으면 TTL 을 연장
+    private Master master(String handle, String company, String user) {
+        Master master;
+        synchronized (storage) {
+            master = storage.get(handle);
+            if (master != null && master.expiresAt < System.currentTimeMillis()) {
+                storage.remove(handle);
+                master = null;
+            }
+        }
+        if (master == null || !Objects.equals(master.company, company) || !Objects.equals(master.user, user)) {
+            return null;
+        }
+        master.expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+        return master;
+    }
+
+    // sql 의 행을 max-rows 까지 읽어 columns 와 data(또는 columnar)를 채운 응답. max-rows 를 넘으면 hasMore = true
+    private QueryResponse query(Master master, String sql, Object... params) {
+        return chatQueryMetrics.time(ChatQueryMetrics.SQL_EXECUTION, () -> jdbcTemplate.query(sql,
+                (ResultSet rs) -> {
+                    ResultSetRows rows = new ResultSetRows(rs, "N", null);
+                    RowSet data = new RowSet(rows.names());
+                    boolean hasMore = false;
+                    for (Object[] values = rows.next(); values != null; values = rows.next()) {
+                        if (data.size() == maxRows) {
+                            hasMore = true;
+                            break;
+                        }
+                        data.addRow(values);
+                    }
+                    QueryResponse response = new QueryResponse();
+                    response.setColumns(rows.columns());
+                    if (master.columnar) {
+                        ColumnarData.Builder builder = new ColumnarData.Builder(data.getNames());
+                        for (int r = 0; r < data.size(); r++) {
+                            builder.addRow(data.getRow(r));
+                        }
+                        response.setColumnar(builder.build());
+                    } else {
+                        response.setData(data);
+                    }
+                    response.setHasMore(hasMore);
+                    return response;
+                }, params));
+    }
+
+    // SQL 의 ORDER BY 중 헤더 칼럼인 키를 먼저, 나머지 헤더 칼럼은 오름차순으로
+    private String orderBy(String sql, List<String> headerColumnList) {
+        List<String> items = new ArrayList<>(headerColumnList.size());
+        List<String> ordered = new ArrayList<>();
+        SqlValidator.Ordering ordering = sqlValidator.ordering(sql);
+        if (ordering != null) {
+            for (int i = 0; i < ordering.getKeys().size(); i++) {
+                String key = ordering.getKeys().get(i);
+                for (String headerColumn : headerColumnList) {
+                    if (headerColumn.equalsIgnoreCase(key) && !ordered.contains(headerColumn)) {
+                        ordered.add(headerColumn);
+                        items.add(quote(headerColumn) + (ordering.getDescending().get(i) ? " DESC" : ""));
+                    }
+                }
+            }
+        }
+        for (String headerColumn : headerColumnList) {
+            if (!ordered.contains(headerColumn)) {
+                items.add(quote(headerColumn));
+            }
+        }
+        return " ORDER BY " + String.join(", ", items);
+    }
+
+    // 조회 DB 가 LIMIT 문법이면 LIMIT 절 (아니면 읽는 행 수로만 제한)
+    private String limit(int rows) {
+        return sqlValidator.supportsLimit() ? " LIMIT " + rows : "";
+    }
+
+    private String quote(String identifier) {
+        return sqlValidator.quoteIdentifier(identifier);
+    }
+
+    private static final class Master {
+        private final String company;
+        private final String user;
+        private final String sql;
+        private final List<String> headerColumns;
+        // 헤더 칼럼 값 조합 (중복 없음, /api/details 의 row 가 가리키는 행)
+        private final RowSet headerData;
+        private final boolean columnar;
+        private volatile long expiresAt;
+
+        private Master(String company, String user, String sql, List<String> headerColumns, RowSet headerData,
+                boolean columnar) {
+            this.company = company;
+            this.user = user;
+            this.sql = sql;
+            this.headerColumns = headerColumns;
+            this.headerData = headerData;
+            this.columnar = columnar;
+        }
+    }
+}
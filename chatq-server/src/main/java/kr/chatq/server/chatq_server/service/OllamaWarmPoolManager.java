@@ -0,0 +1,265 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Ollama 모델 warm pool.
+ * 기동 시 chat / embedding 모델을 미리 올리고 (preload), 주기적으로 /api/ps 로 상주 여부를 확인하며 keep_alive 를 갱신한다.
+ * 상주 여부와 모델 로드 시간을 metric 으로 남기고, 호출마다 만들던 OllamaOptions 는 설정 값이 바뀔 때만 새로 만든다.
+ */
+@Service
+public class OllamaWarmPoolManager {
+    private static final Logger logger = LoggerFactory.getLogger(OllamaWarmPoolManager.class);
+
+    @Value("${chatq.llm.warmup.enabled:false}")
+    private boolean enabled;
+
+    // 모델을 메모리에 유지할 시간 (Ollama keep_alive 형식, 예: 30m, -1 은 무기한)
+    @Value("${chatq.llm.warmup.keep-alive:30m}")
+    private String keepAlive;
+
+    @Value("${spring.ai.type:ollama}")
+    private String aiType;
+
+    @Value("${spring.ai.ollama.base-url:http://localhost:11434}")
+    private String ollamaBaseUrl;
+
+    @Value("${spring.ai.ollama.chat.options.model:}")
+    private String chatModel;
+
+    @Value("${spring.ai.embedding.type:openai}")
+    private String embeddingType;
+
+    @Value("${spring.ai.use-embedding:false}")
+    private boolean useEmbedding;
+
+    @Value("${spring.ai.ollama.embedding.options.model:}")
+    private String embeddingModel;
+
+    private final LlmEndpointPool pool;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final RestClient restClient = RestClient.create();
+
+    // (base url, model) 별 상주 여부 1/0
+    private final Map<String, AtomicInteger> residency = new ConcurrentHashMap<>();
+    private final AtomicReference<CachedOptions> chatOptions = new AtomicReference<>();
+    private final AtomicReference<CachedOptions> embeddingOptions = new AtomicReference<>();
+
+    public OllamaWarmPoolManager(LlmEndpointPool pool, @Qualifier("chatqExecutor") ExecutorService executor,
+            MeterRegistry meterRegistry) {
+        this.pool = pool;
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * chat 호출용 옵션. 설정 값이 직전과 같으면 같은 인스턴스를 재사용한다 (Spring AI 가 요청마다 복사해서 사용).
+     */
+    public OllamaOptions chatOptions(String model, Double temperature, Integer numPredict, Integer numCtx,
+            Integer topK, Double topP) {
+        List<Object> key = List.of(Objects.toString(model, ""), Objects.toString(temperature, ""),
+                Objects.toString(numPredict, ""), Objects.toString(numCtx, ""), Objects.toString(topK, ""),
+                Objects.toString(topP, ""), Objects.toString(effectiveKeepAlive(), ""));
+        return cached(chatOptions, key, () -> OllamaOptions.builder()
+                .model(model)
+                .temperature(temperature)
+                .numPredict(numPredict)
+                .numCtx(numCtx)
+                .topK(topK)
+                .topP(topP)
+                .keepAlive(effectiveKeepAlive())
+                .build());
+    }
+
+    /**
+     * embedding 호출용 옵션 (모델이 바뀔 때만 새로 생성)
+     */
+    public OllamaOptions embeddingOptions(String model) {
+        List<Object> key = List.of(Objects.toString(model, ""), Objects.toString(effectiveKeepAlive(), ""));
+        return cached(embeddingOptions, key, () -> OllamaOptions.builder()
+                .model(model)
+                .keepAlive(effectiveKeepAlive())
+                .build());
+    }
+
+    private OllamaOptions cached(AtomicReference<CachedOptions> holder, List<Object> key,
+            Supplier<OllamaOptions> builder) {
+        CachedOptions current = holder.get();
+        if (current != null && current.key.equals(key)) {
+            return current.options;
+        }
+        CachedOptions rebuilt = new CachedOptions(key, builder.get());
+        holder.set(rebuilt);
+        return rebuilt.options;
+    }
+
+    // warm-up 을 끄면 Ollama 기본 keep_alive 를 그대로 사용
+    private String effectiveKeepAlive() {
+        return enabled && keepAlive != null && !keepAlive.isBlank() ? keepAlive : null;
+    }
+
+    /**
+     * 기동 완료 후 백그라운드에서 모델 preload (기동을 막지 않음)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (!enabled) {
+            return;
+        }
+        executor.submit(this::keepWarm);
+    }
+
+    /**
+     * 주기적으로 상주 여부를 확인하고 keep_alive 를 갱신. 내려간 모델은 다시 올리면서 로드 시간을 기록한다.
+     */
+    @Scheduled(fixedDelayString = "${chatq.llm.warmup.ping-interval-seconds:240}",
+            initialDelayString = "${chatq.llm.warmup.ping-interval-seconds:240}", timeUnit = TimeUnit.SECONDS)
+    public void keepWarm() {
+        if (!enabled) {
+            return;
+        }
+        for (Map.Entry<String, Set<String>> target : targets().entrySet()) {
+            String baseUrl = target.getKey();
+            Set<String> resident = runningModels(baseUrl);
+            for (String model : target.getValue()) {
+                boolean isEmbedding = model.equals(embeddingModel) && !model.equals(chatModel);
+                boolean wasResident = resident != null && resident.contains(model);
+                try {
+                    long loadNanos = isEmbedding ? loadEmbedding(baseUrl, model) : loadChat(baseUrl, model);
+                    if (!wasResident) {
+                        Timer.builder("chatq.llm.model.load")
+                                .description("Ollama model load time on warm-up / keep-alive")
+                                .tag("model", model)
+                                .tag("url", baseUrl)
+                                .register(meterRegistry)
+                                .record(loadNanos, TimeUnit.NANOSECONDS);
+                        logger.info("Ollama model loaded - url: {}, model: {}, load: {} ms", baseUrl, model,
+                                TimeUnit.NANOSECONDS.toMillis(loadNanos));
+                    }
+                    residency(baseUrl, model).set(1);
+                } catch (RuntimeException e) {
+                    residency(baseUrl, model).set(0);
+                    logger.warn("Ollama warm-up failed - url: {}, model: {}, error: {}", baseUrl, model,
+                            e.getMessage());
+                }
+            }
+        }
+    }
+
+    // base url 별 올려둘 모델 (chat: pool 의 모든 Ollama endpoint, embedding: spring.ai.ollama.base-url)
+    private Map<String, Set<String>> targets() {
+        Map<String, Set<String>> targets = new LinkedHashMap<>();
+        if ("ollama".equalsIgnoreCase(aiType) && chatModel != null && !chatModel.isBlank()) {
+            for (LlmEndpointPool.Endpoint endpoint : pool.endpoints(LlmEndpointPool.OLLAMA)) {
+                targets.computeIfAbsent(endpoint.getBaseUrl(), url -> new LinkedHashSet<>()).add(chatModel);
+            }
+        }
+        if (useEmbedding && "ollama".equalsIgnoreCase(embeddingType) && embeddingModel != null
+                && !embeddingModel.isBlank()) {
+            targets.computeIfAbsent(ollamaBaseUrl, url -> new LinkedHashSet<>()).add(embeddingModel);
+        }
+        return targets;
+    }
+
+    // /api/ps 의 상주 모델 이름 (조회 실패시 null)
+    private Set<String> runningModels(String baseUrl) {
+        try {
+            JsonNode body = restClient.get().uri(baseUrl + "/api/ps").retrieve().body(JsonNode.class);
+            Set<String> names = new LinkedHashSet<>();
+            if (body != null && body.path("models").isArray()) {
+                for (JsonNode model : body.path("models")) {
+                    String name = model.path("name").asText();
+                    names.add(name);
+                    // 태그 없이 설정한 모델 (embeddinggemma -> embeddinggemma:latest)
+                    if (name.endsWith(":latest")) {
+                        names.add(name.substring(0, name.length() - ":latest".length()));
+                    }
+                }
+            }
+            // 목록에 없는 모델은 내려간 것으로 기록
+            residency.forEach((key, value) -> {
+                if (key.startsWith(baseUrl + "|") && !names.contains(key.substring(baseUrl.length() + 1))) {
+                    value.set(0);
+                }
+            });
+            return names;
+        } catch (RuntimeException e) {
+            logger.warn("Ollama /api/ps failed - url: {}, error: {}", baseUrl, e.getMessage());
+            return null;
+        }
+    }
+
+    // prompt 없는 generate 요청은 모델만 올리고 keep_alive 를 갱신한다
+    private long loadChat(String baseUrl, String model) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("model", model);
+        request.put("keep_alive", keepAlive);
+        return loadDuration(restClient.post().uri(baseUrl + "/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(request)
+                .retrieve()
+                .body(JsonNode.class));
+    }
+
+    private long loadEmbedding(String baseUrl, String model) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("model", model);
+        request.put("input", "warm-up");
+        request.put("keep_alive", keepAlive);
+        return loadDuration(restClient.post().uri(baseUrl + "/api/embed")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(request)
+                .retrieve()
+                .body(JsonNode.class));
+    }
+
+    // Ollama 가 보고한 load_duration (ns)
+    private long loadDuration(JsonNode response) {
+        return response != null ? response.path("load_duration").asLong(0) : 0;
+    }
+
+    private AtomicInteger residency(String baseUrl, String model) {
+        return residency.computeIfAbsent(baseUrl + "|" + model, key -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder("chatq.llm.model.resident", value, AtomicInteger::get)
+                    .description("1 when the Ollama model is loaded in memory")
+                    .tag("model", model)
+                    .tag("url", baseUrl)
+                    .register(meterRegistry);
+            return value;
+        });
+    }
+
+    private record CachedOptions(List<Object> key, OllamaOptions options) {
+    }
+}
@@ -20,15 +20,18 @@ public class PromptMakerService {
 
     private DbService dbService;
     private javax.sql.DataSource dataSource;
+    private PromptTokenEstimator tokenEstimator;
 
     @Value("${chatq.query.date_format}")
     private String dateFormat;
 
     // 생성자
     public PromptMakerService(DbService dbService,
-            @org.springframework.beans.factory.annotation.Qualifier("secondaryDataSource") javax.sql.DataSource dataSource) {
+            @org.springframework.beans.factory.annotation.Qualifier("secondaryDataSource") javax.sql.DataSource dataSource,
+            PromptTokenEstimator tokenEstimator) {
         this.dbService = dbService;
         this.dataSource = dataSource;
+        this.tokenEstimator = tokenEstimator;
     }
 
     // 쿼리문을 생성할 테이블 선택 프롬프트 생성
@@ -39,10 +42,8 @@ public class PromptMakerService {
         String metaYn = (message.indexOf("[[meta]]") < 0) ? "N" : "Y";
         List<Map<String, Object>> tables = dbService.getTables(auth, metaYn);
         List<String> tableAliasList = new ArrayList<>();
+        List<CatalogEntry> catalog = new ArrayList<>();
 
-        // Promt 생성을 위한 StringBuilder
-        StringBuilder promptBuilder = new StringBuilder();
-        promptBuilder.append("다음은 정보종류별 조회sql문 json이다. {");
         for (Map<String, Object> table : tables) {
             StringBuilder queryBuilder = new StringBuilder();
             // table 정보로 getColumns 호출
@@ -52,7 +53,6 @@ public class PromptMakerService {
             String tailQuery = table.get("tail_query") != null ? table.get("tail_query").toString() : "";
             tableAliasList.add("`__" + tableAlias + "__`");
 
-            promptBuilder.append("\"__").append(tableAlias).append("__\": \"select ");
             queryBuilder.append("select ");
 
             List<Map<String, Object>> columns = dbService.getColumns(tableName, level);
@@ -61,6 +61,7 @@ public class PromptMakerService {
             List<String> columnNmList = new ArrayList<>();
             List<String> headerColumnList = new ArrayList<>();
             Map<String, String> codeMaps = new HashMap<>();
+            CatalogEntry entry = new CatalogEntry(tableAlias, tableName, tailQuery);
 
             for (int i = 0; i < columns.size(); i++) {
                 Map<String, Object> column = columns.get(i);
@@ -79,44 +80,148 @@ public class PromptMakerService {
                 StringBuilder columnBuilder = new StringBuilder();
                 if (subqueryYn.equals("Y")) {
                     columnBuilder.append("(").append(columnDesc).append(") as `").append(columnName).append("`");
+                    // 서브쿼리 설명은 예산 초과시 가장 먼저 제외
+                    entry.trimmedColumns.add("`" + columnName + "`");
                 } else {
                     columnBuilder.append(columnCd).append(" as `").append(columnName).append("`");
+                    entry.trimmedColumns.add(columnBuilder.toString());
                 }
 
                 columnList.add(columnBuilder.toString());
+                entry.nameColumns.add("`" + columnName + "`");
 
                 columnNmList.add(columnName);
                 if (headerColumnYn.equals("Y")) {
                     headerColumnList.add(columnName);
                 }
             }
-            promptBuilder.append(String.join(", ", columnList));
+            entry.fullColumns.addAll(columnList);
+            catalog.add(entry);
             queryBuilder.append(String.join(", ", columnList));
 
-            promptBuilder.append(" from ").append(tableName).append(" ").append(tailQuery).append("\",\n ");
             queryBuilder.append(" from ").append(tableName).append(" ").append(tailQuery);
             infos.put(tableAlias, queryBuilder.toString());
             table.put("headerColumns", headerColumnList);
             table.put("columnNmList", columnNmList);
             table.put("codeMaps", codeMaps);
         }
-        promptBuilder.append("}\\n 이 json 내용을 참고하여 [[").append(message).append("]]  문의에 가장 가까운 정보종류를 ")
-                .append(String.join(", ", tableAliasList)).append(" 중에서 어느 것인지 한 개만 골라줘.");
 
-        String prompt = promptBuilder.toString();
+        // 카탈로그는 질문과 무관한 system prefix, 질문은 user suffix (provider prefix 캐시 재사용)
+        String user = "[[" + message + "]] 문의에 가장 가까운 정보종류를 한 개만 골라줘.";
+
+        // 토큰 예산을 넘으면 낮은 우선순위 내용부터 단계적으로 제외 (0: 전체 ~ 3: 정보종류만)
+        String system = null;
+        String prompt = null;
+        int budget = tokenEstimator.budget();
+        int tokens = 0;
+        for (int trimLevel = 0; trimLevel <= CatalogEntry.MAX_TRIM_LEVEL; trimLevel++) {
+            system = renderPickTableSystem(catalog, tableAliasList, trimLevel);
+            prompt = system + "\n" + user;
+            tokens = tokenEstimator.estimate(prompt);
+            if (tokens <= budget) {
+                break;
+            }
+            logger.warn("PickTablePrompt over token budget - level: {}, tokens: {}, budget: {}", trimLevel, tokens,
+                    budget);
+        }
 
         // 프롬프트 로그 남기기
         logger.info("===  PickTablePrompt Generated Prompt ===");
         logger.info("Auth: {}", auth);
         logger.info("Message: {}", message);
+        logger.info("Estimated tokens: {} / {}", tokens, budget);
         logger.info("Prompt:\n{}", prompt);
         logger.info("========================");
 
         // 콘솔 출력
         System.out.println("PickTablePrompt Generated Prompt: " + prompt);
         result.put("prompt", prompt);
+        result.put("system", system);
+        result.put("user", user);
         result.put("infos", infos);
         result.put("tables", tables);
+        result.put("estimatedTokens", tokens);
+        result.put("catalog", catalog);
+
+        return result;
+    }
+
+    private String renderPickTableSystem(List<CatalogEntry> catalog, List<String> tableAliasList, int trimLevel) {
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append("다음은 정보종류별 조회sql문 json이다. {");
+        for (CatalogEntry entry : catalog) {
+            promptBuilder.append("\"__").append(entry.tableAlias).append("__\": \"select ");
+            promptBuilder.append(String.join(", ", entry.columns(trimLevel)));
+            promptBuilder.append(" from ").append(entry.tableName).append(" ")
+                    .append(trimLevel < 2 ? entry.tailQuery : "").append("\",\n ");
+        }
+        promptBuilder.append("}\\n 이 json 내용을 참고하여 사용자 문의에 가장 가까운 정보종류를 ")
+                .append(String.join(", ", tableAliasList)).append(" 중에서 어느 것인지 한 개만 골라줘.");
+        return promptBuilder.toString();
+    }
+
+    /**
+     * 테이블 선택과 SQL 작성을 한 번에 요청하는 프롬프트 (one-shot 모드).
+     * getPickTablePrompt 결과의 전체 칼럼 식 카탈로그와 칼럼별 허용 값 정보를 사용하며,
+     * 답변은 {"alias": "정보종류", "sql": "SQL문"} JSON 으로 요청한다.
+     *
+     * @return prompt, system, user, estimatedTokens
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getOneShotPrompt(Map<String, Object> pickTableResult, String message)
+            throws SQLException {
+        Map<String, Object> result = new java.util.HashMap<>();
+        List<CatalogEntry> catalog = (List<CatalogEntry>) pickTableResult.get("catalog");
+        List<Map<String, Object>> tables = (List<Map<String, Object>>) pickTableResult.get("tables");
+
+        // 정보종류별 칼럼 허용 값 정보
+        Map<String, Object> codeMapsByAlias = new java.util.LinkedHashMap<>();
+        for (int i = 0; i < tables.size() && i < catalog.size(); i++) {
+            Map<String, String> codeMaps = (Map<String, String>) tables.get(i).get("codeMaps");
+            if (codeMaps != null && !codeMaps.isEmpty()) {
+                codeMapsByAlias.put(catalog.get(i).tableAlias, codeMaps);
+            }
+        }
+
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append("다음은 정보종류별 조회sql문 json이다. {");
+        for (CatalogEntry entry : catalog) {
+            promptBuilder.append("\"__").append(entry.tableAlias).append("__\": \"select ");
+            promptBuilder.append(String.join(", ", entry.columns(0)));
+            promptBuilder.append(" from ").append(entry.tableName).append(" ").append(entry.tailQuery)
+                    .append("\",\n ");
+        }
+        promptBuilder.append("}\\n\\n");
+        if (!codeMapsByAlias.isEmpty()) {
+            try {
+                promptBuilder.append("다음은 정보종류별 칼럼 허용 값 정보이다. 쿼리 작성시 참고해라: ")
+                        .append(objectMapper.writeValueAsString(codeMapsByAlias)).append("\\n\\n");
+            } catch (JsonProcessingException e) {
+                logger.error("Error converting codeMaps to JSON", e);
+            }
+        }
+        promptBuilder.append("이 json 내용을 참고하여 사용자 문의에 가장 가까운 정보종류를 한 개만 고르고, ")
+                .append("그 정보종류의 sql문을 수정하여 문의에 답변하기 위한 ")
+                .append(dbProductName())
+                .append(" named parameter 없이 DB 명령창 에서 실행할 SQL문을 작성해줘. column alias는 유지해줘.")
+                .append(" {\"alias\": \"정보종류\", \"sql\": \"SQL문\"} 형식의 JSON 만 출력해줘.");
+
+        String system = promptBuilder.toString();
+        String user = "[[" + message + "]] 문의에 대한 정보종류와 SQL문을 JSON 으로 답해줘.";
+        String prompt = system + "\n" + user;
+        int tokens = tokenEstimator.estimate(prompt);
+
+        // 프롬프트 로그 남기기
+        logger.info("===  OneShotPrompt Generated Prompt ===");
+        logger.info("Message: {}", message);
+        logger.info("Estimated tokens: {} / {}", tokens, tokenEstimator.budget());
+        logger.info("Prompt:\n{}", prompt);
+        logger.info("========================");
+
+        result.put("prompt", prompt);
+        result.put("system", system);
+        result.put("user", user);
+        result.put("estimatedTokens", tokens);
 
         return result;
     }
@@ -132,34 +237,54 @@ public class PromptMakerService {
             logger.error("Error converting codeMaps to JSON", e);
         }
 
-        StringBuilder promptBuilder = new StringBuilder();
-        if (!codeMapsJson.equals("{}")) {
-            promptBuilder.append("다음은 칼럼별 허용 값 정보이다. 쿼리 작성시 참고해라: ").append(codeMapsJson).append("\\n\\n");
+        // 기본 쿼리/codeMaps 는 system prefix, 질문은 user suffix
+        String dbProductName = dbProductName();
+        String user = "[[" + message + "]] 문의에 답변하기 위한 SQL문을 작성해줘.";
+        String system = renderQuerySystem(baseQuery, codeMapsJson, dbProductName);
+        String prompt = system + "\n" + user;
+        int tokens = tokenEstimator.estimate(prompt);
+        int budget = tokenEstimator.budget();
+        if (tokens > budget && !codeMapsJson.equals("{}")) {
+            // 예산 초과시 칼럼별 허용 값 정보(codeMaps) 제외
+            logger.warn("QueryPrompt over token budget - tokens: {}, budget: {}, dropping codeMaps", tokens, budget);
+            system = renderQuerySystem(baseQuery, "{}", dbProductName);
+            prompt = system + "\n" + user;
+            tokens = tokenEstimator.estimate(prompt);
         }
-        promptBuilder.append("```sql\\n").append(baseQuery).append(";\\n```\\n 앞의 sql문을 수정하여 [[")
-                // .append(message).append("]] 문의에 답변하기 위한 쿼리문을 작성해줘. 어떤 토큰 문자열(<|...|>)도 출력하지
-                // 말고 작성한 쿼리문만 답해줘.");
-                .append(message).append("]] 문의에 답변하기 위한 ").append(dbProductName())
-                .append(" named parameter 없이 DB 명령창 에서 실행할 SQL문을 작성해줘.")
-                // .append(" 날짜형식은 '" + dateFormat + "'이고 column alias는 유지해줘. 작성한 쿼리문만 출력해줘.");
-                .append(" column alias는 유지해줘. 작성한 쿼리문만 출력해줘.");
-
-        String prompt = promptBuilder.toString();
 
         // 프롬프트 로그 남기기
         logger.info("===  QueryPrompt Generated Prompt ===");
         logger.info("BaseQuery: {}", baseQuery);
         logger.info("Message: {}", message);
+        logger.info("Estimated tokens: {} / {}", tokens, budget);
         logger.info("Prompt:\n{}", prompt);
         logger.info("========================");
 
         // 콘솔 출력
         System.out.println("QueryPrompt Generated Prompt: " + prompt);
         result.put("prompt", prompt);
+        result.put("system", system);
+        result.put("user", user);
+        result.put("estimatedTokens", tokens);
 
         return result;
     }
 
+    private String renderQuerySystem(String baseQuery, String codeMapsJson, String dbProductName) {
+        StringBuilder promptBuilder = new StringBuilder();
+        if (!codeMapsJson.equals("{}")) {
+            promptBuilder.append("다음은 칼럼별 허용 값 정보이다. 쿼리 작성시 참고해라: ").append(codeMapsJson).append("\\n\\n");
+        }
+        promptBuilder.append("```sql\\n").append(baseQuery).append(";\\n```\\n 앞의 sql문을 수정하여 ")
+                // .append(message).append("]] 문의에 답변하기 위한 쿼리문을 작성해줘. 어떤 토큰 문자열(<|...|>)도 출력하지
+                // 말고 작성한 쿼리문만 답해줘.");
+                .append("사용자 문의에 답변하기 위한 ").append(dbProductName)
+                .append(" named parameter 없이 DB 명령창 에서 실행할 SQL문을 작성해줘.")
+                // .append(" 날짜형식은 '" + dateFormat + "'이고 column alias는 유지해줘. 작성한 쿼리문만 출력해줘.");
+                .append(" column alias는 유지해줘. 작성한 쿼리문만 출력해줘.");
+        return promptBuilder.toString();
+    }
+
     private String dbProductName() throws SQLException {
         var conn = dataSource.getConnection();
         String productName = conn.getMetaData().getDatabaseProductName();
@@ -220,4 +345,39 @@ public class PromptMakerService {
 
         return generatedPrompt;
     }
+
+    // 테이블 선택 프롬프트의 정보종류 한 건 (trim 단계별 칼럼 표현)
+    private static final class CatalogEntry {
+        private static final int MAX_TRIM_LEVEL = 3;
+
+        private final String tableAlias;
+        private final String tableName;
+        private final String tailQuery;
+        // 0: 전체 칼럼 식
+        private final List<String> fullColumns = new ArrayList<>();
+        // 1: 서브쿼리 설명 제외
+        private final List<String> trimmedColumns = new ArrayList<>();
+        // 2: 칼럼 alias 만
+        private final List<String> nameColumns = new ArrayList<>();
+
+        private CatalogEntry(String tableAlias, String tableName, String tailQuery) {
+            this.tableAlias = tableAlias;
+            this.tableName = tableName;
+            this.tailQuery = tailQuery;
+        }
+
+        private List<String> columns(int trimLevel) {
+            switch (trimLevel) {
+                case 0:
+                    return fullColumns;
+                case 1:
+                    return trimmedColumns;
+                case 2:
+                    return nameColumns;
+                default:
+                    // 3: 칼럼 없이 정보종류와 테이블만
+                    return List.of("...");
+            }
+        }
+    }
 }
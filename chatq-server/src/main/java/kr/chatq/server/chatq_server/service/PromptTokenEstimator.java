@@ -0,0 +1,158 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.knuddels.jtokkit.api.EncodingType;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 프롬프트 토큰 수 추정 및 컨텍스트 윈도우 예산.
+ * 모델 계열별 tokenizer(JTokkit) 로 추정하며, 예산은 Ollama 는 num-ctx - num-predict,
+ * OpenAI 는 chatq.prompt.openai.max-input-tokens 를 사용한다.
+ */
+@Service
+public class PromptTokenEstimator {
+
+    // 메시지당 role/구분자 오버헤드
+    private static final int TOKENS_PER_MESSAGE = 4;
+
+    @Value("${spring.ai.type:ollama}")
+    private String aiType;
+
+    @Value("${spring.ai.ollama.chat.options.model:}")
+    private String ollamaModel;
+
+    @Value("${spring.ai.openai.chat.options.model:gpt-4o-mini}")
+    private String openAiModel;
+
+    @Value("${spring.ai.ollama.chat.options.num-ctx:8192}")
+    private int numCtx;
+
+    @Value("${spring.ai.ollama.chat.options.num-predict:1024}")
+    private int numPredict;
+
+    @Value("${chatq.prompt.openai.max-input-tokens:100000}")
+    private int openAiMaxInputTokens;
+
+    // tokenizer 가 모델과 다른 계열일 때 (llama, qwen 등) 과소 추정 보정
+    @Value("${chatq.prompt.token-safety-factor:1.1}")
+    private double safetyFactor;
+
+    private final Map<EncodingType, TokenCountEstimator> estimators = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public PromptTokenEstimator(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 현재 설정된 provider/model 기준 토큰 수 추정
+     */
+    public int estimate(String text) {
+        return estimate(aiType, currentModel(), text);
+    }
+
+    public int estimate(String provider, String model, String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        EncodingType encoding = encodingOf(provider, model);
+        int tokens = estimators.computeIfAbsent(encoding, JTokkitTokenCountEstimator::new).estimate(text);
+        if (!isNativeEncoding(provider, model)) {
+            tokens = (int) Math.ceil(tokens * safetyFactor);
+        }
+        return tokens;
+    }
+
+    public int estimate(List<Message> messages) {
+        int tokens = 0;
+        for (Message message : messages) {
+            tokens += estimate(message.getText()) + TOKENS_PER_MESSAGE;
+        }
+        return tokens;
+    }
+
+    /**
+     * 현재 provider 의 입력 프롬프트 토큰 예산
+     */
+    public int budget() {
+        if ("openai".equalsIgnoreCase(aiType)) {
+            return openAiMaxInputTokens;
+        }
+        return Math.max(512, numCtx - Math.max(numPredict, 0));
+    }
+
+    public boolean fits(String text) {
+        return estimate(text) <= budget();
+    }
+
+    /**
+     * 히스토리 + 새 메시지가 예산을 넘으면 오래된 메시지부터 제거 (앞쪽 요약 SystemMessage 는 유지)
+     */
+    public List<Message> fitHistory(List<Message> history, String message) {
+        int available = budget() - estimate(message) - TOKENS_PER_MESSAGE;
+        int tokens = estimate(history);
+        int start = (!history.isEmpty() && history.get(0).getMessageType() == MessageType.SYSTEM) ? 1 : 0;
+        while (tokens > available && history.size() > start) {
+            tokens -= estimate(history.remove(start).getText()) + TOKENS_PER_MESSAGE;
+        }
+        return history;
+    }
+
+    /**
+     * 요청별 추정/실제 프롬프트 토큰 기록
+     */
+    public void record(String provider, String model, int estimated, Integer actual) {
+        summary("estimated", provider, model).record(estimated);
+        if (actual != null && actual > 0) {
+            summary("actual", provider, model).record(actual);
+        }
+    }
+
+    /**
+     * provider 의 prompt cache 에서 재사용된 프롬프트 토큰 기록 (보고하지 않는 provider 는 null)
+     */
+    public void recordCached(String provider, String model, Integer cached) {
+        if (cached != null) {
+            summary("cached", provider, model).record(cached);
+        }
+    }
+
+    private DistributionSummary summary(String kind, String provider, String model) {
+        return DistributionSummary.builder("chatq.llm.prompt.tokens")
+                .tag("kind", kind)
+                .tag("provider", provider)
+                .tag("model", model != null ? model : "")
+                .register(meterRegistry);
+    }
+
+    private String currentModel() {
+        return "openai".equalsIgnoreCase(aiType) ? openAiModel : ollamaModel;
+    }
+
+    // gpt-4o / gpt-5 / o-시리즈 / gpt-oss 는 o200k, 그 외는 cl100k 로 근사
+    private EncodingType encodingOf(String provider, String model) {
+        String m = model != null ? model.toLowerCase() : "";
+        if (m.startsWith("gpt-4o") || m.startsWith("gpt-5") || m.startsWith("gpt-4.1") || m.startsWith("gpt-oss")
+                || m.matches("^o\\d.*")) {
+            return EncodingType.O200K_BASE;
+        }
+        return EncodingType.CL100K_BASE;
+    }
+
+    private boolean isNativeEncoding(String provider, String model) {
+        String m = model != null ? model.toLowerCase() : "";
+        return "openai".equalsIgnoreCase(provider) || m.startsWith("gpt-");
+    }
+}
@@ -0,0 +1,211 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import jakarta.servlet.http.HttpServletResponse;
+import kr.chatq.server.chatq_server.dto.ColumnarData;
+import kr.chatq.server.chatq_server.dto.QueryResponse;
+import kr.chatq.server.chatq_server.dto.RowSet;
+
+/**
+ * 쿼리 결과를 ResultSet 에서 HTTP 응답으로 바로 쓰는 스트림 (JSON 모양은 QueryResponse 와 같음).
+ * 행마다 Map 을 만들지 않고 ResultSetRows 로 읽어 JsonGenerator 로 쓰므로 메모리가 행 수와 무관하다.
+ * headerData 는 중복 제거를 위해 서로 다른 헤더 값만 모아 두었다가 data 다음에 쓰고,
+ * 나머지 필드(message, lastQuery 등)는 executeChatQuery 가 끝난 뒤 finish 에서 쓴다.
+ */
+public class QueryResultStream {
+
+    private final HttpServletResponse httpResponse;
+    private final ObjectMapper objectMapper;
+    // chatqlog 저장용 응답 JSON 사본 (로그를 남기지 않거나 로그용 문자열을 만든 뒤에는 null)
+    private ByteArrayOutputStream capture;
+    // 이미 쓴 필드 (finish 에서 다시 쓰지 않음)
+    private final Set<String> written = new HashSet<>();
+    private JsonGenerator json;
+
+    public QueryResultStream(HttpServletResponse httpResponse, ObjectMapper objectMapper, boolean captureForLog) {
+        this.httpResponse = httpResponse;
+        this.objectMapper = objectMapper;
+        this.capture = captureForLog ? new ByteArrayOutputStream() : null;
+    }
+
+    /**
+     * 응답 쓰기를 시작했는지 (시작 후에는 오류 상태 코드를 보낼 수 없음)
+     */
+    public boolean isStarted() {
+        return json != null;
+    }
+
+    /**
+     * columns, data(또는 columnar), headerColumns, headerData, detailYn 을 쓰고 data 를 뺀 QueryResponse 를 반환.
+     * columnar 면 칼럼별 배열을 만들기 위해 행을 모두 읽은 뒤 한 번에 쓴다. 읽은 행은 collector 에도 넘긴다 (결과 캐시).
+     */
+    QueryResponse write(ResultSet rs, String detailYn, List<String> headerColumnList, boolean columnar,
+            ResultCacheService.Collector collector) throws SQLException {
+        try {
+            ResultSetRows rows = new ResultSetRows(rs, detailYn, headerColumnList);
+            List<String> names = rows.names();
+            collector.start(rows.columns(), names);
+
+            JsonGenerator json = begin();
+            json.writeFieldName("columns");
+            json.writeStartArray();
+            for (String column : rows.columns()) {
+                json.writeString(column);
+            }
+            json.writeEndArray();
+
+            if (columnar) {
+                ColumnarData.Builder builder = new ColumnarData.Builder(names);
+                for (Object[] values = rows.next(); values != null; values = rows.next()) {
+                    builder.addRow(values);
+                    collector.add(values);
+                }
+                json.writeFieldName("columnar");
+                json.writeObject(builder.build());
+            } else {
+                json.writeFieldName("data");
+                json.writeStartArray();
+                for (Object[] values = rows.next(); values != null; values = rows.next()) {
+                    json.writeStartObject();
+                    for (int i = 0; i < values.length; i++) {
+                        json.writeFieldName(names.get(i));
+                        RowSet.writeValue(json, values[i], null);
+                    }
+                    json.writeEndObject();
+                    collector.add(values);
+                }
+                json.writeEndArray();
+            }
+            collector.finish();
+            written.add("columns");
+            written.add("data");
+            written.add("columnar");
+
+            QueryResponse response = new QueryResponse();
+            response.setColumns(rows.columns());
+            if (rows.hasHeader()) {
+                List<String> headerColumns = rows.headerColumns();
+                json.writeFieldName("headerColumns");
+                json.writeStartArray();
+                for (String headerColumn : headerColumns) {
+                    json.writeString(headerColumn);
+                }
+                json.writeEndArray();
+                json.writeFieldName("headerData");
+                json.writeObject(rows.headerData());
+                written.add("headerColumns");
+                written.add("headerData");
+                response.setHeaderColumns(headerColumns);
+            }
+            response.setDetailYn(rows.hasHeader() ? "Y" : "N");
+            return response;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 남은 필드를 쓰고 응답을 마친다.
+     * logWriter 는 chatqlog 에 저장할 응답 (id 를 뺀 JSON) 을 받아 로그 id 를 반환한다 (null 이면 저장하지 않음).
+     */
+    public void finish(QueryResponse response, ToIntFunction<Object> logWriter) throws IOException {
+        JsonGenerator json = begin();
+        ObjectNode fields = objectMapper.valueToTree(response);
+        fields.remove("id");
+        for (Map.Entry<String, JsonNode> field : fields.properties()) {
+            if (!written.contains(field.getKey())) {
+                json.writeFieldName(field.getKey());
+                json.writeTree(field.getValue());
+            }
+        }
+        json.flush();
+
+        if (logWriter != null) {
+            Object logResponse = response;
+            if (capture != null) {
+                // 사본 바이트에서 문자열을 한 번만 만들고 사본 버퍼는 바로 놓아 줌 (이후 쓰는 id 는 로그에 필요 없음)
+                capture.write('}');
+                String logJson = capture.toString(StandardCharsets.UTF_8);
+                capture = null;
+                logResponse = new RawValue(logJson);
+            }
+            int id = logWriter.applyAsInt(logResponse);
+            if (id > 0) {
+                response.setId(id);
+            }
+        }
+        json.writeNumberField("id", response.getId());
+        json.writeEndObject();
+        json.close();
+    }
+
+    private JsonGenerator begin() throws IOException {
+        if (json == null) {
+            httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            httpResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            OutputStream out = httpResponse.getOutputStream();
+            if (capture != null) {
+                out = new TeeOutputStream(out);
+            }
+            json = objectMapper.createGenerator(out, JsonEncoding.UTF8);
+            json.writeStartObject();
+        }
+        return json;
+    }
+
+    // 응답과 capture 에 함께 쓰는 스트림 (capture 가 null 이 되면 응답에만 씀)
+    private final class TeeOutputStream extends OutputStream {
+        private final OutputStream out;
+
+        private TeeOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (capture != null) {
+                capture.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (capture != null) {
+                capture.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package kr.chatq.server.chatq_server.service;
 
 import kr.chatq.server.chatq_server.dto.AuthDto;
+import kr.chatq.server.chatq_server.dto.ColumnarData;
 import kr.chatq.server.chatq_server.dto.LoginResponse;
 import kr.chatq.server.chatq_server.dto.QueryResponse;
+import kr.chatq.server.chatq_server.dto.RowSet;
+import kr.chatq.server.chatq_server.dto.TokenUsage;
 import kr.chatq.server.chatq_server.dto.UserDto;
 import kr.chatq.server.chatq_server.entity.QueryTopic;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
@@ -18,6 +22,7 @@ import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
@@ -25,6 +30,9 @@ import org.springframework.ai.ollama.OllamaChatModel;
 import org.springframework.ai.ollama.api.OllamaOptions;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.openai.api.ResponseFormat;
+import org.springframework.ai.converter.BeanOutputConverter;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
@@ -33,22 +41,21 @@ import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpSession;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.Arrays;
 import java.util.Base64;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.crypto.Cipher;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -63,11 +70,12 @@ public class QueryService {
     private final OllamaChatModel chatModel;
     private final OpenAiChatModel openAiChatModel;
 
-    // 대화 메모리를 저장할 Map (conversationId -> 메시지 리스트)
-    private final Map<String, List<Message>> conversationMemory = new HashMap<>();
-
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
+    // 차트 응답 JSON schema / 변환기 (schema 는 한 번만 생성)
+    private static final BeanOutputConverter<kr.chatq.server.chatq_server.dto.ChartResponse> CHART_OUTPUT = new BeanOutputConverter<>(
+            kr.chatq.server.chatq_server.dto.ChartResponse.class);
+
     // application.properties 의 spring.ai.ollama.chat.options.model 값을 aimodel 변수로
     // 선언
     @Value("${spring.ai.ollama.chat.options.model}")
@@ -116,6 +124,33 @@ public class QueryService {
     @Value("${spring.ai.use-embedding:false}")
     private boolean useEmbedding;
 
+    // 임베딩 검색과 LLM 테이블 선택을 동시에 실행 (임베딩 점수가 threshold 이상이면 LLM 취소)
+    @Value("${chatq.table-pick.speculative.enabled:false}")
+    private boolean speculativeTablePick;
+
+    @Value("${chatq.table-pick.speculative.threshold:0.5}")
+    private double speculativeThreshold;
+
+    // 여러 LLM endpoint 로 분산 (chatq.llm.pool.*)
+    @Value("${chatq.llm.pool.enabled:false}")
+    private boolean llmPoolEnabled;
+
+    // 생성 SQL 파싱 검증/자동 수정
+    @Value("${chatq.sql.validation.enabled:true}")
+    private boolean sqlValidationEnabled;
+
+    // LIMIT 이 없는 SQL 에 추가할 행 수 (post_query 에 LIMIT 이 있으면 추가하지 않음, 0 이면 사용 안함)
+    @Value("${chatq.sql.validation.default-limit:1000}")
+    private long sqlDefaultLimit;
+
+    // one-shot 모드: 테이블 선택과 SQL 작성을 한 번의 LLM 호출로 (회사별 chatqcomp.one_shot_yn 우선)
+    @Value("${chatq.one-shot.enabled:false}")
+    private boolean oneShotEnabled;
+
+    // 카탈로그 프롬프트가 이 토큰 수를 넘으면 2단계로 처리 (회사별 chatqcomp.one_shot_max_tokens 우선)
+    @Value("${chatq.one-shot.max-catalog-tokens:3000}")
+    private int oneShotMaxCatalogTokens;
+
     // Encryption secret for reversible encryption (AES-GCM)
     @Value("${chatq.encrypt.secret:chatq-default-secret-key-32-bytes!!}")
     private String encryptSecret;
@@ -131,6 +166,10 @@ public class QueryService {
     @Value("${chatq.topics.limit:20}")
     private Integer topicsLimit;
 
+    // SSE(/api/chatq/stream) 에서 rows 이벤트 하나에 담는 결과 행 수
+    @Value("${chatq.stream.rows-per-event:500}")
+    private int streamRowsPerEvent;
+
     private static final int GCM_TAG_LENGTH = 128; // bits
     private static final int IV_LENGTH = 12; // bytes
 
@@ -160,6 +199,59 @@ public class QueryService {
     @Autowired
     private ChatqLogService chatqLogService;
 
+    @Autowired
+    private ExactSqlCacheService exactSqlCache;
+
+    @Autowired
+    private LlmRequestCoalescer llmRequestCoalescer;
+
+    // 대화 메모리 (conversationId -> 메시지 리스트)
+    @Autowired
+    private ConversationMemoryService conversationMemory;
+
+    @Autowired
+    private SemanticSqlCacheService semanticSqlCache;
+
+    // 실행한 SQL 의 결과 캐시 (company, level, SQL hash)
+    @Autowired
+    private ResultCacheService resultCache;
+
+    // 결과 커서 (첫 페이지만 응답, 나머지는 /api/results/{handle})
+    @Autowired
+    private ResultCursorService resultCursorService;
+
+    // 마스터-디테일 지연 조회 (헤더 행만 응답, 상세 행은 /api/details/{handle})
+    @Autowired
+    private MasterDetailService masterDetailService;
+
+    @Autowired
+    private PromptTokenEstimator tokenEstimator;
+
+    @Autowired
+    private OllamaWarmPoolManager warmPool;
+
+    @Autowired
+    private ChatQueryMetrics chatQueryMetrics;
+
+    @Autowired
+    private TokenUsageService tokenUsageService;
+
+    @Autowired
+    @Qualifier("chatqExecutor")
+    private ExecutorService chatqExecutor;
+
+    @Autowired
+    private CompanySettingService companySettingService;
+
+    @Autowired
+    private SqlValidator sqlValidator;
+
+    @Autowired
+    private LlmEndpointPool llmEndpointPool;
+
+    @Autowired
+    private LlmHedger llmHedger;
+
     // Spring이 ChatModel (Ollama 또는 기본 ChatModel) 빈을 찾아서 주입
     public QueryService(OllamaChatModel chatModel, OpenAiChatModel openAiChatModel) {
         this.chatModel = chatModel;
@@ -172,6 +264,21 @@ public class QueryService {
     }
 
     public QueryResponse executeQuery(String sql, String detailYn, List<String> headerColumnList) {
+        return executeQuery(sql, detailYn, headerColumnList, null, false);
+    }
+
+    public QueryResponse executeQuery(String sql, String detailYn, List<String> headerColumnList,
+            QueryResultStream resultStream, boolean columnar) {
+        return executeQuery(sql, detailYn, headerColumnList, resultStream, null, columnar);
+    }
+
+    /**
+     * resultStream 이 있으면 결과 행을 응답에 바로 쓰고 data 를 뺀 QueryResponse 를 반환.
+     * columnar 면 data 대신 칼럼 단위 결과(columnar)를 채운다.
+     * rowSink 가 있으면 (SSE) 읽은 행을 streamRowsPerEvent 개씩 rows 이벤트(RowSet)로도 보낸다 (data 는 그대로 채움).
+     */
+    public QueryResponse executeQuery(String sql, String detailYn, List<String> headerColumnList,
+            QueryResultStream resultStream, ChatQueryEventSink rowSink, boolean columnar) {
         if (sql == null) {
             throw new IllegalArgumentException("SQL query cannot be null");
         }
@@ -190,62 +297,77 @@ public class QueryService {
             finalSql = finalSql + postQuery;
         }
 
-        // logging sql
         String currentCompany = CompanyContext.getCompany();
+        int level = getLevel();
+        ResultCacheService.CachedResult cached = resultCache.get(currentCompany, level, finalSql);
+        if (cached != null) {
+            // 같은 SQL 의 보관된 결과 (resultStream 이 있어도 쓰지 않고 응답 전체를 반환 -> 컨트롤러가 일반 응답으로 씀)
+            return cached.toResponse(detailYn, headerColumnList, columnar);
+        }
+        ResultCacheService.Collector collector = resultCache.collector(currentCompany, level, finalSql);
+
+        // logging sql
         logger.info("Executing SQL for company: {} - SQL: {}",
                 (currentCompany != null ? currentCompany : "default(chatq)"), finalSql);
         System.out.println("Executing SQL for company: " + (currentCompany != null ? currentCompany : "default(chatq)")
                 + " - SQL: " + finalSql);
 
-        QueryResponse response = new QueryResponse();
-        return secondaryJdbcTemplate.query(finalSql, (ResultSet rs) -> {
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-
-            // Get column names
-            List<String> columns = new ArrayList<>();
-            for (int i = 1; i <= columnCount; i++) {
-                columns.add(metaData.getColumnLabel(i));
-            }
-            response.setColumns(columns);
-
-            // Get data
-            List<Map<String, Object>> data = new ArrayList<>();
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                for (String column : columns) {
-                    row.put(column, rs.getObject(column));
-                }
-                data.add(row);
-            }
-            response.setData(data);
-            if ("Y".equalsIgnoreCase(detailYn) && headerColumnList != null && !headerColumnList.isEmpty()
-                    && columns.containsAll(headerColumnList)) {
-                // 헤더용 컬럼만 추출
-                List<Map<String, Object>> headerData = new ArrayList<>();
-                for (Map<String, Object> row : data) {
-                    Map<String, Object> headerRow = new HashMap<>();
-                    for (String headerColumn : headerColumnList) {
-                        if (row.containsKey(headerColumn)) {
-                            headerRow.put(headerColumn, row.get(headerColumn));
+        String executedSql = finalSql;
+        if (resultStream != null) {
+            return chatQueryMetrics.time(ChatQueryMetrics.SQL_EXECUTION, () -> secondaryJdbcTemplate.query(
+                    executedSql,
+                    (ResultSet rs) -> resultStream.write(rs, detailYn, headerColumnList, columnar, collector)));
+        }
+        return chatQueryMetrics.time(ChatQueryMetrics.SQL_EXECUTION, () -> {
+            return secondaryJdbcTemplate.query(executedSql, (ResultSet rs) -> {
+                ResultSetRows rows = new ResultSetRows(rs, detailYn, headerColumnList);
+                QueryResponse response = new QueryResponse();
+                response.setColumns(rows.columns());
+                collector.start(rows.columns(), rows.names());
+
+                if (columnar) {
+                    ColumnarData.Builder builder = new ColumnarData.Builder(rows.names());
+                    for (Object[] values = rows.next(); values != null; values = rows.next()) {
+                        builder.addRow(values);
+                        collector.add(values);
+                    }
+                    response.setColumnar(builder.build());
+                } else {
+                    // 행마다 Map 을 만들지 않고 값 배열만 보관
+                    RowSet data = new RowSet(rows.names());
+                    RowSet chunk = rowSink != null ? new RowSet(rows.names()) : null;
+                    for (Object[] values = rows.next(); values != null; values = rows.next()) {
+                        data.addRow(values);
+                        collector.add(values);
+                        if (chunk != null) {
+                            chunk.addRow(values);
+                            if (chunk.size() >= streamRowsPerEvent) {
+                                rowSink.send("rows", chunk);
+                                chunk = new RowSet(rows.names());
+                            }
                         }
                     }
-                    headerData.add(headerRow);
+                    if (chunk != null && chunk.size() > 0) {
+                        rowSink.send("rows", chunk);
+                    }
+                    response.setData(data);
                 }
-                // 헤더 데이터 중복데이터는 제거하되 원래 순서 유지
-                Set<Map<String, Object>> uniqueHeaderData = new LinkedHashSet<>(headerData);
-                response.setHeaderData(new ArrayList<>(uniqueHeaderData));
-                response.setHeaderColumns(headerColumnList);
-                response.setDetailYn("Y");
-            } else {
-                response.setDetailYn("N");
-            }
-            return response;
+                collector.finish();
+                if (rows.hasHeader()) {
+                    // 헤더 데이터 중복데이터는 제거하되 원래 순서 유지
+                    response.setHeaderData(rows.headerData());
+                    response.setHeaderColumns(headerColumnList);
+                    response.setDetailYn("Y");
+                } else {
+                    response.setDetailYn("N");
+                }
+                return response;
+            });
         });
     }
 
     public QueryResponse executeChat(String conversationId, String message) {
-        String ollamaResponse;
+        ResponseScanner.Result ollamaResponse;
         if (message == null) {
             throw new IllegalArgumentException("message cannot be null");
         }
@@ -260,21 +382,66 @@ public class QueryService {
         }
 
         QueryResponse response = new QueryResponse();
-        response.setMessage(ollamaResponse);
+        response.setMessage(ollamaResponse != null ? ollamaResponse.getText() : null);
 
         return response;
     }
 
-    @SuppressWarnings("unchecked")
     public QueryResponse executeChatQuery(String conversationId, String message, String lastDetailYn, String lastQuery,
             String tableQuery, String tableName, String tableAlias, List<String> headerColumns,
             List<String> lastColumns, Map<String, String> codeMaps) throws SQLException {
+        return executeChatQuery(conversationId, message, lastDetailYn, lastQuery, tableQuery, tableName, tableAlias,
+                headerColumns, lastColumns, codeMaps, null);
+    }
+
+    /**
+     * executeChatQuery 스트리밍 버전. sink 가 null 이 아니면 LLM 응답을 토큰 단위로 스트리밍하고
+     * 단계(stage), 실행 SQL(sql), 결과 행(rows, executeQuery 로 읽을 때만) 이벤트를 sink 로 전달한다.
+     */
+    public QueryResponse executeChatQuery(String conversationId, String message, String lastDetailYn, String lastQuery,
+            String tableQuery, String tableName, String tableAlias, List<String> headerColumns,
+            List<String> lastColumns, Map<String, String> codeMaps, ChatQueryEventSink sink) throws SQLException {
+        return executeChatQuery(conversationId, message, lastDetailYn, lastQuery, tableQuery, tableName, tableAlias,
+                headerColumns, lastColumns, codeMaps, sink, null, false);
+    }
+
+    /**
+     * resultStream 이 있으면 SQL 실행 결과를 응답으로 바로 스트리밍한다 (반환값에는 data 가 없음, resultStream.finish 로 마무리).
+     * 결과 커서/마스터-디테일/결과 캐시로 응답하면 resultStream 에 쓰지 않는다 (isStarted() == false, 반환값에 결과 포함).
+     * columnar 면 결과를 data 대신 칼럼 단위(columnar)로 담는다.
+     */
+    public QueryResponse executeChatQuery(String conversationId, String message, String lastDetailYn, String lastQuery,
+            String tableQuery, String tableName, String tableAlias, List<String> headerColumns,
+            List<String> lastColumns, Map<String, String> codeMaps, ChatQueryEventSink sink,
+            QueryResultStream resultStream, boolean columnar) throws SQLException {
+        // 요청 동안의 LLM 토큰 사용량을 모아 응답에 담는다 (chatqlog 저장시 함께 기록)
+        TokenUsage usage = tokenUsageService.begin();
+        try {
+            QueryResponse response = processChatQuery(conversationId, message, lastDetailYn, lastQuery, tableQuery,
+                    tableName, tableAlias, headerColumns, lastColumns, codeMaps, sink, resultStream, columnar);
+            response.setUsage(usage);
+            return response;
+        } finally {
+            tokenUsageService.end();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private QueryResponse processChatQuery(String conversationId, String message, String lastDetailYn,
+            String lastQuery, String tableQuery, String tableName, String tableAlias, List<String> headerColumns,
+            List<String> lastColumns, Map<String, String> codeMaps, ChatQueryEventSink sink,
+            QueryResultStream resultStream, boolean columnar) throws SQLException {
         String ollamaResponse;
         String baseQuery;
         String detailYn = lastDetailYn;
         if (message == null) {
             throw new IllegalArgumentException("message cannot be null");
         }
+        String company = CompanyContext.getCompany();
+        // 질문 임베딩 (테이블 선택과 시멘틱 캐시에서 공유)
+        List<Double> messageVector = null;
+        // one-shot 모드에서 테이블 선택과 함께 받은 SQL
+        String oneShotSql = null;
 
         // 문의에 맞는 테이블을 고르는 프롬프트 생성
         // PromptMakerService is now injected
@@ -286,15 +453,52 @@ public class QueryService {
             baseQuery = decrypt(lastQuery);
             lastQuery = baseQuery;
         } else { // 이전 쿼리가 없으면 테이블 선택 프롬프트 실행
-            Map<String, Object> result = promptMakerService.getPickTablePrompt(getAuth(), message, getLevel());
+            Map<String, Object> result = chatQueryMetrics.time(ChatQueryMetrics.METADATA,
+                    () -> promptMakerService.getPickTablePrompt(getAuth(), message, getLevel()));
             String prompt = (String) result.get("prompt");
             Map<String, String> infos = (Map<String, String>) result.get("infos");
 
+            // 완전일치 캐시: 같은 질문에 대해 이전에 선택된 테이블
+            String pickKey = null;
+            if ((tableAlias == null || tableAlias.isEmpty()) && exactSqlCache.isEnabled(company)) {
+                pickKey = exactSqlCache.key(company, getAuth(), getLevel(), "__pick__", prompt, message);
+                String cachedAlias = exactSqlCache.get(company, pickKey);
+                if (cachedAlias != null && infos.containsKey(cachedAlias)) {
+                    tableAlias = cachedAlias;
+                }
+            }
+
+            if ((tableAlias == null || tableAlias.isEmpty())
+                    && companySettingService.isYes(company, "one_shot_yn", oneShotEnabled)) {
+                Map.Entry<String, String> oneShot = pickTableAndSql(conversationId, result, message, infos, company,
+                        sink);
+                if (oneShot != null) {
+                    tableAlias = oneShot.getKey();
+                    oneShotSql = oneShot.getValue();
+                    if (pickKey != null) {
+                        exactSqlCache.put(pickKey, tableAlias);
+                    }
+                }
+            }
+
+            if ((tableAlias == null || tableAlias.isEmpty()) && useEmbedding && speculativeTablePick) {
+                emit(sink, "stage", stageOf("TABLE_PICKING", null));
+                List<String> infoKeys = new ArrayList<>(infos.keySet());
+                Map.Entry<String, List<Double>> pick = pickTableSpeculative(company, (String) result.get("system"),
+                        (String) result.get("user"), message, infoKeys);
+                tableAlias = pick.getKey();
+                messageVector = pick.getValue();
+                if (pickKey != null && tableAlias != null && infos.containsKey(tableAlias)) {
+                    exactSqlCache.put(pickKey, tableAlias);
+                }
+            }
+
             if (tableAlias == null || tableAlias.isEmpty()) {
                 if (useEmbedding) {
-                    String company = CompanyContext.getCompany();
                     List<String> infoKeys = new ArrayList<>(infos.keySet());
-                    var searchResults = embeddingService.search(company, message, 1, infoKeys);
+                    messageVector = chatQueryMetrics.time(ChatQueryMetrics.EMBEDDING,
+                            () -> embeddingService.embed(message));
+                    var searchResults = embeddingService.searchByVector(company, messageVector, 1, infoKeys);
                     if (searchResults != null && !searchResults.isEmpty()) {
                         tableAlias = searchResults.get(0).getKey();
                         logger.info("Table selected via embedding for company {}: {}", company, tableAlias);
@@ -302,23 +506,25 @@ public class QueryService {
                 }
 
                 if (tableAlias == null || tableAlias.isEmpty()) {
-                    if ("openai".equalsIgnoreCase(aiType)) {
-                        ollamaResponse = (conversationId == null || conversationId.isEmpty()) ? sendChatToOpenAI(prompt)
-                                : sendChatToOpenAI(conversationId, prompt);
-                    } else {
-                        ollamaResponse = (conversationId == null || conversationId.isEmpty()) ? sendChatToOllama(prompt)
-                                : sendChatToOllama(conversationId, prompt);
-                    }
+                    emit(sink, "stage", stageOf("TABLE_PICKING", null));
+                    ResponseScanner.Result picked = chatQueryMetrics.time(ChatQueryMetrics.TABLE_PICK,
+                            () -> sendChat(conversationId, (String) result.get("system"),
+                                    (String) result.get("user"), sink));
+                    ollamaResponse = picked != null ? picked.getText() : null;
 
                     // logging ollamaResponse
                     System.out.println(aiType + " Response: " + ollamaResponse);
                     logger.info("{} Response: {}", aiType, ollamaResponse);
 
                     // 선택된 테이블의 alias 추출 후 기본 쿼리 가져오기
-                    tableAlias = extractBetweenDoubleUnderscores(ollamaResponse);
+                    tableAlias = picked != null ? picked.getAlias() : null;
+                }
+                if (pickKey != null && tableAlias != null && infos.containsKey(tableAlias)) {
+                    exactSqlCache.put(pickKey, tableAlias);
                 }
             }
             baseQuery = infos.get(tableAlias);
+            emit(sink, "stage", stageOf("TABLE_PICKED", tableAlias));
 
             List<Map<String, Object>> tables = (List<Map<String, Object>>) result.get("tables");
             // tables 에서 tab_alias가 tableAlias인 항목 찾기
@@ -343,26 +549,48 @@ public class QueryService {
         // 최종 쿼리 프롬프트 생성
         Map<String, Object> queryPromptResult = promptMakerService.getQueryPrompt(baseQuery, message, codeMaps);
         String queryPrompt = (String) queryPromptResult.get("prompt");
+        String querySystem = (String) queryPromptResult.get("system");
+        String queryUser = (String) queryPromptResult.get("user");
+
+        // 1) 완전일치 캐시 조회 (정규화된 동일 질문)
+        String cachedSql = null;
+        String exactKey = null;
+        if (exactSqlCache.isEnabled(company)) {
+            exactKey = exactSqlCache.key(company, getAuth(), getLevel(), tableAlias, queryPrompt, message);
+            cachedSql = exactSqlCache.get(company, exactKey);
+        }
+        // 완전일치 캐시에서 찾았으면 다시 넣지 않음 (expiresAt 이 늘어나지 않도록)
+        boolean exactHit = cachedSql != null;
+
+        // 2) 시멘틱 캐시 조회 (유사 질문으로 이미 실행에 성공한 SQL).
+        // one-shot 으로 SQL 을 이미 받았으면 LLM 호출을 줄일 수 없으므로 임베딩과 조회를 생략
+        if (cachedSql == null && oneShotSql == null && semanticSqlCache.isEnabled()) {
+            if (messageVector == null) {
+                messageVector = chatQueryMetrics.time(ChatQueryMetrics.EMBEDDING,
+                        () -> embeddingService.embed(message));
+            }
+            cachedSql = semanticSqlCache.lookup(company, tableAlias, baseQuery, messageVector);
+        }
 
         // SQL문 추출
-        String sql = getSqlFromAI(conversationId, queryPrompt);
+        String sql;
+        if (cachedSql != null) {
+            emit(sink, "stage", stageOf("SQL_CACHED", tableAlias));
+            sql = cachedSql;
+        } else if (oneShotSql != null) {
+            sql = oneShotSql;
+        } else {
+            emit(sink, "stage", stageOf("SQL_GENERATING", tableAlias));
+            sql = chatQueryMetrics.time(ChatQueryMetrics.SQL_GENERATION,
+                    () -> getSqlFromAI(conversationId, querySystem, queryUser, sink));
+        }
 
         if (sql != null && !sql.isEmpty()) {
-            sql = sanitizeResponse(sql);
-
-            // 만약 sql에 group by 가 있을 경우 from 앞의 칼럼 항목 수가 baseQuery의 칼럼 항목 수와 일치하면 잘못된 쿼리로 판단
-            // group by 사용하지 말라는 prompt 추가 후 재시도
-            if (sql.toLowerCase().contains("group by")) {
-                String columnsBeforeFrom = sql.substring(0, sql.toLowerCase().indexOf("from")).trim();
-                int columnsCount = columnsBeforeFrom.split(",").length;
-                // baseQuery의 칼럼 항목 수 가져오기
-                String baseQueryColumns = baseQuery.substring(0, baseQuery.toLowerCase().indexOf("from")).trim();
-                int baseQueryColumnsCount = baseQueryColumns.split(",").length;
-                if (columnsCount == baseQueryColumnsCount) {
-                    String prompt = queryPrompt + "\n\n" + "하지만 집계를 사용하지 말라는 조건을 추가해 다시 작성해줘.";
-                    sql = getSqlFromAI(conversationId, prompt);
-                    sql = sanitizeResponse(sql);
-                }
+            // 생성된 SQL 파싱 검증: 사소한 문제는 직접 고치고, 칼럼/GROUP BY 오류가 있을 때만 오류 내용으로 재요청
+            // (캐시된 SQL 은 이미 실행에 성공한 SQL 이므로 제외)
+            if (cachedSql == null && sqlValidationEnabled) {
+                sql = validateSql(conversationId, querySystem, queryUser, sql, baseQuery, lastColumns, tableAlias,
+                        sink);
             }
 
             String sqlOrg = sql;
@@ -370,7 +598,19 @@ public class QueryService {
                 sql = sql.replace(tableName, tableQuery);
             }
 
-            QueryResponse queryResponse = executeQuery(sql, detailYn, headerColumns);
+            emit(sink, "sql", sqlOrg);
+            emit(sink, "stage", stageOf("SQL_EXECUTING", tableAlias));
+            QueryResponse queryResponse = openResult(company, sql, detailYn, headerColumns, resultStream, sink,
+                    columnar);
+            if (exactKey != null && !exactHit) {
+                exactSqlCache.put(exactKey, sqlOrg);
+            }
+            if (cachedSql == null) {
+                semanticSqlCache.put(company, tableAlias, tableName, baseQuery, message, messageVector, sqlOrg);
+            }
+            if (conversationId != null && !conversationId.isEmpty()) {
+                conversationMemory.recordContext(conversationId, tableAlias, sqlOrg);
+            }
             // queryResponse.getColumns() 에 lastColumns 가 포함되면 lastColumns 갱신
             if (lastColumns != null && !lastColumns.isEmpty()) {
                 if (queryResponse.getColumns().containsAll(lastColumns)) {
@@ -400,6 +640,40 @@ public class QueryService {
         return response;
     }
 
+    /**
+     * 만료된 결과 핸들(서버 재시작, TTL)을 응답의 resultQuery 로 다시 연다 (대화 다시 보기 등).
+     * headerColumns 가 있으면 마스터-디테일 결과로 연다. resultQuery 를 풀 수 없으면 IllegalArgumentException
+     */
+    public QueryResponse reopenResult(String resultQuery, List<String> headerColumns, boolean columnar) {
+        String sql = decrypt(resultQuery);
+        if (sql == null || sql.isEmpty()) {
+            throw new IllegalArgumentException("Invalid resultQuery");
+        }
+        String detailYn = headerColumns != null && !headerColumns.isEmpty() ? "Y" : "N";
+        return openResult(CompanyContext.getCompany(), sql, detailYn, headerColumns, null, null, columnar);
+    }
+
+    // 마스터-디테일이면 헤더 행만 먼저 (상세 행은 /api/details/{detailHandle}), 아니면 결과 커서의 첫 페이지,
+    // 둘 다 아니면 executeQuery. 핸들 응답은 max-rows 로 제한되므로 resultStream 에 쓰지 않는다.
+    // 핸들을 주면 만료 뒤 다시 열 수 있게 실행 SQL 을 암호화해 resultQuery 로 준다
+    private QueryResponse openResult(String company, String sql, String detailYn, List<String> headerColumns,
+            QueryResultStream resultStream, ChatQueryEventSink sink, boolean columnar) {
+        QueryResponse queryResponse = masterDetailService.isEnabled() && "Y".equalsIgnoreCase(detailYn)
+                ? masterDetailService.open(company, getUser(), getLevel(), sql, headerColumns, columnar)
+                : null;
+        if (queryResponse == null && resultCursorService.isEnabled()) {
+            queryResponse = resultCursorService.open(company, getUser(), getLevel(), sql, detailYn,
+                    headerColumns, columnar);
+        }
+        if (queryResponse == null) {
+            return executeQuery(sql, detailYn, headerColumns, resultStream, sink, columnar);
+        }
+        if (queryResponse.getResultHandle() != null || queryResponse.getDetailHandle() != null) {
+            queryResponse.setResultQuery(encrypt(sql));
+        }
+        return queryResponse;
+    }
+
     public void initMemDb() {
         String company = CompanyContext.getCompany();
         initMemDb(company);
@@ -408,6 +682,9 @@ public class QueryService {
     @SuppressWarnings("unchecked")
     public void initMemDb(String company) {
         embeddingService.clear(company);
+        exactSqlCache.invalidateCompany(company);
+        semanticSqlCache.invalidateCompany(company);
+        resultCache.invalidateCompany(company);
         try {
             Map<String, Object> result = promptMakerService.getPickTablePrompt("", "initMemDb", 1);
             List<Map<String, Object>> tables = (List<Map<String, Object>>) result.get("tables");
@@ -468,137 +745,404 @@ public class QueryService {
     // }
 
     private String getSqlFromAI(String conversationId, String queryPrompt) {
-        String ollamaResponse;
-        if ("openai".equalsIgnoreCase(aiType)) {
-            ollamaResponse = (conversationId == null || conversationId.isEmpty()) ? sendChatToOpenAI(queryPrompt)
-                    : sendChatToOpenAI(conversationId, queryPrompt);
-        } else {
-            ollamaResponse = (conversationId == null || conversationId.isEmpty()) ? sendChatToOllama(queryPrompt)
-                    : sendChatToOllama(conversationId, queryPrompt);
-        }
+        return getSqlFromAI(conversationId, queryPrompt, null);
+    }
+
+    private String getSqlFromAI(String conversationId, String queryPrompt, ChatQueryEventSink sink) {
+        return getSqlFromAI(conversationId, null, queryPrompt, sink);
+    }
+
+    private String getSqlFromAI(String conversationId, String system, String queryPrompt, ChatQueryEventSink sink) {
+        ResponseScanner.Result scanned = sendChat(conversationId, system, queryPrompt, sink);
+        String ollamaResponse = scanned != null ? scanned.getText() : null;
 
         // logging ollamaResponse
         System.out.println(aiType + " Response: " + ollamaResponse);
         logger.info("{} Response: {}", aiType, ollamaResponse);
 
-        // SQL문 추출
-        String sql = extractSqlFromMarkdown(ollamaResponse);
-        if ((sql == null || sql.isEmpty()) && ollamaResponse.toUpperCase().indexOf("SELECT") >= 0) {
-            // 여러 개의 SQL 추출 시도
-            sql = extractSelectStatement(ollamaResponse);
-        }
-        return sql;
+        // SQL문 추출 (```sql 블록, 없으면 SELECT 문) - 응답을 받을 때 한 번 스캔한 결과 사용
+        return scanned != null ? scanned.getSql() : null;
     }
 
     public String extractBetweenDoubleUnderscores(String text) {
-        if (text == null)
-            return null;
-        Matcher m = Pattern.compile("__([^_]+?)__").matcher(text);
-        // 첫 번째 매칭만
-        if (m.find()) {
-            return m.group(1);
-        }
-        return null;
+        // 첫 번째 __alias__ 만
+        ResponseScanner.Result scanned = ResponseScanner.scan(text);
+        return scanned != null ? scanned.getAlias() : null;
     }
 
     public String extractSqlFromMarkdown(String text) {
-        if (text == null)
-            return null;
-        // ```sql ... ``` 패턴 매칭 (DOTALL 모드: 줄바꿈 포함)
-        Matcher m = Pattern.compile("```sql\\s*([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE).matcher(text);
-        if (m.find()) {
-            return m.group(1).trim();
-        }
-        return null;
+        // ```sql ... ``` 블록 내용
+        ResponseScanner.Result scanned = ResponseScanner.scan(text);
+        return scanned != null ? scanned.getFencedSql() : null;
     }
 
     public String extractSelectStatement(String text) {
-        if (text == null)
+        // SELECT ... ; (';' 없는 경우 SELECT부터 끝까지)
+        ResponseScanner.Result scanned = ResponseScanner.scan(text);
+        return scanned != null ? scanned.getSelectSql() : null;
+    }
+
+    // aiType 에 따라 OpenAI 또는 Ollama 로 분기 (sink 가 있으면 스트리밍). 응답은 한 번 스캔한 결과 (특수 토큰 제거, SQL/alias 위치)
+    private ResponseScanner.Result sendChat(String conversationId, String message, ChatQueryEventSink sink) {
+        return sendChat(conversationId, null, message, sink);
+    }
+
+    // system: 질문과 무관한 고정 prefix (카탈로그/스키마), message: 질문이 들어간 suffix
+    // prefix 를 별도 system 메시지로 앞에 두어 OpenAI prompt caching / Ollama KV cache 를 재사용한다
+    private ResponseScanner.Result sendChat(String conversationId, String system, String message,
+            ChatQueryEventSink sink) {
+        boolean stateless = conversationId == null || conversationId.isEmpty();
+        SystemMessage systemMessage = (system != null && !system.isEmpty()) ? new SystemMessage(system) : null;
+        if ("openai".equalsIgnoreCase(aiType)) {
+            return stateless ? sendChatToOpenAI(systemMessage, message, sink)
+                    : sendChatToOpenAI(conversationId, systemMessage, message, sink);
+        }
+        return stateless ? sendChatToOllama(systemMessage, message, sink)
+                : sendChatToOllama(conversationId, systemMessage, message, sink);
+    }
+
+    private void emit(ChatQueryEventSink sink, String event, Object data) {
+        if (sink != null) {
+            sink.send(event, data);
+        }
+    }
+
+    /**
+     * 생성된 SQL 을 검증하고 자동 수정한 SQL 을 반환한다.
+     * 자동으로 고칠 수 없는 오류는 오류 내용을 붙여 LLM 에 한 번만 다시 요청한다.
+     */
+    private String validateSql(String conversationId, String querySystem, String queryUser, String sql,
+            String baseQuery, List<String> columnNames, String tableAlias, ChatQueryEventSink sink) {
+        boolean outerLimit = postQuery != null && postQuery.toLowerCase().contains("limit");
+        Long defaultLimit = (outerLimit || sqlDefaultLimit <= 0) ? null : sqlDefaultLimit;
+
+        SqlValidator.Result validation = sqlValidator.validate(sql, baseQuery, columnNames, defaultLimit);
+        if (!validation.getRepairs().isEmpty()) {
+            logger.info("SQL repaired locally: {}", validation.getRepairs());
+        }
+        if (validation.isValid()) {
+            return validation.getSql();
+        }
+
+        logger.warn("SQL validation failed, re-prompting: {}", validation.getError());
+        String user = queryUser + "\n\n" + "작성한 SQL문 [" + validation.getSql() + "] 에 오류가 있다: "
+                + validation.getError() + " 오류를 고쳐서 다시 작성해줘.";
+        emit(sink, "stage", stageOf("SQL_RETRY", tableAlias));
+        chatQueryMetrics.countRetry();
+        String retried = chatQueryMetrics.time(ChatQueryMetrics.SQL_RETRY,
+                () -> getSqlFromAI(conversationId, querySystem, user, sink));
+        if (retried == null || retried.isEmpty()) {
+            return validation.getSql();
+        }
+        // 재요청 결과는 자동 수정만 적용 (남은 오류는 DB 실행에서 확인)
+        SqlValidator.Result revalidation = sqlValidator.validate(retried, baseQuery, columnNames, defaultLimit);
+        if (!revalidation.isValid()) {
+            logger.warn("SQL still invalid after retry: {}", revalidation.getError());
+        }
+        return revalidation.getSql();
+    }
+
+    /**
+     * one-shot 모드: 카탈로그 프롬프트로 테이블(alias)과 SQL 을 한 번에 요청한다.
+     * 카탈로그가 토큰 한도를 넘거나 응답을 해석하지 못하면 null (기존 2단계로 처리)
+     */
+    private Map.Entry<String, String> pickTableAndSql(String conversationId, Map<String, Object> pickTableResult,
+            String message, Map<String, String> infos, String company, ChatQueryEventSink sink)
+            throws SQLException {
+        Map<String, Object> oneShotPrompt = promptMakerService.getOneShotPrompt(pickTableResult, message);
+        int tokens = (Integer) oneShotPrompt.get("estimatedTokens");
+        long maxTokens = Math.min(companySettingService.getLong(company, "one_shot_max_tokens",
+                oneShotMaxCatalogTokens), tokenEstimator.budget());
+        if (tokens > maxTokens) {
+            logger.info("One-shot skipped for company {} - catalog tokens {} > {}", company, tokens, maxTokens);
             return null;
-        // SELECT ... ; 패턴 매칭 (대소문자 구분 없음, 줄바꿈 포함)
-        Matcher m = Pattern.compile("(select[\\s\\S]*?;)", Pattern.CASE_INSENSITIVE).matcher(text);
-        if (m.find()) {
-            return m.group(1).trim();
         }
 
-        // ';' 없는 경우 SELECT부터 끝까지 반환
-        int selectIndex = text.toLowerCase().indexOf("select");
-        if (selectIndex != -1) {
-            return text.substring(selectIndex).trim();
+        emit(sink, "stage", stageOf("TABLE_PICKING", null));
+        ResponseScanner.Result response = chatQueryMetrics.time(ChatQueryMetrics.ONE_SHOT,
+                () -> sendChat(conversationId, (String) oneShotPrompt.get("system"),
+                        (String) oneShotPrompt.get("user"), sink));
+        String text = response != null ? response.getText() : null;
+        logger.info("{} One-shot Response: {}", aiType, text);
+
+        Map.Entry<String, String> parsed = parseOneShotResponse(text, infos);
+        if (parsed == null) {
+            logger.warn("One-shot response could not be parsed, falling back to two-step flow");
         }
-        return null;
+        return parsed;
     }
 
-    private String sanitizeResponse(String text) {
-        if (text == null)
+    // {"alias": "...", "sql": "..."} 응답(특수 토큰 제거 후) 해석 (코드 블록이나 앞뒤 설명이 있어도 첫 '{' ~ 마지막 '}' 사용)
+    private Map.Entry<String, String> parseOneShotResponse(String text, Map<String, String> infos) {
+        if (text == null) {
             return null;
-        // 특수 토큰 및 바로 앞 단어 제거 (공백 포함)
-        return text
-                .replaceAll("\\S+\\s*<[\\|｜]begin[▁_]of[▁_]sentence[\\|｜]>", "")
-                .replaceAll("\\S+\\s*<[\\|｜]end[▁_]of[▁_]sentence[\\|｜]>", "")
-                .replaceAll("\\S+\\s*<\\|begin_of_sentence\\|>", "")
-                .replaceAll("\\S+\\s*<\\|end_of_sentence\\|>", "")
-                .trim();
+        }
+        int start = text.indexOf('{');
+        int end = text.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(text.substring(start, end + 1));
+            String alias = node.path("alias").asText(null);
+            String sql = node.path("sql").asText(null);
+            if (alias != null && alias.contains("__")) {
+                alias = extractBetweenDoubleUnderscores(alias);
+            }
+            if (alias == null || !infos.containsKey(alias) || sql == null || sql.isBlank()) {
+                return null;
+            }
+            return new AbstractMap.SimpleEntry<>(alias, sql.trim());
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 임베딩 검색과 LLM 테이블 선택을 가상 스레드에서 동시에 시작한다.
+     * 임베딩 1순위 점수가 threshold 이상이면 그 결과를 쓰고 LLM 결과는 기다리지 않으며, 아니면 LLM 결과를 기다린다.
+     * 임베딩 결과를 쓰면 LLM 선택을 cancel(true) 로 중단한다 (LlmRequestCoalescer 가 같은 호출을 기다리는 다른 요청이
+     * 없을 때만 호출을 취소). LLM 선택의 토큰 사용량은 별도 TokenUsage 에 모았다가 결과를 쓸 때만 요청에 합친다.
+     * LLM 선택은 대화 히스토리 없이 호출한다. (취소된 호출이 대화 내역에 남지 않도록)
+     *
+     * @return tableAlias(없으면 null) 와 질문 임베딩 벡터
+     */
+    private Map.Entry<String, List<Double>> pickTableSpeculative(String company, String system, String user,
+            String message, List<String> infoKeys) {
+        // 요청보다 오래 실행될 수 있으므로 요청의 TokenUsage 에 직접 기록하지 않음
+        TokenUsage usage = tokenUsageService.current();
+        TokenUsage pickUsage = new TokenUsage();
+        Future<String> llmPick = chatqExecutor.submit(() -> {
+            CompanyContext.setCompany(company);
+            tokenUsageService.attach(pickUsage);
+            try {
+                ResponseScanner.Result response = chatQueryMetrics.time(ChatQueryMetrics.TABLE_PICK,
+                        () -> sendChat(null, system, user, null));
+                logger.info("{} Response: {}", aiType, response != null ? response.getText() : null);
+                return response != null ? response.getAlias() : null;
+            } finally {
+                tokenUsageService.end();
+                CompanyContext.clear();
+            }
+        });
+
+        List<Double> vector = null;
+        Map.Entry<String, Double> top = null;
+        try {
+            vector = chatQueryMetrics.time(ChatQueryMetrics.EMBEDDING, () -> embeddingService.embed(message));
+            var searchResults = embeddingService.searchByVector(company, vector, 1, infoKeys);
+            if (searchResults != null && !searchResults.isEmpty()) {
+                top = searchResults.get(0);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Embedding table search failed, waiting for LLM pick: {}", e.getMessage());
+        }
+
+        if (top != null && top.getValue() >= speculativeThreshold) {
+            if (!llmPick.cancel(true)) {
+                // 이미 끝난 호출의 사용량은 요청에 포함
+                addUsage(usage, pickUsage);
+            }
+            logger.info("Table selected via embedding for company {}: {} (score {}), LLM pick cancelled", company,
+                    top.getKey(), top.getValue());
+            return new AbstractMap.SimpleEntry<>(top.getKey(), vector);
+        }
+
+        try {
+            String alias = llmPick.get();
+            addUsage(usage, pickUsage);
+            logger.info("Table selected via LLM for company {}: {} (embedding score {})", company, alias,
+                    top != null ? top.getValue() : null);
+            return new AbstractMap.SimpleEntry<>(alias, vector);
+        } catch (InterruptedException e) {
+            llmPick.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Table selection interrupted", e);
+        } catch (ExecutionException e) {
+            // LLM 실패시 점수가 낮더라도 임베딩 결과 사용
+            if (top != null) {
+                logger.warn("LLM table pick failed, using embedding result {}: {}", top.getKey(),
+                        e.getCause().getMessage());
+                return new AbstractMap.SimpleEntry<>(top.getKey(), vector);
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void addUsage(TokenUsage usage, TokenUsage pickUsage) {
+        if (usage != null) {
+            usage.addAll(pickUsage);
+        }
+    }
+
+    private Map<String, Object> stageOf(String stage, String tableAlias) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("stage", stage);
+        data.put("tableAlias", tableAlias);
+        return data;
+    }
+
+    // 모든 동기 LLM 호출의 단일 진입점 (동일 요청 coalescing)
+    private ChatResponse callChatModel(String provider, ChatModel model, Prompt prompt) {
+        String modelName = "openai".equals(provider) ? openAiModel : aimodel;
+        int estimated = tokenEstimator.estimate(prompt.getInstructions());
+        // 사용량은 응답을 처음 받은 요청 스레드에서만 기록 (coalescing 으로 결과를 공유받은 요청은 비용 없음)
+        ChatResponse response = llmRequestCoalescer.call(provider, modelName, prompt,
+                () -> sendToModel(provider, model, prompt),
+                called -> tokenUsageService.record(provider, modelName, called));
+        recordPromptTokens(provider, estimated, response);
+        return response;
+    }
+
+    // pool 사용시 endpoint 분산 (+ hedge), 아니면 주입된 ChatModel 로 호출
+    private ChatResponse sendToModel(String provider, ChatModel model, Prompt prompt) {
+        if (!llmPoolEnabled) {
+            return model.call(prompt);
+        }
+        if (llmHedger.isEnabled()) {
+            return llmHedger.call(provider, prompt);
+        }
+        return llmEndpointPool.call(provider, prompt);
+    }
+
+    // 추정 토큰과 provider 가 보고한 실제 프롬프트 토큰 기록
+    // OpenAI 는 prefix cache 에서 재사용한 토큰 수(cached_tokens)도 기록. Ollama 는 KV cache 를 재사용하면
+    // prompt_eval_count 자체가 줄어들어 actual 에 반영된다
+    private void recordPromptTokens(String provider, int estimated, ChatResponse response) {
+        String modelName = "openai".equals(provider) ? openAiModel : aimodel;
+        Integer actual = null;
+        Integer cached = null;
+        if (response != null && response.getMetadata() != null && response.getMetadata().getUsage() != null) {
+            actual = response.getMetadata().getUsage().getPromptTokens();
+            if (response.getMetadata().getUsage().getNativeUsage() instanceof OpenAiApi.Usage usage
+                    && usage.promptTokensDetails() != null) {
+                cached = usage.promptTokensDetails().cachedTokens();
+            }
+        }
+        tokenEstimator.record(provider, modelName, estimated, actual);
+        tokenEstimator.recordCached(provider, modelName, cached);
+        logger.info("LLM prompt tokens - provider: {}, model: {}, estimated: {}, actual: {}, cached: {}", provider,
+                modelName, estimated, actual, cached);
+    }
+
+    // ChatModel.stream 으로 응답을 받으면서 토큰 단위로 sink 에 전달하고 전체 응답 텍스트를 반환
+    private String streamChat(String provider, ChatModel model, Prompt prompt, ChatQueryEventSink sink) {
+        StringBuilder text = new StringBuilder();
+        int estimated = tokenEstimator.estimate(prompt.getInstructions());
+        // usage 는 마지막 chunk 에만 담겨 온다
+        ChatResponse[] last = new ChatResponse[1];
+        (llmPoolEnabled ? llmEndpointPool.stream(provider, prompt) : model.stream(prompt))
+                .doOnNext(chunk -> {
+                    last[0] = chunk;
+                    if (chunk.getResult() == null || chunk.getResult().getOutput() == null) {
+                        return;
+                    }
+                    String token = chunk.getResult().getOutput().getText();
+                    if (token != null && !token.isEmpty()) {
+                        text.append(token);
+                        sink.send("token", token);
+                    }
+                })
+                .blockLast();
+        recordPromptTokens(provider, estimated, last[0]);
+        tokenUsageService.record(provider, "openai".equals(provider) ? openAiModel : aimodel, last[0]);
+        return text.toString();
     }
 
     // private 메소드: Ollama에 문자열 보내고 결과 받기
+    private ResponseScanner.Result sendChatToOllama(String message) {
+        return sendChatToOllama(message, (ChatQueryEventSink) null);
+    }
+
+    private ResponseScanner.Result sendChatToOllama(String message, ChatQueryEventSink sink) {
+        return sendChatToOllama((SystemMessage) null, message, sink);
+    }
+
     @SuppressWarnings("null")
-    private String sendChatToOllama(String message) {
-        ChatResponse response;
-        OllamaOptions options = OllamaOptions.builder()
-                .model(aimodel)
-                .temperature(temperature)
-                .numPredict(numPredict)
-                .numCtx(numCtx)
-                .topK(topK)
-                .topP(topP)
-                .build();
+    private ResponseScanner.Result sendChatToOllama(SystemMessage system, String message, ChatQueryEventSink sink) {
+        Prompt prompt;
+        OllamaOptions options = warmPool.chatOptions(aimodel, temperature, numPredict, numCtx, topK, topP);
 
         if ("gpt-oss:20b".equals(aimodel)) {
-            response = chatModel.call(
-                    new Prompt(
-                            List.of(
-                                    // new SystemMessage("""
-                                    // Use reasoning effort = "high".
-                                    // Perform multi-step chain-of-thought internally.
-                                    // """),
-                                    new SystemMessage("""
-                                                {
-                                                    "settings": {
-                                                        "reasoning_effort": "low"
-                                                    }
-                                                }
-                                            """),
-                                    new UserMessage(message))));
+            List<Message> messages = new ArrayList<>();
+            // new SystemMessage("""
+            // Use reasoning effort = "high".
+            // Perform multi-step chain-of-thought internally.
+            // """),
+            messages.add(new SystemMessage("""
+                        {
+                            "settings": {
+                                "reasoning_effort": "low"
+                            }
+                        }
+                    """));
+            if (system != null) {
+                messages.add(system);
+            }
+            messages.add(new UserMessage(message));
+            prompt = new Prompt(messages);
+        } else if (system != null) {
+            prompt = new Prompt(List.of(system, new UserMessage(message)), options);
         } else {
-            response = chatModel.call(new Prompt(message, options));
+            prompt = new Prompt(message, options);
         }
 
+        if (sink != null) {
+            return ResponseScanner.scan(streamChat("ollama", chatModel, prompt, sink));
+        }
+        ChatResponse response = callChatModel("ollama", chatModel, prompt);
         String rawText = response.getResult().getOutput().getText();
 
-        return sanitizeResponse(rawText);
+        return ResponseScanner.scan(rawText);
     }
 
     // private 메소드: OpenAI에 문자열 보내고 결과 받기
-    private String sendChatToOpenAI(String message) {
+    private ResponseScanner.Result sendChatToOpenAI(String message) {
+        return sendChatToOpenAI(message, (ChatQueryEventSink) null);
+    }
+
+    private ResponseScanner.Result sendChatToOpenAI(String message, ChatQueryEventSink sink) {
+        return sendChatToOpenAI((SystemMessage) null, message, sink);
+    }
+
+    private ResponseScanner.Result sendChatToOpenAI(SystemMessage system, String message, ChatQueryEventSink sink) {
         if (openAiApiKey == null || openAiApiKey.isEmpty()) {
             throw new IllegalStateException(
                     "OpenAI API key is not configured. Set spring.ai.openai.api-key in application.properties");
         }
 
+        // 스트리밍이면 마지막 chunk 에 usage 를 받도록 요청 (stream_options.include_usage)
         OpenAiChatOptions options = OpenAiChatOptions.builder()
                 .temperature(1.0)
+                .streamUsage(sink != null)
                 .build();
 
+        Prompt prompt = (system != null) ? new Prompt(List.of(system, new UserMessage(message)), options)
+                : new Prompt(message, options);
         ChatModel model = (openAiChatModel != null) ? openAiChatModel : chatModel;
-        ChatResponse response = model.call(new Prompt(message, options));
+        if (sink != null) {
+            return ResponseScanner.scan(streamChat("openai", model, prompt, sink));
+        }
+        ChatResponse response = callChatModel("openai", model, prompt);
         String rawText = response.getResult().getOutput().getText();
 
-        return sanitizeResponse(rawText);
+        return ResponseScanner.scan(rawText);
     }
 
     // private 메소드: OpenAI에 문자열 보내고 결과 받기 (conversationId를 사용한 메모리 기능 포함)
-    private String sendChatToOpenAI(String conversationId, String message) {
+    private ResponseScanner.Result sendChatToOpenAI(String conversationId, String message) {
+        return sendChatToOpenAI(conversationId, message, null);
+    }
+
+    private ResponseScanner.Result sendChatToOpenAI(String conversationId, String message, ChatQueryEventSink sink) {
+        return sendChatToOpenAI(conversationId, (SystemMessage) null, message, sink);
+    }
+
+    private ResponseScanner.Result sendChatToOpenAI(String conversationId, SystemMessage system, String message,
+            ChatQueryEventSink sink) {
         if (openAiApiKey == null || openAiApiKey.isEmpty()) {
             throw new IllegalStateException(
                     "OpenAI API key is not configured. Set spring.ai.openai.api-key in application.properties");
@@ -608,65 +1152,89 @@ public class QueryService {
             throw new IllegalArgumentException("message cannot be null");
         }
 
-        // 이전 대화 내역 가져오기
-        List<Message> messages = conversationMemory.getOrDefault(conversationId, new ArrayList<>());
-        messages = new ArrayList<>(messages); // 새 리스트 생성 (원본 보호)
+        // 이전 대화 내역 가져오기 (복사본, 컨텍스트 예산을 넘으면 오래된 메시지 제외)
+        // 고정 prefix(system) 는 맨 앞에 두고 히스토리에는 저장하지 않음
+        String current = (system != null) ? system.getText() + "\n" + message : message;
+        List<Message> messages = new ArrayList<>();
+        if (system != null) {
+            messages.add(system);
+        }
+        messages.addAll(tokenEstimator.fitHistory(conversationMemory.getMessages(conversationId), current));
 
         // 현재 사용자 메시지 추가
         UserMessage userMessage = new UserMessage(message);
         messages.add(userMessage);
 
+        // 스트리밍이면 마지막 chunk 에 usage 를 받도록 요청 (stream_options.include_usage)
         OpenAiChatOptions options = OpenAiChatOptions.builder()
                 .temperature(1.0)
+                .streamUsage(sink != null)
                 .build();
 
         // 메시지 히스토리와 함께 Prompt 생성
         ChatModel model = (openAiChatModel != null) ? openAiChatModel : chatModel;
-        ChatResponse response = model.call(new Prompt(messages, options));
-
-        // AI 응답을 메시지 리스트에 추가
-        messages.add(response.getResult().getOutput());
+        String rawText;
+        Message assistantMessage;
+        if (sink != null) {
+            rawText = streamChat("openai", model, new Prompt(messages, options), sink);
+            assistantMessage = new AssistantMessage(rawText);
+        } else {
+            ChatResponse response = callChatModel("openai", model, new Prompt(messages, options));
+            assistantMessage = response.getResult().getOutput();
+            rawText = response.getResult().getOutput().getText();
+        }
 
-        // 업데이트된 대화 내역을 메모리에 저장
-        conversationMemory.put(conversationId, messages);
-        String rawText = response.getResult().getOutput().getText();
+        // 사용자 메시지와 AI 응답을 대화 내역에 추가
+        conversationMemory.append(conversationId, userMessage, assistantMessage);
 
-        return sanitizeResponse(rawText);
+        return ResponseScanner.scan(rawText);
     }
 
     // private 메소드: Ollama에 문자열 보내고 결과 받기 (conversationId를 사용한 메모리 기능 포함)
-    private String sendChatToOllama(String conversationId, String message) {
+    private ResponseScanner.Result sendChatToOllama(String conversationId, String message) {
+        return sendChatToOllama(conversationId, message, null);
+    }
+
+    private ResponseScanner.Result sendChatToOllama(String conversationId, String message, ChatQueryEventSink sink) {
+        return sendChatToOllama(conversationId, (SystemMessage) null, message, sink);
+    }
+
+    private ResponseScanner.Result sendChatToOllama(String conversationId, SystemMessage system, String message,
+            ChatQueryEventSink sink) {
         if (message == null) {
             throw new IllegalArgumentException("message cannot be null");
         }
-        // 이전 대화 내역 가져오기
-        List<Message> messages = conversationMemory.getOrDefault(conversationId, new ArrayList<>());
-        messages = new ArrayList<>(messages); // 새 리스트 생성 (원본 보호)
+        // 이전 대화 내역 가져오기 (복사본, 컨텍스트 예산을 넘으면 오래된 메시지 제외)
+        // 고정 prefix(system) 는 맨 앞에 두고 히스토리에는 저장하지 않음
+        String current = (system != null) ? system.getText() + "\n" + message : message;
+        List<Message> messages = new ArrayList<>();
+        if (system != null) {
+            messages.add(system);
+        }
+        messages.addAll(tokenEstimator.fitHistory(conversationMemory.getMessages(conversationId), current));
 
         // 현재 사용자 메시지 추가
         UserMessage userMessage = new UserMessage(message);
         messages.add(userMessage);
 
-        OllamaOptions options = OllamaOptions.builder()
-                .model(aimodel)
-                .temperature(temperature)
-                .numPredict(numPredict)
-                .numCtx(numCtx)
-                .topK(topK)
-                .topP(topP)
-                .build();
+        OllamaOptions options = warmPool.chatOptions(aimodel, temperature, numPredict, numCtx, topK, topP);
 
         // 메시지 히스토리와 함께 Prompt 생성
-        ChatResponse response = chatModel.call(new Prompt(messages, options));
-
-        // AI 응답을 메시지 리스트에 추가
-        messages.add(response.getResult().getOutput());
+        String rawText;
+        Message assistantMessage;
+        if (sink != null) {
+            rawText = streamChat("ollama", chatModel, new Prompt(messages, options), sink);
+            assistantMessage = new AssistantMessage(rawText);
+        } else {
+            ChatResponse response = callChatModel("ollama", chatModel, new Prompt(messages, options));
+            assistantMessage = response.getResult().getOutput();
+            rawText = response.getResult().getOutput().getText();
+        }
 
-        // 업데이트된 대화 내역을 메모리에 저장
-        conversationMemory.put(conversationId, messages);
-        String rawText = response.getResult().getOutput().getText();
+        // 사용자 메시지와 AI 응답을 대화 내역에 추가
+        conversationMemory.append(conversationId, userMessage, assistantMessage);
 
-        return sanitizeResponse(rawText);
+        return ResponseScanner.scan(rawText);
     }
 
     // private 메소드: session에서 AUTH 값이 있으면 가져오고 없으면 GUEST 반환
@@ -1176,6 +1744,8 @@ public class QueryService {
                 company,
                 tableNm,
                 columnDto.getColumn_cd());
+        exactSqlCache.invalidateCompany(company);
+        semanticSqlCache.invalidateTable(company, tableNm);
     }
 
     /**
@@ -1223,41 +1793,18 @@ public class QueryService {
         String conversationId = request.getConversationId();
 
         // PromptMakerService를 사용하여 차트 프롬프트 생성
-        PromptMakerService promptMakerService = new PromptMakerService(new DbService(jdbcTemplate),
-                secondaryDataSource);
         String queryPrompt = promptMakerService.getChartPrompt(prompt, chartType, columns, data);
 
         try {
-            String aiResponse;
-            if ("openai".equalsIgnoreCase(aiType)) {
-                aiResponse = (conversationId == null || conversationId.isEmpty()) ? sendChatToOpenAI(queryPrompt)
-                        : sendChatToOpenAI(conversationId, queryPrompt);
-            } else {
-                aiResponse = (conversationId == null || conversationId.isEmpty()) ? sendChatToOllama(queryPrompt)
-                        : sendChatToOllama(conversationId, queryPrompt);
-            }
-
-            logger.info("AI Chart Response: {}", aiResponse);
-
-            if (aiResponse == null || aiResponse.isEmpty()) {
+            kr.chatq.server.chatq_server.dto.ChartResponse chartResponse = callStructured(conversationId, queryPrompt,
+                    CHART_OUTPUT);
+            logger.info("AI Chart Response - labels: {}, datasets: {}",
+                    chartResponse != null ? chartResponse.getLabels() : null,
+                    chartResponse != null && chartResponse.getDatasets() != null
+                            ? chartResponse.getDatasets().size() : null);
+            if (chartResponse == null || chartResponse.getLabels() == null || chartResponse.getDatasets() == null) {
                 return createDefaultChartResponse(data, columns, chartType);
             }
-
-            // JSON 파싱하여 ChartResponse 생성
-            aiResponse = aiResponse.trim();
-            if (aiResponse.startsWith("```json")) {
-                aiResponse = aiResponse.substring(7);
-            }
-            if (aiResponse.startsWith("```")) {
-                aiResponse = aiResponse.substring(3);
-            }
-            if (aiResponse.endsWith("```")) {
-                aiResponse = aiResponse.substring(0, aiResponse.length() - 3);
-            }
-            aiResponse = aiResponse.trim();
-
-            // 간단한 JSON 파싱 (실제 환경에서는 Jackson 등의 라이브러리 사용 권장)
-            kr.chatq.server.chatq_server.dto.ChartResponse chartResponse = parseChartJson(aiResponse);
             return chartResponse;
 
         } catch (Exception e) {
@@ -1268,103 +1815,45 @@ public class QueryService {
     }
 
     /**
-     * JSON 문자열을 ChartResponse 객체로 파싱
+     * provider 의 structured output 으로 호출하고 응답을 바로 객체로 변환한다.
+     * OpenAI 는 response_format json_schema, Ollama 는 format 에 BeanOutputConverter 의 JSON schema 를 넣는다.
      */
-    private kr.chatq.server.chatq_server.dto.ChartResponse parseChartJson(String json) {
-        // 실제 프로덕션 환경에서는 Jackson ObjectMapper 사용 권장
-        // 여기서는 간단한 파싱 구현
-        try {
-            json = json.trim();
-            kr.chatq.server.chatq_server.dto.ChartResponse response = new kr.chatq.server.chatq_server.dto.ChartResponse();
-
-            // labels 추출
-            List<String> labels = new ArrayList<>();
-            Pattern labelsPattern = Pattern.compile("\"labels\"\\s*:\\s*\\[([^\\]]+)\\]");
-            Matcher labelsMatcher = labelsPattern.matcher(json);
-            if (labelsMatcher.find()) {
-                String labelsStr = labelsMatcher.group(1);
-                String[] labelArray = labelsStr.split(",");
-                for (String label : labelArray) {
-                    label = label.trim().replaceAll("^\"|\"$", "");
-                    labels.add(label);
-                }
-            }
-            response.setLabels(labels);
-
-            // datasets 추출
-            List<kr.chatq.server.chatq_server.dto.ChartResponse.ChartDataset> datasets = new ArrayList<>();
-            Pattern datasetPattern = Pattern.compile("\\{[^}]*\"label\"[^}]*\\}");
-            Matcher datasetMatcher = datasetPattern.matcher(json);
-
-            while (datasetMatcher.find()) {
-                String datasetJson = datasetMatcher.group();
-                kr.chatq.server.chatq_server.dto.ChartResponse.ChartDataset dataset = new kr.chatq.server.chatq_server.dto.ChartResponse.ChartDataset();
-
-                // label 추출
-                Pattern labelPattern = Pattern.compile("\"label\"\\s*:\\s*\"([^\"]+)\"");
-                Matcher labelMatcher = labelPattern.matcher(datasetJson);
-                if (labelMatcher.find()) {
-                    dataset.setLabel(labelMatcher.group(1));
-                }
-
-                // data 추출
-                Pattern dataPattern = Pattern.compile("\"data\"\\s*:\\s*\\[([^\\]]+)\\]");
-                Matcher dataMatcher = dataPattern.matcher(datasetJson);
-                if (dataMatcher.find()) {
-                    String dataStr = dataMatcher.group(1);
-                    List<Number> dataList = new ArrayList<>();
-                    String[] dataArray = dataStr.split(",");
-                    for (String d : dataArray) {
-                        d = d.trim();
-                        try {
-                            if (d.contains(".")) {
-                                dataList.add(Double.parseDouble(d));
-                            } else {
-                                dataList.add(Integer.parseInt(d));
-                            }
-                        } catch (NumberFormatException e) {
-                            dataList.add(0);
-                        }
-                    }
-                    dataset.setData(dataList);
-                }
-
-                // backgroundColor 추출
-                Pattern bgColorPattern = Pattern.compile("\"backgroundColor\"\\s*:\\s*\"([^\"]+)\"");
-                Matcher bgColorMatcher = bgColorPattern.matcher(datasetJson);
-                if (bgColorMatcher.find()) {
-                    dataset.setBackgroundColor(bgColorMatcher.group(1));
-                } else {
-                    dataset.setBackgroundColor("rgba(53, 162, 235, 0.5)");
-                }
-
-                // borderColor 추출
-                Pattern borderColorPattern = Pattern.compile("\"borderColor\"\\s*:\\s*\"([^\"]+)\"");
-                Matcher borderColorMatcher = borderColorPattern.matcher(datasetJson);
-                if (borderColorMatcher.find()) {
-                    dataset.setBorderColor(borderColorMatcher.group(1));
-                } else {
-                    dataset.setBorderColor("rgb(53, 162, 235)");
-                }
-
-                // borderWidth 추출
-                Pattern borderWidthPattern = Pattern.compile("\"borderWidth\"\\s*:\\s*(\\d+)");
-                Matcher borderWidthMatcher = borderWidthPattern.matcher(datasetJson);
-                if (borderWidthMatcher.find()) {
-                    dataset.setBorderWidth(Integer.parseInt(borderWidthMatcher.group(1)));
-                } else {
-                    dataset.setBorderWidth(1);
-                }
+    private <T> T callStructured(String conversationId, String message, BeanOutputConverter<T> converter) {
+        List<Message> messages = new ArrayList<>();
+        boolean stateful = conversationId != null && !conversationId.isEmpty();
+        if (stateful) {
+            messages.addAll(tokenEstimator.fitHistory(conversationMemory.getMessages(conversationId), message));
+        }
+        UserMessage userMessage = new UserMessage(message);
+        messages.add(userMessage);
 
-                datasets.add(dataset);
+        ChatResponse response;
+        if ("openai".equalsIgnoreCase(aiType)) {
+            if (openAiApiKey == null || openAiApiKey.isEmpty()) {
+                throw new IllegalStateException(
+                        "OpenAI API key is not configured. Set spring.ai.openai.api-key in application.properties");
             }
-            response.setDatasets(datasets);
+            OpenAiChatOptions options = OpenAiChatOptions.builder()
+                    .temperature(1.0)
+                    .responseFormat(new ResponseFormat(ResponseFormat.Type.JSON_SCHEMA, converter.getJsonSchema()))
+                    .build();
+            ChatModel model = (openAiChatModel != null) ? openAiChatModel : chatModel;
+            response = callChatModel("openai", model, new Prompt(messages, options));
+        } else {
+            OllamaOptions options = OllamaOptions.fromOptions(
+                    warmPool.chatOptions(aimodel, temperature, numPredict, numCtx, topK, topP));
+            options.setFormat(converter.getJsonSchemaMap());
+            response = callChatModel("ollama", chatModel, new Prompt(messages, options));
+        }
 
-            return response;
-        } catch (Exception e) {
-            logger.error("JSON 파싱 오류", e);
-            throw new RuntimeException("차트 데이터 파싱 실패", e);
+        if (stateful) {
+            conversationMemory.append(conversationId, userMessage, response.getResult().getOutput());
+        }
+        String text = response.getResult().getOutput().getText();
+        if (text == null || text.isBlank()) {
+            return null;
         }
+        return converter.convert(text);
     }
 
     /**
@@ -0,0 +1,307 @@
+package kr.chatq.server.chatq_server.service;
+
+/**
+ * LLM 응답 후처리를 한 번의 순회로 처리하는 스캐너.
+ * 특수 토큰(<｜end▁of▁sentence｜> 등)과 그 앞 단어를 제거하면서, 같은 순회에서
+ * ```sql 코드 블록, 첫 SELECT 문, 첫 __alias__ 표시의 위치를 찾는다.
+ * 정규식 버전(sanitizeResponse, extractSqlFromMarkdown, extractSelectStatement, extractBetweenDoubleUnderscores)과
+ * 같은 결과를 낸다. (특수 토큰이 여러 개 이어진 경우는 토큰 종류별로 나눠 치환하던 방식이 아닌
+ * 하나의 \S+\s*TOKEN 치환과 같음)
+ */
+public final class ResponseScanner {
+
+    private static final String[] TOKEN_WORDS = { "begin", "end" };
+
+    private ResponseScanner() {
+    }
+
+    /**
+     * 특수 토큰만 제거한 응답 (앞뒤 공백 제거)
+     */
+    public static String sanitize(String text) {
+        if (text == null) {
+            return null;
+        }
+        return scan(text).getText();
+    }
+
+    public static Result scan(String text) {
+        if (text == null) {
+            return null;
+        }
+        Scanner scanner = new Scanner(text.length());
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (isSpace(text.charAt(i))) {
+                scanner.append(text.charAt(i));
+                i++;
+                continue;
+            }
+            int cut = wordWithTokenEnd(text, i);
+            if (cut > 0) {
+                i = cut;
+                continue;
+            }
+            int end = wordEnd(text, i);
+            scanner.append(text, i, end);
+            i = end;
+        }
+        return scanner.result();
+    }
+
+    /**
+     * start 부터 시작하는 단어에 특수 토큰이 붙어 있으면 제거할 구간의 끝, 아니면 -1.
+     * 정규식 \S+\s*TOKEN 의 greedy 매치와 같이 단어 뒤 공백 다음의 토큰을 먼저 보고,
+     * 없으면 단어 안의 마지막 토큰까지 제거한다.
+     */
+    private static int wordWithTokenEnd(String text, int start) {
+        int end = wordEnd(text, start);
+        int next = end;
+        while (next < text.length() && isSpace(text.charAt(next))) {
+            next++;
+        }
+        int tokenLength = specialTokenLength(text, next);
+        if (tokenLength > 0) {
+            return next + tokenLength;
+        }
+        int cut = -1;
+        for (int k = start + 1; k < end; k++) {
+            tokenLength = specialTokenLength(text, k);
+            if (tokenLength > 0) {
+                cut = k + tokenLength;
+            }
+        }
+        return cut;
+    }
+
+    private static int wordEnd(String text, int start) {
+        int end = start;
+        while (end < text.length() && !isSpace(text.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    // <|begin_of_sentence|>, <｜end▁of▁sentence｜> 등 ('|'/'｜', '_'/'▁' 혼용) 길이, 아니면 0
+    private static int specialTokenLength(String text, int start) {
+        if (start >= text.length() || text.charAt(start) != '<') {
+            return 0;
+        }
+        int i = start + 1;
+        if (i >= text.length() || !isBar(text.charAt(i))) {
+            return 0;
+        }
+        i++;
+        int afterWord = -1;
+        for (String word : TOKEN_WORDS) {
+            if (text.startsWith(word, i)) {
+                afterWord = i + word.length();
+                break;
+            }
+        }
+        if (afterWord < 0) {
+            return 0;
+        }
+        i = afterWord;
+        if (i >= text.length() || !isSeparator(text.charAt(i)) || !text.startsWith("of", i + 1)) {
+            return 0;
+        }
+        i += 3;
+        if (i >= text.length() || !isSeparator(text.charAt(i)) || !text.startsWith("sentence", i + 1)) {
+            return 0;
+        }
+        i += 1 + "sentence".length();
+        if (i + 1 >= text.length() || !isBar(text.charAt(i)) || text.charAt(i + 1) != '>') {
+            return 0;
+        }
+        return i + 2 - start;
+    }
+
+    private static boolean isBar(char c) {
+        return c == '|' || c == '｜';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '_' || c == '▁';
+    }
+
+    // 정규식 \s 와 같은 공백 ([ \t\n\x0B\f\r])
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * 스캔 결과. 위치는 모두 특수 토큰을 제거한 텍스트 기준
+     */
+    public static final class Result {
+        private final String text;
+        private final String fencedSql;
+        private final String selectSql;
+        private final String alias;
+
+        private Result(String text, String fencedSql, String selectSql, String alias) {
+            this.text = text;
+            this.fencedSql = fencedSql;
+            this.selectSql = selectSql;
+            this.alias = alias;
+        }
+
+        // 특수 토큰 제거 후 trim 한 응답
+        public String getText() {
+            return text;
+        }
+
+        // ```sql ... ``` 블록 내용 (없으면 null)
+        public String getFencedSql() {
+            return fencedSql;
+        }
+
+        // 첫 SELECT 부터 첫 ';' 까지 (';' 가 없으면 끝까지, SELECT 가 없으면 null)
+        public String getSelectSql() {
+            return selectSql;
+        }
+
+        // 첫 __alias__ 의 alias (없으면 null)
+        public String getAlias() {
+            return alias;
+        }
+
+        /**
+         * 코드 블록 SQL 이 있으면 그것을, 없으면 SELECT 문을 사용
+         */
+        public String getSql() {
+            if ((fencedSql == null || fencedSql.isEmpty()) && selectSql != null) {
+                return selectSql;
+            }
+            return fencedSql;
+        }
+    }
+
+    // 출력 버퍼에 문자를 쌓으면서 코드 블록 / SELECT / alias 를 찾는 상태 기계 (제거 여부는 쌓기 전에 결정)
+    private static final class Scanner {
+        private static final String SQL = "sql";
+        private static final String SELECT = "select";
+
+        private final StringBuilder out;
+
+        // __alias__
+        private int underscores;
+        private int aliasStart = -1;
+        private int aliasFrom = -1;
+        private int aliasTo = -1;
+
+        // ```sql ... ```
+        private int backticks;
+        private int sqlMatched;
+        private int fenceContent = -1;
+        private int fenceEnd = -1;
+
+        // select ... ;
+        private int selectMatched;
+        private int selectStart = -1;
+        private int semicolon = -1;
+
+        private Scanner(int capacity) {
+            this.out = new StringBuilder(capacity);
+        }
+
+        private void append(char c) {
+            out.append(c);
+            feed(out.length() - 1, c);
+        }
+
+        private void append(String text, int from, int to) {
+            for (int i = from; i < to; i++) {
+                append(text.charAt(i));
+            }
+        }
+
+        private void feed(int p, char c) {
+            feedAlias(p, c);
+            feedFence(p, c);
+            feedSelect(p, c);
+        }
+
+        // 정규식 __([^_]+?)__ 의 첫 매치
+        private void feedAlias(int p, char c) {
+            if (aliasFrom >= 0) {
+                return;
+            }
+            if (c == '_') {
+                underscores++;
+                if (underscores == 2 && aliasStart >= 0) {
+                    aliasFrom = aliasStart;
+                    aliasTo = p - 1;
+                }
+                return;
+            }
+            if (underscores >= 2) {
+                aliasStart = p;
+            } else if (underscores == 1) {
+                aliasStart = -1;
+            }
+            underscores = 0;
+        }
+
+        // 정규식 ```sql\s*([\s\S]*?)``` (대소문자 무시) 의 첫 매치
+        private void feedFence(int p, char c) {
+            if (fenceEnd >= 0) {
+                return;
+            }
+            if (c == '`') {
+                backticks++;
+                sqlMatched = 0;
+                if (fenceContent >= 0 && backticks == 3) {
+                    fenceEnd = p - 2;
+                }
+                return;
+            }
+            if (fenceContent < 0) {
+                if (sqlMatched > 0 || backticks >= 3) {
+                    if (Character.toLowerCase(c) == SQL.charAt(sqlMatched) && c < 128) {
+                        sqlMatched++;
+                        if (sqlMatched == SQL.length()) {
+                            fenceContent = p + 1;
+                            sqlMatched = 0;
+                        }
+                    } else {
+                        sqlMatched = 0;
+                    }
+                }
+            }
+            backticks = 0;
+        }
+
+        // 정규식 (select[\s\S]*?;) (대소문자 무시) 의 첫 매치, 없으면 첫 select 위치
+        private void feedSelect(int p, char c) {
+            if (selectStart >= 0) {
+                if (semicolon < 0 && c == ';') {
+                    semicolon = p;
+                }
+                return;
+            }
+            char lower = c < 128 ? Character.toLowerCase(c) : c;
+            if (lower == SELECT.charAt(selectMatched)) {
+                selectMatched++;
+                if (selectMatched == SELECT.length()) {
+                    selectStart = p - SELECT.length() + 1;
+                }
+            } else {
+                selectMatched = lower == 's' ? 1 : 0;
+            }
+        }
+
+        private Result result() {
+            String alias = aliasFrom >= 0 ? out.substring(aliasFrom, aliasTo) : null;
+            String fencedSql = (fenceContent >= 0 && fenceEnd >= 0) ? out.substring(fenceContent, fenceEnd).trim()
+                    : null;
+            String selectSql = null;
+            if (selectStart >= 0) {
+                selectSql = (semicolon >= 0 ? out.substring(selectStart, semicolon + 1) : out.substring(selectStart))
+                        .trim();
+            }
+            return new Result(out.toString().trim(), fencedSql, selectSql, alias);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import kr.chatq.server.chatq_server.dto.ColumnarData;
+import kr.chatq.server.chatq_server.dto.QueryResponse;
+import kr.chatq.server.chatq_server.dto.RowSet;
+
+/**
+ * 실행한 SQL 의 결과 캐시. 재정렬, 차트, 같은 질문 반복 등으로 같은 SQL 을 다시 실행할 때 고객 DB 대신 사용한다.
+ * key: company, level, 실행 SQL hash. 결과는 칼럼 단위(ColumnarData, 반복되는 문자열은 사전 인코딩)로 보관하고
+ * 추정 크기 합계가 max-bytes 를 넘으면 오래 쓰지 않은 것부터(LRU) 제거한다. max-entry-bytes 보다 큰 결과는 보관하지 않음.
+ * TTL 은 회사별 chatqcomp.result_cache_ttl_sec (0 이면 사용 안 함), 없으면 chatq.cache.result.* 설정.
+ */
+@Service
+public class ResultCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultCacheService.class);
+
+    // 캐시를 쓰지 않을 때의 collector (아무것도 보관하지 않음)
+    private static final Collector DISABLED = new Collector(null, null, null, 0);
+
+    @Value("${chatq.cache.result.enabled:false}")
+    private boolean defaultEnabled;
+
+    @Value("${chatq.cache.result.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${chatq.cache.result.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${chatq.cache.result.max-entry-bytes:4194304}")
+    private long maxEntryBytes;
+
+    private final MeterRegistry meterRegistry;
+    private final CompanySettingService companySettingService;
+
+    // access-order LinkedHashMap 으로 LRU 구현 (제거는 크기 합계 기준으로 put 에서)
+    private final LinkedHashMap<String, CachedResult> storage = new LinkedHashMap<>(64, 0.75f, true);
+    // storage 의 추정 크기 합계 (storage 로 동기화)
+    private long bytes;
+
+    public ResultCacheService(MeterRegistry meterRegistry, CompanySettingService companySettingService) {
+        this.meterRegistry = meterRegistry;
+        this.companySettingService = companySettingService;
+        Gauge.builder("chatq.result.cache.bytes", this, ResultCacheService::bytes).register(meterRegistry);
+        Gauge.builder("chatq.result.cache.entries", storage, entries -> {
+            synchronized (entries) {
+                return entries.size();
+            }
+        }).register(meterRegistry);
+    }
+
+    /**
+     * 보관된 결과 (없거나 만료됐거나 회사에서 쓰지 않으면 null)
+     */
+    public CachedResult get(String company, int level, String sql) {
+        if (ttlSeconds(company) <= 0) {
+            return null;
+        }
+        String key = key(company, level, sql);
+        CachedResult entry;
+        synchronized (storage) {
+            entry = storage.get(key);
+            if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+                remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            counter(company, "miss").increment();
+            return null;
+        }
+        counter(company, "hit").increment();
+        logger.info("Result cache hit - company: {}, level: {}, rows: {}, bytes: {}", company, level,
+                entry.data.getRowCount(), entry.bytes);
+        return entry;
+    }
+
+    /**
+     * sql 실행 결과를 모아 보관하는 collector (회사에서 쓰지 않으면 아무것도 하지 않는 collector)
+     */
+    public Collector collector(String company, int level, String sql) {
+        long ttl = ttlSeconds(company);
+        if (ttl <= 0) {
+            return DISABLED;
+        }
+        return new Collector(this, company, key(company, level, sql), System.currentTimeMillis() + ttl * 1000);
+    }
+
+    public void invalidateCompany(String company) {
+        String prefix = companyName(company) + "|";
+        synchronized (storage) {
+            storage.keySet().stream().filter(k -> k.startsWith(prefix)).toList().forEach(this::remove);
+        }
+    }
+
+    private long ttlSeconds(String company) {
+        return companySettingService.getLong(company, "result_cache_ttl_sec", defaultEnabled ? ttlSeconds : 0);
+    }
+
+    private void put(String company, String key, CachedResult entry) {
+        if (entry.bytes > Math.min(maxEntryBytes, maxBytes)) {
+            counter(company, "oversize").increment();
+            return;
+        }
+        synchronized (storage) {
+            remove(key);
+            storage.put(key, entry);
+            bytes += entry.bytes;
+            // 크기 합계가 넘으면 오래 쓰지 않은 것부터 제거
+            Iterator<CachedResult> eldest = storage.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= eldest.next().bytes;
+                eldest.remove();
+            }
+        }
+    }
+
+    // storage 로 동기화한 상태에서 호출
+    private void remove(String key) {
+        CachedResult removed = storage.remove(key);
+        if (removed != null) {
+            bytes -= removed.bytes;
+        }
+    }
+
+    private long bytes() {
+        synchronized (storage) {
+            return bytes;
+        }
+    }
+
+    private static String key(String company, int level, String sql) {
+        return String.join("|", companyName(company), String.valueOf(level), CacheKeys.sha256(sql));
+    }
+
+    private static String companyName(String company) {
+        return company != null ? company : "chatq";
+    }
+
+    private Counter counter(String company, String result) {
+        return Counter.builder("chatq.result.cache")
+                .tag("result", result)
+                .tag("company", companyName(company))
+                .register(meterRegistry);
+    }
+
+    // 값 하나의 대략적인 힙 크기 (참조 포함)
+    static long estimate(Object value) {
+        if (value == null) {
+            return 8;
+        }
+        if (value instanceof String text) {
+            return 48 + 2L * text.length();
+        }
+        if (value instanceof BigDecimal) {
+            return 64;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return 24;
+        }
+        return 40;
+    }
+
+    // 칼럼 단위로 인코딩한 결과의 추정 크기 (사전 칼럼은 사전 + 코드 4바이트)
+    static long estimate(ColumnarData data) {
+        long size = 64;
+        for (ColumnarData.Column column : data.getColumns()) {
+            if (column.getValues() != null) {
+                for (Object value : column.getValues()) {
+                    size += estimate(value);
+                }
+            } else {
+                for (String value : column.getDict()) {
+                    size += estimate(value);
+                }
+                size += 16 + 4L * column.getCodes().length;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 보관된 결과: ResultSet 칼럼 라벨(중복 포함)과 칼럼 단위 값
+     */
+    public static final class CachedResult {
+        private final List<String> columns;
+        private final ColumnarData data;
+        private final long bytes;
+        private final long expiresAt;
+
+        private CachedResult(List<String> columns, ColumnarData data, long bytes, long expiresAt) {
+            this.columns = columns;
+            this.data = data;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public RowSet rows() {
+            return data.toRowSet();
+        }
+
+        /**
+         * executeQuery 와 같은 모양의 응답 (columnar 면 보관한 칼럼 단위 값을 그대로 사용)
+         */
+        public QueryResponse toResponse(String detailYn, List<String> headerColumnList, boolean columnar) {
+            boolean header = ResultSetRows.hasHeader(columns, detailYn, headerColumnList);
+            RowSet rows = !columnar || header ? rows() : null;
+            QueryResponse response = new QueryResponse();
+            response.setColumns(columns);
+            if (columnar) {
+                response.setColumnar(data);
+            } else {
+                response.setData(rows);
+            }
+            if (header) {
+                response.setHeaderData(rows.distinct(headerColumnList));
+                response.setHeaderColumns(headerColumnList);
+                response.setDetailYn("Y");
+            } else {
+                response.setDetailYn("N");
+            }
+            return response;
+        }
+    }
+
+    /**
+     * SQL 결과 행을 읽으면서 칼럼 단위로 모으고 finish 에서 보관한다.
+     * 모은 값의 추정 크기(인코딩 전)가 max-entry-bytes 를 넘으면 모으기를 멈춘다.
+     */
+    public static final class Collector {
+        private final ResultCacheService cache;
+        private final String company;
+        private final String key;
+        private final long expiresAt;
+        private List<String> columns;
+        private ColumnarData.Builder builder;
+        private long rawBytes;
+
+        private Collector(ResultCacheService cache, String company, String key, long expiresAt) {
+            this.cache = cache;
+            this.company = company;
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+
+        // columns: ResultSet 칼럼 라벨 (중복 포함), names: 행 값 배열의 칼럼명
+        public void start(List<String> columns, List<String> names) {
+            if (cache != null) {
+                this.columns = columns;
+                this.builder = new ColumnarData.Builder(names);
+            }
+        }
+
+        public void add(Object[] values) {
+            if (builder == null) {
+                return;
+            }
+            for (Object value : values) {
+                rawBytes += estimate(value);
+            }
+            if (rawBytes > cache.maxEntryBytes) {
+                builder = null;
+                cache.counter(company, "oversize").increment();
+                return;
+            }
+            builder.addRow(values);
+        }
+
+        /**
+         * 결과를 끝까지 읽었을 때 호출 (중간에 멈춘 결과는 보관하지 않음)
+         */
+        public void finish() {
+            if (builder == null) {
+                return;
+            }
+            ColumnarData data = builder.build();
+            builder = null;
+            cache.put(company, key, new CachedResult(columns, data, estimate(data), expiresAt));
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import kr.chatq.server.chatq_server.dto.ColumnarData;
+import kr.chatq.server.chatq_server.dto.QueryResponse;
+import kr.chatq.server.chatq_server.dto.RowSet;
+
+/**
+ * 조회 결과 커서. /api/chatq 결과를 핸들로 등록해 첫 페이지만 응답하고 다음 페이지는 /api/results/{handle}?page= 로 준다.
+ * 앞쪽 retain-rows 행은 메모리(RowSet)에 두고, 그 뒤 페이지는 SQL 을 keyset 조건(이전 페이지 마지막 행 다음)으로 다시 실행한다.
+ * keyset 정렬 키는 SQL 의 ORDER BY 칼럼 + 나머지 결과 칼럼 (전체 순서가 정해지도록) 이며, keyset 조건을 쓸 수 없거나
+ * 이전 페이지를 읽지 않은 채 건너뛰면 같은 정렬 키로 OFFSET 을 쓴다. 정렬 키를 만들 수 없으면 (MariaDB/MySQL 이 아니거나
+ * SQL 을 분석할 수 없음) 다시 읽을 수 없으므로 커서를 열지 않는다 (QueryService.executeQuery 가 post_query 로 제한해 조회).
+ * 엑셀/차트는 /api/results/{handle}/all 로 결과 전체(max-rows 까지)를 읽는다.
+ * 커서는 회사/사용자별이며 최대 건수(LRU)와 TTL(마지막 접근 기준)로 제한한다. pre_query/post_query 대신 max-rows 로 제한.
+ * 만료된 커서는 응답의 resultQuery 로 다시 연다 (QueryService.reopenResult).
+ * SQL 을 LIMIT/OFFSET 으로 감싸므로 회사의 조회 DB 가 LIMIT 문법일 때만 사용한다 (아니면 QueryService.executeQuery).
+ * 결과 전체가 보관 행에 들어가면 결과 캐시(ResultCacheService)에 넣고, 같은 SQL 은 캐시에서 커서를 연다.
+ */
+@Service
+public class ResultCursorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultCursorService.class);
+
+    // keyset 조건을 쓰는 DB (NULL 을 가장 작은 값으로 정렬)
+    private static final Set<String> KEYSET_DIALECTS = Set.of("mariadb", "mysql");
+
+    @Value("${chatq.result.cursor.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chatq.result.cursor.page-size:100}")
+    private int pageSize;
+
+    @Value("${chatq.result.cursor.retain-rows:1000}")
+    private int retainRows;
+
+    @Value("${chatq.result.cursor.max-rows:10000}")
+    private long maxRows;
+
+    @Value("${chatq.result.cursor.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${chatq.result.cursor.max-entries:200}")
+    private int maxEntries;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SqlValidator sqlValidator;
+    private final ChatQueryMetrics chatQueryMetrics;
+    private final MeterRegistry meterRegistry;
+    private final ResultCacheService resultCache;
+
+    // access-order LinkedHashMap 으로 LRU 구현
+    private final LinkedHashMap<String, Cursor> storage = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Cursor> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    public ResultCursorService(@Qualifier("secondaryJdbcTemplate") JdbcTemplate jdbcTemplate,
+            SqlValidator sqlValidator, ChatQueryMetrics chatQueryMetrics, MeterRegistry meterRegistry,
+            ResultCacheService resultCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sqlValidator = sqlValidator;
+        this.chatQueryMetrics = chatQueryMetrics;
+        this.meterRegistry = meterRegistry;
+        this.resultCache = resultCache;
+        Gauge.builder("chatq.result.cursors", storage, cursors -> {
+            synchronized (cursors) {
+                return cursors.size();
+            }
+        }).register(meterRegistry);
+    }
+
+    // 현재 회사(CompanyContext)의 조회 DB 에서 커서를 쓸 수 있는지
+    public boolean isEnabled() {
+        return enabled && sqlValidator.supportsLimit();
+    }
+
+    /**
+     * SQL 을 실행해 첫 페이지를 반환. 결과가 한 페이지를 넘으면 커서를 등록하고 resultHandle, hasMore 를 채운다.
+     * 정렬 키를 만들 수 없으면 null (호출자가 executeQuery 로 조회). level 은 결과 캐시 key 에 쓴다
+     */
+    public QueryResponse open(String company, String user, int level, String sql, String detailYn,
+            List<String> headerColumnList, boolean columnar) {
+        String baseSql = SqlValidator.stripSemicolons(sql);
+        String product = sqlValidator.databaseProduct();
+        SqlValidator.Ordering ordering = product != null && KEYSET_DIALECTS.contains(product)
+                ? sqlValidator.ordering(baseSql)
+                : null;
+        List<String> keys = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        if (ordering != null) {
+            keys.addAll(ordering.getKeys());
+            descending.addAll(ordering.getDescending());
+            for (String label : ordering.getLabels()) {
+                if (!keys.contains(label)) {
+                    keys.add(label);
+                    descending.add(false);
+                }
+            }
+        }
+        if (keys.isEmpty()) {
+            // 순서가 정해지지 않아 뒤 페이지를 다시 읽을 수 없음 (max-rows 까지 보관하면 요청마다 힙이 커짐)
+            return null;
+        }
+        String orderBy = orderBy(keys, descending);
+        // 첫 페이지는 항상 보관 행에서
+        int limit = (int) Math.min(Math.max(retainRows, pageSize), maxRows);
+        String executedSql = "SELECT * FROM (" + baseSql + ") AS subquery" + orderBy + " LIMIT " + (limit + 1);
+
+        Cursor cursor;
+        ResultCacheService.CachedResult cached = resultCache.get(company, level, executedSql);
+        if (cached != null) {
+            // 캐시에는 끝까지 읽은 결과만 있음
+            RowSet retained = cached.rows();
+            List<String> columns = cached.getColumns();
+            cursor = new Cursor(company, user, baseSql, columns,
+                    ResultSetRows.hasHeader(columns, detailYn, headerColumnList) ? headerColumnList : null,
+                    columnar, orderBy, keyIndexes(keys, retained), descending, retained, true);
+        } else {
+            logger.info("Executing SQL for company: {} - SQL: {}", company != null ? company : "default(chatq)",
+                    executedSql);
+            ResultCacheService.Collector collector = resultCache.collector(company, level, executedSql);
+            cursor = chatQueryMetrics.time(ChatQueryMetrics.SQL_EXECUTION,
+                    () -> jdbcTemplate.query(executedSql, (ResultSet rs) -> {
+                        ResultSetRows rows = new ResultSetRows(rs, detailYn, headerColumnList);
+                        RowSet retained = new RowSet(rows.names());
+                        collector.start(rows.columns(), rows.names());
+                        boolean complete = true;
+                        for (Object[] values = rows.next(); values != null; values = rows.next()) {
+                            if (retained.size() == limit) {
+                                complete = false;
+                                break;
+                            }
+                            retained.addRow(values);
+                            collector.add(values);
+                        }
+                        if (complete) {
+                            collector.finish();
+                        }
+                        return new Cursor(company, user, baseSql, rows.columns(),
+                                rows.hasHeader() ? headerColumnList : null, columnar, orderBy,
+                                keyIndexes(keys, retained), descending, retained, complete);
+                    }));
+        }
+
+        if (cursor.complete && cursor.rows.size() <= pageSize) {
+            // 한 페이지에 모두 들어가면 커서를 만들지 않음
+            return response(cursor, cursor.rows, 0, false);
+        }
+        cursor.handle = UUID.randomUUID().toString();
+        cursor.expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+        synchronized (storage) {
+            storage.put(cursor.handle, cursor);
+        }
+        return read(cursor, 0);
+    }
+
+    /**
+     * page(0부터) 번째 페이지. 핸들이 없거나 만료됐거나 다른 회사/사용자의 핸들이면 null
+     */
+    public QueryResponse page(String handle, String company, String user, int page) {
+        Cursor cursor = cursor(handle, company, user);
+        if (cursor == null || page < 0) {
+            return null;
+        }
+        return read(cursor, page);
+    }
+
+    /**
+     * 결과 전체 (엑셀/차트용, max-rows 까지). 보관 행 뒤는 같은 정렬 키로 다시 읽는다. max-rows 를 넘으면 hasMore = true.
+     * 핸들이 없거나 만료됐거나 다른 회사/사용자의 핸들이면 null
+     */
+    public QueryResponse all(String handle, String company, String user) {
+        Cursor cursor = cursor(handle, company, user);
+        if (cursor == null) {
+            return null;
+        }
+        RowSet rows = new RowSet(cursor.rows.getNames());
+        for (int r = 0; r < cursor.rows.size(); r++) {
+            rows.addRow(cursor.rows.getRow(r));
+        }
+        boolean hasMore = false;
+        if (!cursor.complete) {
+            long from = cursor.rows.size();
+            int need = (int) (maxRows - from);
+            Bookmark previous = cursor.keyIndexes != null ? bookmark(cursor, from) : null;
+            List<Object[]> fetched = fetch(cursor, from, need + 1, previous);
+            for (int i = 0; i < Math.min(need, fetched.size()); i++) {
+                rows.addRow(fetched.get(i));
+            }
+            hasMore = fetched.size() > need;
+        }
+        return response(cursor, rows, null, hasMore);
+    }
+
+    // 핸들의 Cursor (없거나 만료됐거나 다른 회사/사용자의 핸들이면 null). 찾으면 TTL 을 연장
+    private Cursor cursor(String handle, String company, String user) {
+        Cursor cursor;
+        synchronized (storage) {
+            cursor = storage.get(handle);
+            if (cursor != null && cursor.expiresAt < System.currentTimeMillis()) {
+                storage.remove(handle);
+                cursor = null;
+            }
+        }
+        if (cursor == null || !Objects.equals(cursor.company, company) || !Objects.equals(cursor.user, user)) {
+            return null;
+        }
+        cursor.expiresAt = System.currentTimeMillis() + ttlSeconds * 1000;
+        return cursor;
+    }
+
+    private QueryResponse read(Cursor cursor, int page) {
+        long start = (long) page * pageSize;
+        long end = Math.min(start + pageSize, maxRows);
+        RowSet rows = new RowSet(cursor.rows.getNames());
+        if (start >= end) {
+            return response(cursor, rows, page, false);
+        }
+
+        int retained = cursor.rows.size();
+        for (long r = start; r < Math.min(end, retained); r++) {
+            rows.addRow(cursor.rows.getRow((int) r));
+        }
+        boolean hasMore;
+        if (cursor.complete || end <= retained) {
+            hasMore = end < maxRows && (!cursor.complete || end < retained);
+            counter(cursor.company, "retained").increment();
+        } else {
+            long from = Math.max(start, retained);
+            int need = (int) (end - from);
+            Bookmark previous = cursor.keyIndexes != null ? bookmark(cursor, from) : null;
+            List<Object[]> fetched = fetch(cursor, from, need + 1, previous);
+            int taken = Math.min(need, fetched.size());
+            for (int i = 0; i < taken; i++) {
+                rows.addRow(fetched.get(i));
+            }
+            if (cursor.keyIndexes != null && taken > 0) {
+                cursor.bookmarks.put(from + taken, next(cursor, fetched.subList(0, taken), previous));
+            }
+            hasMore = fetched.size() > need && end < maxRows;
+        }
+        return response(cursor, rows, page, hasMore);
+    }
+
+    // from 번째 행부터 limit 행을 다시 읽는다 (previous 가 있으면 keyset, 없으면 OFFSET)
+    private List<Object[]> fetch(Cursor cursor, long from, int limit, Bookmark previous) {
+        List<Object> params = new ArrayList<>();
+        String sql;
+        int skip;
+        if (previous != null) {
+            sql = "SELECT * FROM (" + cursor.sql + ") AS subquery WHERE " + keysetPredicate(cursor, previous, params)
+                    + cursor.orderBy + " LIMIT " + (limit + previous.skip);
+            skip = previous.skip;
+            counter(cursor.company, "keyset").increment();
+        } else {
+            sql = "SELECT * FROM (" + cursor.sql + ") AS subquery" + cursor.orderBy + " LIMIT " + limit
+                    + " OFFSET " + from;
+            skip = 0;
+            counter(cursor.company, "offset").increment();
+        }
+        logger.debug("Result cursor page SQL: {}", sql);
+        return chatQueryMetrics.time(ChatQueryMetrics.SQL_EXECUTION, () -> jdbcTemplate.query(sql, (ResultSet rs) -> {
+            ResultSetRows rows = new ResultSetRows(rs, "N", null);
+            List<Object[]> fetched = new ArrayList<>(limit);
+            int skipped = 0;
+            for (Object[] values = rows.next(); values != null; values = rows.next()) {
+                if (skipped < skip) {
+                    // 이전 페이지까지 읽은 같은 값의 행
+                    skipped++;
+                    continue;
+                }
+                fetched.add(values.clone());
+            }
+            return fetched;
+        }, params.toArray()));
+    }
+
+    /**
+     * 정렬 순서상 bookmark 행 뒤(또는 같은 값)의 행 조건.
+     * (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... OR (모든 키가 같음). MariaDB 는 NULL 을 가장 작은 값으로 정렬한다.
+     */
+    private static String keysetPredicate(Cursor cursor, Bookmark bookmark, List<Object> params) {
+        int size = cursor.keyIndexes.length;
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i <= size; i++) {
+            List<String> parts = new ArrayList<>();
+            List<Object> partParams = new ArrayList<>();
+            for (int j = 0; j < i && j < size; j++) {
+                Object value = bookmark.values[j];
+                if (value == null) {
+                    parts.add(cursor.keyNames[j] + " IS NULL");
+                } else {
+                    parts.add(cursor.keyNames[j] + " = ?");
+                    partParams.add(value);
+                }
+            }
+            if (i < size) {
+                Object value = bookmark.values[i];
+                String key = cursor.keyNames[i];
+                if (!cursor.descending[i]) {
+                    parts.add(value == null ? key + " IS NOT NULL" : key + " > ?");
+                } else if (value != null) {
+                    parts.add("(" + key + " < ? OR " + key + " IS NULL)");
+                } else {
+                    // DESC 에서 NULL 뒤에는 더 작은 값이 없음
+                    continue;
+                }
+                if (value != null) {
+                    partParams.add(value);
+                }
+            }
+            terms.add("(" + String.join(" AND ", parts) + ")");
+            params.addAll(partParams);
+        }
+        return "(" + String.join(" OR ", terms) + ")";
+    }
+
+    // from 번째 행 앞까지의 bookmark (보관 행의 끝이면 보관 행에서 계산)
+    private static Bookmark bookmark(Cursor cursor, long from) {
+        if (from == 0) {
+            return null;
+        }
+        if (from == cursor.rows.size()) {
+            return cursor.bookmarks.computeIfAbsent(from, f -> {
+                List<Object[]> retained = new ArrayList<>(cursor.rows.size());
+                for (int r = 0; r < cursor.rows.size(); r++) {
+                    retained.add(cursor.rows.getRow(r));
+                }
+                return next(cursor, retained, null);
+            });
+        }
+        return cursor.bookmarks.get(from);
+    }
+
+    // rows 를 읽은 뒤의 bookmark: 마지막 행의 키 값과, 끝에서 같은 키 값이 이어진 행 수
+    private static Bookmark next(Cursor cursor, List<Object[]> rows, Bookmark previous) {
+        Object[] values = keyValues(cursor, rows.get(rows.size() - 1));
+        int skip = 0;
+        for (int r = rows.size() - 1; r >= 0 && Arrays.equals(keyValues(cursor, rows.get(r)), values); r--) {
+            skip++;
+        }
+        if (skip == rows.size() && previous != null && Arrays.equals(previous.values, values)) {
+            skip += previous.skip;
+        }
+        return new Bookmark(values, skip);
+    }
+
+    private static Object[] keyValues(Cursor cursor, Object[] row) {
+        Object[] values = new Object[cursor.keyIndexes.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row[cursor.keyIndexes[i]];
+        }
+        return values;
+    }
+
+    // 정렬 키의 결과 칼럼 위치 (찾지 못하면 null -> OFFSET 사용)
+    private static int[] keyIndexes(List<String> keys, RowSet rows) {
+        if (keys.isEmpty()) {
+            return null;
+        }
+        int[] indexes = new int[keys.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = -1;
+            for (int c = 0; c < rows.getNames().size(); c++) {
+                if (rows.getNames().get(c).equalsIgnoreCase(keys.get(i))) {
+                    indexes[i] = c;
+                    break;
+                }
+            }
+            if (indexes[i] < 0) {
+                return null;
+            }
+        }
+        return indexes;
+    }
+
+    private static String orderBy(List<String> keys, List<Boolean> descending) {
+        if (keys.isEmpty()) {
+            return "";
+        }
+        List<String> items = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            items.add(quote(keys.get(i)) + (descending.get(i) ? " DESC" : ""));
+        }
+        return " ORDER BY " + String.join(", ", items);
+    }
+
+    private static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+
+    // page 가 null 이면 결과 전체 (핸들/페이지 없이 hasMore 만)
+    private QueryResponse response(Cursor cursor, RowSet rows, Integer page, boolean hasMore) {
+        QueryResponse response = new QueryResponse();
+        response.setColumns(cursor.columns);
+        if (cursor.columnar) {
+            ColumnarData.Builder builder = new ColumnarData.Builder(rows.getNames());
+            for (int r = 0; r < rows.size(); r++) {
+                builder.addRow(rows.getRow(r));
+            }
+            response.setColumnar(builder.build());
+        } else {
+            response.setData(rows);
+        }
+        if (cursor.headerColumns != null) {
+            // 헤더 데이터는 이 페이지 행 기준 (중복 제거)
+            response.setHeaderColumns(cursor.headerColumns);
+            response.setHeaderData(rows.distinct(cursor.headerColumns));
+            response.setDetailYn("Y");
+        } else {
+            response.setDetailYn("N");
+        }
+        if (page == null) {
+            response.setHasMore(hasMore);
+        } else if (cursor.handle != null) {
+            response.setResultHandle(cursor.handle);
+            response.setPage(page);
+            response.setPageSize(pageSize);
+            response.setHasMore(hasMore);
+        }
+        return response;
+    }
+
+    private Counter counter(String company, String source) {
+        return Counter.builder("chatq.result.page")
+                .tag("source", source)
+                .tag("company", company != null ? company : "chatq")
+                .register(meterRegistry);
+    }
+
+    private static final class Cursor {
+        private final String company;
+        private final String user;
+        private final String sql;
+        private final List<String> columns;
+        private final List<String> headerColumns;
+        private final boolean columnar;
+        private final String orderBy;
+        private final String[] keyNames;
+        private final boolean[] descending;
+        // 정렬 키의 칼럼 위치 (null 이면 keyset 을 쓰지 않음)
+        private final int[] keyIndexes;
+        // 앞에서부터 보관한 행
+        private final RowSet rows;
+        // 결과 전체가 rows 에 있음
+        private final boolean complete;
+        // 읽은 행 수 -> 마지막 행의 bookmark (다음 페이지 keyset 조건)
+        private final Map<Long, Bookmark> bookmarks = new ConcurrentHashMap<>();
+        private String handle;
+        private volatile long expiresAt;
+
+        private Cursor(String company, String user, String sql, List<String> columns, List<String> headerColumns,
+                boolean columnar, String orderBy, int[] keyIndexes, List<Boolean> descending, RowSet rows,
+                boolean complete) {
+            this.company = company;
+            this.user = user;
+            this.sql = sql;
+            this.columns = columns;
+            this.headerColumns = headerColumns;
+            this.columnar = columnar;
+            this.orderBy = orderBy;
+            this.keyIndexes = keyIndexes;
+            this.rows = rows;
+            this.complete = complete;
+            int keys = keyIndexes != null ? keyIndexes.length : 0;
+            this.keyNames = new String[keys];
+            this.descending = new boolean[keys];
+            for (int i = 0; i < keys; i++) {
+                keyNames[i] = quote(rows.getNames().get(keyIndexes[i]));
+                this.descending[i] = descending.get(i);
+            }
+        }
+    }
+
+    private static final class Bookmark {
+        private final Object[] values;
+        private final int skip;
+
+        private Bookmark(Object[] values, int skip) {
+            this.values = values;
+            this.skip = skip;
+        }
+    }
+}
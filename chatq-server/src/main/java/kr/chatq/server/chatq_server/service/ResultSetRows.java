@@ -0,0 +1,110 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import kr.chatq.server.chatq_server.dto.RowSet;
+
+/**
+ * 조회 결과 ResultSet 을 칼럼 인덱스로 읽는 도우미 (executeQuery, QueryResultStream 공용).
+ * 같은 이름의 칼럼은 첫 번째 값만 사용하고, 상세 조회(detailYn = Y)면 헤더 칼럼 값 조합을 중복 없이(원래 순서) 모은다.
+ */
+public final class ResultSetRows {
+
+    private final ResultSet rs;
+    private final List<String> columns;
+    private final List<String> names;
+    private final int[] indexes;
+    private final List<String> headerColumns;
+    private final int[] headerPositions;
+    private final Set<List<Object>> headerRows = new LinkedHashSet<>();
+    private final Object[] values;
+
+    public ResultSetRows(ResultSet rs, String detailYn, List<String> headerColumnList) throws SQLException {
+        this.rs = rs;
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        columns = new ArrayList<>(columnCount);
+        Map<String, Integer> columnIndexes = new LinkedHashMap<>();
+        for (int i = 1; i <= columnCount; i++) {
+            String column = metaData.getColumnLabel(i);
+            columns.add(column);
+            columnIndexes.putIfAbsent(column, i);
+        }
+        names = new ArrayList<>(columnIndexes.keySet());
+        indexes = columnIndexes.values().stream().mapToInt(Integer::intValue).toArray();
+        values = new Object[names.size()];
+
+        boolean header = hasHeader(columns, detailYn, headerColumnList);
+        headerColumns = header ? headerColumnList : null;
+        headerPositions = new int[header ? headerColumnList.size() : 0];
+        for (int h = 0; h < headerPositions.length; h++) {
+            headerPositions[h] = names.indexOf(headerColumnList.get(h));
+        }
+    }
+
+    // 상세 조회이고 결과에 헤더 칼럼이 모두 있으면 헤더/상세로 나눈다
+    static boolean hasHeader(List<String> columns, String detailYn, List<String> headerColumnList) {
+        return "Y".equalsIgnoreCase(detailYn) && headerColumnList != null && !headerColumnList.isEmpty()
+                && columns.containsAll(headerColumnList);
+    }
+
+    // ResultSet 의 칼럼 라벨 (중복 포함)
+    public List<String> columns() {
+        return columns;
+    }
+
+    // 행 값 배열의 칼럼명 (중복 제거)
+    public List<String> names() {
+        return names;
+    }
+
+    public boolean hasHeader() {
+        return headerColumns != null;
+    }
+
+    public List<String> headerColumns() {
+        return headerColumns;
+    }
+
+    /**
+     * 다음 행을 names 순서의 값 배열로 읽는다 (배열은 재사용, 끝이면 null)
+     */
+    public Object[] next() throws SQLException {
+        if (!rs.next()) {
+            return null;
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rs.getObject(indexes[i]);
+        }
+        if (headerColumns != null) {
+            List<Object> headerRow = new ArrayList<>(headerPositions.length);
+            for (int position : headerPositions) {
+                headerRow.add(values[position]);
+            }
+            headerRows.add(headerRow);
+        }
+        return values;
+    }
+
+    // 지금까지 읽은 행의 헤더 값 조합 (headerColumns 순서)
+    public Set<List<Object>> headerRows() {
+        return headerRows;
+    }
+
+    // 헤더 칼럼만의 행 목록 (중복 제거)
+    public RowSet headerData() {
+        RowSet headerData = new RowSet(headerColumns);
+        for (List<Object> headerRow : headerRows) {
+            headerData.addRow(headerRow.toArray());
+        }
+        return headerData;
+    }
+}
@@ -0,0 +1,169 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 질문 임베딩 기반 SQL 시멘틱 캐시 (company + tableAlias 단위).
+ * 성공적으로 실행된 SQL만 저장하며, 같은 baseQuery 에 대해 코사인 유사도가 threshold 이상인 질문이 오면
+ * LLM 호출 없이 이전 SQL을 재사용한다.
+ * baseQuery 는 chatqtable/chatqcolumn 메타데이터로 만들어지므로 메타데이터가 바뀌면 fingerprint 가 달라져 자동으로 무효화된다.
+ */
+@Service
+public class SemanticSqlCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemanticSqlCacheService.class);
+
+    @Value("${chatq.cache.semantic.enabled:false}")
+    private boolean enabled;
+
+    @Value("${chatq.cache.semantic.threshold:0.93}")
+    private double threshold;
+
+    // (company, tableAlias) 당 최대 저장 건수
+    @Value("${chatq.cache.semantic.max-entries:200}")
+    private int maxEntries;
+
+    private final MeterRegistry meterRegistry;
+
+    // key: company|tableAlias
+    private final Map<String, Deque<CacheEntry>> storage = new ConcurrentHashMap<>();
+
+    public SemanticSqlCacheService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 유사한 질문으로 생성/실행된 SQL 조회
+     *
+     * @return 캐시된 SQL (없으면 null)
+     */
+    public String lookup(String company, String tableAlias, String baseQuery, List<Double> vector) {
+        if (!enabled || tableAlias == null || baseQuery == null || vector == null) {
+            return null;
+        }
+        String fingerprint = CacheKeys.sha256(baseQuery);
+        Deque<CacheEntry> entries = storage.get(key(company, tableAlias));
+
+        CacheEntry best = null;
+        double bestScore = -1;
+        if (entries != null) {
+            synchronized (entries) {
+                for (CacheEntry entry : entries) {
+                    if (!entry.fingerprint.equals(fingerprint)) {
+                        continue;
+                    }
+                    double score = EmbeddingService.cosineSimilarity(vector, entry.vector);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = entry;
+                    }
+                }
+            }
+        }
+
+        if (best != null && bestScore >= threshold) {
+            counter(company, "hit").increment();
+            logger.info("Semantic SQL cache hit - company: {}, tableAlias: {}, score: {}, cached message: {}",
+                    company, tableAlias, bestScore, best.message);
+            return best.sql;
+        }
+        counter(company, "miss").increment();
+        return null;
+    }
+
+    /**
+     * 실행에 성공한 SQL 저장
+     */
+    public void put(String company, String tableAlias, String tableName, String baseQuery, String message,
+            List<Double> vector, String sql) {
+        if (!enabled || tableAlias == null || baseQuery == null || vector == null || sql == null || sql.isEmpty()) {
+            return;
+        }
+        Deque<CacheEntry> entries = storage.computeIfAbsent(key(company, tableAlias), k -> new ArrayDeque<>());
+        synchronized (entries) {
+            entries.addFirst(new CacheEntry(tableName, CacheKeys.sha256(baseQuery), message, vector, sql));
+            while (entries.size() > maxEntries) {
+                entries.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 테이블 메타데이터(chatqtable/chatqcolumn) 변경 시 해당 테이블의 캐시 제거
+     */
+    public void invalidateTable(String company, String tableName) {
+        if (tableName == null) {
+            return;
+        }
+        String prefix = company + "|";
+        for (Map.Entry<String, Deque<CacheEntry>> e : storage.entrySet()) {
+            if (!e.getKey().startsWith(prefix)) {
+                continue;
+            }
+            Deque<CacheEntry> entries = e.getValue();
+            synchronized (entries) {
+                Iterator<CacheEntry> it = entries.iterator();
+                while (it.hasNext()) {
+                    if (tableName.equals(it.next().tableName)) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+        logger.info("Semantic SQL cache invalidated - company: {}, table: {}", company, tableName);
+    }
+
+    /**
+     * 회사 단위 캐시 전체 제거 (메타데이터 재적재 시)
+     */
+    public void invalidateCompany(String company) {
+        String prefix = company + "|";
+        storage.keySet().removeIf(k -> k.startsWith(prefix));
+        logger.info("Semantic SQL cache invalidated - company: {}", company);
+    }
+
+    private String key(String company, String tableAlias) {
+        return company + "|" + tableAlias;
+    }
+
+    private Counter counter(String company, String result) {
+        return Counter.builder("chatq.sql.cache")
+                .tag("tier", "semantic")
+                .tag("result", result)
+                .tag("company", company != null ? company : "chatq")
+                .register(meterRegistry);
+    }
+
+    private static final class CacheEntry {
+        private final String tableName;
+        private final String fingerprint;
+        private final String message;
+        private final List<Double> vector;
+        private final String sql;
+
+        private CacheEntry(String tableName, String fingerprint, String message, List<Double> vector, String sql) {
+            this.tableName = tableName;
+            this.fingerprint = fingerprint;
+            this.message = message;
+            this.vector = vector;
+            this.sql = sql;
+        }
+    }
+}
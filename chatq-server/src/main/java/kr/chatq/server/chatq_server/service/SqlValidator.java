@@ -0,0 +1,483 @@
+package kr.chatq.server.chatq_server.service;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import kr.chatq.server.chatq_server.config.CompanyContext;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.ExpressionVisitorAdapter;
+import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.Distinct;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.SelectItem;
+
+/**
+ * LLM 이 생성한 SQL 을 파싱하여 검증하고 사소한 문제는 직접 고친다.
+ * - 끝 세미콜론 제거, 따옴표 alias 를 DB 의 식별자 quote(MariaDB/MySQL 은 backtick, 그 외 큰따옴표)로,
+ *   ORDER/GROUP BY 의 문자열 alias 를 칼럼으로, LIMIT 추가
+ * - 집계 함수 없이 SELECT 칼럼 전체로 GROUP BY 한 경우 DISTINCT 로 변경
+ * - 선택된 테이블에 없는 칼럼, GROUP BY 에 없는 칼럼 조회는 오류 메시지로 반환 (LLM 재요청용)
+ * 파싱할 수 없는 SQL (DB 고유 문법 등) 은 세미콜론만 정리하고 그대로 둔다.
+ */
+@Service
+public class SqlValidator {
+    private static final Logger logger = LoggerFactory.getLogger(SqlValidator.class);
+
+    private static final Set<String> AGGREGATES = Set.of("count", "sum", "avg", "min", "max", "group_concat",
+            "std", "stddev", "stddev_pop", "stddev_samp", "variance", "var_pop", "var_samp", "bit_and", "bit_or",
+            "bit_xor", "json_arrayagg", "json_objectagg", "string_agg", "listagg");
+
+    // 파서가 Column 으로 읽는 예약어
+    private static final Set<String> KEYWORDS = Set.of("true", "false", "null", "current_date", "current_time",
+            "current_timestamp", "localtime", "localtimestamp", "sysdate");
+
+    // LIMIT 문법을 쓰는 DB
+    private static final Set<String> LIMIT_DIALECTS = Set.of("mariadb", "mysql", "postgresql", "h2", "sqlite");
+
+    // 식별자를 backtick 으로 감싸는 DB (그 외는 표준 큰따옴표)
+    private static final Set<String> BACKTICK_DIALECTS = Set.of("mariadb", "mysql");
+
+    private final DataSource dataSource;
+    // company -> 조회 DB 제품명 (secondaryDataSource 는 회사별로 다른 DB 로 연결됨)
+    private final Map<String, String> dbProductNames = new ConcurrentHashMap<>();
+
+    public SqlValidator(@Qualifier("secondaryDataSource") DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @param sql          LLM 이 생성한 SQL
+     * @param baseQuery    선택된 테이블의 기본 쿼리 (사용 가능한 칼럼의 기준)
+     * @param columnNames  선택된 테이블의 칼럼명 (columnNmList)
+     * @param defaultLimit LIMIT 이 없을 때 추가할 행 수 (null 이면 추가하지 않음)
+     */
+    public Result validate(String sql, String baseQuery, List<String> columnNames, Long defaultLimit) {
+        Result result = new Result();
+        String text = stripSemicolons(sql);
+        if (!text.equals(sql.trim())) {
+            result.repairs.add("trailing semicolon");
+        }
+        result.sql = text;
+
+        PlainSelect select = parseSelect(text);
+        if (select == null) {
+            return result;
+        }
+
+        Set<String> allowed = allowedColumns(baseQuery, columnNames);
+        Set<String> selectAliases = new LinkedHashSet<>();
+        boolean changed = false;
+
+        // SELECT 항목의 따옴표 alias: MariaDB/MySQL 은 "이름", '이름' -> `이름`, 그 외는 '이름' -> "이름"
+        char quote = identifierQuote();
+        for (SelectItem<?> item : select.getSelectItems()) {
+            Alias alias = item.getAlias();
+            if (alias == null) {
+                continue;
+            }
+            String name = unquote(alias.getName());
+            selectAliases.add(name.toLowerCase(Locale.ROOT));
+            char first = alias.getName().charAt(0);
+            if ((first == '"' || first == '\'') && first != quote) {
+                item.setAlias(new Alias(quoteIdentifier(name), alias.isUseAs()));
+                result.repairs.add("alias quoting: " + alias.getName());
+                changed = true;
+            }
+        }
+
+        // ORDER BY / GROUP BY 의 문자열 리터럴 alias -> 칼럼
+        if (select.getOrderByElements() != null) {
+            for (OrderByElement element : select.getOrderByElements()) {
+                Expression fixed = literalToColumn(element.getExpression(), allowed, selectAliases);
+                if (fixed != null) {
+                    result.repairs.add("order by alias: " + element.getExpression());
+                    element.setExpression(fixed);
+                    changed = true;
+                }
+            }
+        }
+        List<Expression> groupBy = groupByExpressions(select);
+        for (int i = 0; i < groupBy.size(); i++) {
+            Expression fixed = literalToColumn(groupBy.get(i), allowed, selectAliases);
+            if (fixed != null) {
+                result.repairs.add("group by alias: " + groupBy.get(i));
+                groupBy.set(i, fixed);
+                changed = true;
+            }
+        }
+
+        // 집계 함수 없이 SELECT 칼럼 전체로 GROUP BY -> DISTINCT 와 같음
+        boolean aggregated = hasAggregate(select);
+        List<String> ungrouped = ungroupedColumns(select, groupBy);
+        if (!groupBy.isEmpty() && !aggregated && ungrouped.isEmpty() && select.getHaving() == null) {
+            select.setGroupByElement(null);
+            select.setDistinct(new Distinct());
+            result.repairs.add("group by without aggregate -> distinct");
+            groupBy = new ArrayList<>();
+            changed = true;
+        }
+
+        if (defaultLimit != null && defaultLimit > 0 && select.getLimit() == null && select.getFetch() == null
+                && supportsLimit()) {
+            Limit limit = new Limit();
+            limit.setRowCount(new LongValue(defaultLimit));
+            select.setLimit(limit);
+            result.repairs.add("limit " + defaultLimit);
+            changed = true;
+        }
+
+        if (changed) {
+            result.sql = select.toString();
+        }
+
+        // 검증: 없는 칼럼
+        if (!allowed.isEmpty()) {
+            Set<String> unknown = new LinkedHashSet<>();
+            for (Column column : referencedColumns(select)) {
+                String name = unquote(column.getColumnName()).toLowerCase(Locale.ROOT);
+                if (!allowed.contains(name) && !selectAliases.contains(name) && !KEYWORDS.contains(name)) {
+                    unknown.add(unquote(column.getColumnName()));
+                }
+            }
+            if (!unknown.isEmpty()) {
+                result.error = "다음 칼럼은 조회 대상에 없는 칼럼이다: " + String.join(", ", unknown)
+                        + ". 사용할 수 있는 칼럼: " + String.join(", ", columnNames != null ? columnNames : List.of());
+                return result;
+            }
+        }
+
+        // 검증: GROUP BY 에 없는 일반 칼럼 (집계 없이 쓰면 행이 임의로 합쳐짐)
+        if (!groupBy.isEmpty() && !ungrouped.isEmpty()) {
+            result.error = aggregated
+                    ? "GROUP BY 에 없는 칼럼을 집계 함수 없이 조회했다: " + String.join(", ", ungrouped)
+                            + ". 이 칼럼들을 GROUP BY 에 포함하거나 SELECT 에서 빼라."
+                    : "집계 함수 없이 GROUP BY 를 사용해 행이 합쳐진다: " + String.join(", ", ungrouped)
+                            + ". 집계를 사용하지 말고 GROUP BY 를 빼라.";
+        }
+        return result;
+    }
+
+    /**
+     * SELECT 결과 칼럼명과, ORDER BY 를 결과 칼럼명으로 바꾼 정렬 키 (ResultCursorService 의 keyset 조건용).
+     * 단순 SELECT 가 아니거나 결과 칼럼명을 알 수 없는 항목(*, 별칭 없는 식)이나 결과에 없는 정렬 키가 있으면 null
+     */
+    public Ordering ordering(String sql) {
+        PlainSelect select = parseSelect(stripSemicolons(sql));
+        if (select == null) {
+            return null;
+        }
+        Ordering ordering = new Ordering();
+        List<String> expressions = new ArrayList<>();
+        for (SelectItem<?> item : select.getSelectItems()) {
+            Expression expression = item.getExpression();
+            String label;
+            if (item.getAlias() != null) {
+                label = unquote(item.getAlias().getName());
+            } else if (expression instanceof Column column) {
+                label = unquote(column.getColumnName());
+            } else {
+                return null;
+            }
+            if (ordering.labels.stream().anyMatch(label::equalsIgnoreCase)) {
+                return null;
+            }
+            ordering.labels.add(label);
+            expressions.add(expression.toString());
+        }
+        if (select.getOrderByElements() != null) {
+            for (OrderByElement element : select.getOrderByElements()) {
+                String label = orderLabel(element.getExpression(), ordering.labels, expressions);
+                if (label == null || element.getNullOrdering() != null) {
+                    return null;
+                }
+                if (!ordering.keys.contains(label)) {
+                    ordering.keys.add(label);
+                    ordering.descending.add(!element.isAsc());
+                }
+            }
+        }
+        return ordering;
+    }
+
+    // ORDER BY 항목 -> 결과 칼럼명 (위치, SELECT 식, 별칭 순으로 찾음)
+    private static String orderLabel(Expression expression, List<String> labels, List<String> expressions) {
+        if (expression instanceof LongValue position) {
+            int index = (int) position.getValue() - 1;
+            return index >= 0 && index < labels.size() ? labels.get(index) : null;
+        }
+        int index = expressions.indexOf(expression.toString());
+        if (index >= 0) {
+            return labels.get(index);
+        }
+        if (expression instanceof Column column && column.getTable() == null) {
+            String name = unquote(column.getColumnName());
+            for (String label : labels) {
+                if (label.equalsIgnoreCase(name)) {
+                    return label;
+                }
+            }
+        }
+        return null;
+    }
+
+    static String stripSemicolons(String sql) {
+        String text = sql.trim();
+        while (text.endsWith(";")) {
+            text = text.substring(0, text.length() - 1).trim();
+        }
+        return text;
+    }
+
+    private PlainSelect parseSelect(String sql) {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            if (statement instanceof PlainSelect plain) {
+                return plain;
+            }
+        } catch (JSQLParserException e) {
+            logger.debug("SQL validation skipped, parse failed: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    // baseQuery 에서 참조하는 칼럼과 alias, 그리고 columnNmList
+    private Set<String> allowedColumns(String baseQuery, List<String> columnNames) {
+        Set<String> allowed = new LinkedHashSet<>();
+        if (columnNames != null) {
+            for (String name : columnNames) {
+                allowed.add(name.toLowerCase(Locale.ROOT));
+            }
+        }
+        PlainSelect base = baseQuery != null ? parseSelect(stripSemicolons(baseQuery)) : null;
+        if (base == null) {
+            // 기준 쿼리를 해석할 수 없으면 칼럼 검사를 하지 않음
+            return new LinkedHashSet<>();
+        }
+        for (SelectItem<?> item : base.getSelectItems()) {
+            if (item.getAlias() != null) {
+                allowed.add(unquote(item.getAlias().getName()).toLowerCase(Locale.ROOT));
+            }
+        }
+        for (Column column : referencedColumns(base)) {
+            allowed.add(unquote(column.getColumnName()).toLowerCase(Locale.ROOT));
+        }
+        return allowed;
+    }
+
+    // 문자열 리터럴이 칼럼/alias 이름과 같으면 DB 의 식별자 quote 로 감싼 칼럼, 아니면 null
+    private Expression literalToColumn(Expression expression, Set<String> allowed, Set<String> selectAliases) {
+        if (expression instanceof StringValue value) {
+            String name = value.getValue().toLowerCase(Locale.ROOT);
+            if (allowed.contains(name) || selectAliases.contains(name)) {
+                return new Column(quoteIdentifier(value.getValue()));
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Expression> groupByExpressions(PlainSelect select) {
+        if (select.getGroupBy() == null || select.getGroupBy().getGroupByExpressionList() == null) {
+            return new ArrayList<>();
+        }
+        return (List<Expression>) select.getGroupBy().getGroupByExpressionList();
+    }
+
+    // GROUP BY 에 포함되지 않은 SELECT 의 일반 칼럼 항목
+    private List<String> ungroupedColumns(PlainSelect select, List<Expression> groupBy) {
+        List<String> ungrouped = new ArrayList<>();
+        if (groupBy.isEmpty()) {
+            return ungrouped;
+        }
+        Set<String> grouped = new LinkedHashSet<>();
+        for (Expression e : groupBy) {
+            grouped.add(unquote(e.toString()).toLowerCase(Locale.ROOT));
+            if (e instanceof Column column) {
+                grouped.add(unquote(column.getColumnName()).toLowerCase(Locale.ROOT));
+            }
+        }
+        for (SelectItem<?> item : select.getSelectItems()) {
+            if (item.getExpression() instanceof Column column) {
+                String name = unquote(column.getColumnName()).toLowerCase(Locale.ROOT);
+                String alias = item.getAlias() != null ? unquote(item.getAlias().getName()).toLowerCase(Locale.ROOT)
+                        : null;
+                if (!grouped.contains(name) && (alias == null || !grouped.contains(alias))) {
+                    ungrouped.add(item.toString());
+                }
+            }
+        }
+        return ungrouped;
+    }
+
+    private boolean hasAggregate(PlainSelect select) {
+        boolean[] found = new boolean[1];
+        ExpressionVisitorAdapter visitor = new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Function function) {
+                if (AGGREGATES.contains(function.getName().toLowerCase(Locale.ROOT))) {
+                    found[0] = true;
+                }
+                super.visit(function);
+            }
+        };
+        for (SelectItem<?> item : select.getSelectItems()) {
+            item.getExpression().accept(visitor);
+        }
+        if (select.getHaving() != null) {
+            select.getHaving().accept(visitor);
+        }
+        return found[0];
+    }
+
+    // 서브쿼리 내부를 제외한 SELECT/WHERE/GROUP BY/HAVING/ORDER BY/JOIN 의 칼럼 참조
+    private List<Column> referencedColumns(PlainSelect select) {
+        List<Column> columns = new ArrayList<>();
+        ExpressionVisitorAdapter visitor = new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(Column column) {
+                columns.add(column);
+            }
+        };
+        for (SelectItem<?> item : select.getSelectItems()) {
+            item.getExpression().accept(visitor);
+        }
+        if (select.getWhere() != null) {
+            select.getWhere().accept(visitor);
+        }
+        for (Expression e : groupByExpressions(select)) {
+            e.accept(visitor);
+        }
+        if (select.getHaving() != null) {
+            select.getHaving().accept(visitor);
+        }
+        if (select.getOrderByElements() != null) {
+            for (OrderByElement element : select.getOrderByElements()) {
+                element.getExpression().accept(visitor);
+            }
+        }
+        if (select.getJoins() != null) {
+            for (Join join : select.getJoins()) {
+                for (Expression on : join.getOnExpressions()) {
+                    on.accept(visitor);
+                }
+            }
+        }
+        return columns;
+    }
+
+    // 현재 회사의 조회 DB 가 LIMIT/OFFSET 문법을 쓰는지
+    boolean supportsLimit() {
+        String product = databaseProduct();
+        return product != null && LIMIT_DIALECTS.contains(product);
+    }
+
+    // 현재 회사의 조회 DB 문법으로 감싼 식별자
+    String quoteIdentifier(String identifier) {
+        String quote = String.valueOf(identifierQuote());
+        return quote + identifier.replace(quote, quote + quote) + quote;
+    }
+
+    private char identifierQuote() {
+        String product = databaseProduct();
+        return product != null && BACKTICK_DIALECTS.contains(product) ? '`' : '"';
+    }
+
+    // 현재 회사(CompanyContext)의 조회 DB 제품명 (소문자, 읽지 못하면 null)
+    String databaseProduct() {
+        String company = CompanyContext.getCompany();
+        String key = company != null ? company : "chatq";
+        String product = dbProductNames.get(key);
+        if (product == null) {
+            try (Connection conn = dataSource.getConnection()) {
+                product = conn.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+                dbProductNames.put(key, product);
+            } catch (Exception e) {
+                logger.warn("Could not read database product name for company {}: {}", key, e.getMessage());
+                return null;
+            }
+        }
+        return product;
+    }
+
+    private static String unquote(String identifier) {
+        if (identifier == null || identifier.length() < 2) {
+            return identifier;
+        }
+        char first = identifier.charAt(0);
+        char last = identifier.charAt(identifier.length() - 1);
+        if ((first == '`' && last == '`') || (first == '"' && last == '"') || (first == '\'' && last == '\'')
+                || (first == '[' && last == ']')) {
+            return identifier.substring(1, identifier.length() - 1);
+        }
+        return identifier;
+    }
+
+    /**
+     * 검증 결과. error 가 있으면 LLM 재요청에 사용할 메시지.
+     */
+    public static class Result {
+        private String sql;
+        private String error;
+        private final List<String> repairs = new ArrayList<>();
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public List<String> getRepairs() {
+            return repairs;
+        }
+
+        public boolean isValid() {
+            return error == null;
+        }
+    }
+
+    /**
+     * 결과 칼럼명과 정렬 키 (keys[i] 는 결과 칼럼명, descending[i] 는 내림차순 여부)
+     */
+    public static class Ordering {
+        private final List<String> labels = new ArrayList<>();
+        private final List<String> keys = new ArrayList<>();
+        private final List<Boolean> descending = new ArrayList<>();
+
+        public List<String> getLabels() {
+            return labels;
+        }
+
+        public List<String> getKeys() {
+            return keys;
+        }
+
+        public List<Boolean> getDescending() {
+            return descending;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package kr.chatq.server.chatq_server.service;
+
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import kr.chatq.server.chatq_server.config.CompanyContext;
+import kr.chatq.server.chatq_server.dto.TokenUsage;
+
+/**
+ * LLM 토큰 사용량 집계.
+ * 요청 스레드에 TokenUsage 를 두고 (begin ~ end) 모든 LLM 호출의 prompt / completion / cached 토큰을 단계, 모델별로 합산한다.
+ * 다른 스레드에서 실행하는 호출은 attach 로 같은 TokenUsage 에 기록한다. company, model 별 누적값은 metric 으로도 남긴다.
+ */
+@Service
+public class TokenUsageService {
+
+    private static final ThreadLocal<TokenUsage> currentUsage = new ThreadLocal<>();
+
+    private final MeterRegistry meterRegistry;
+
+    public TokenUsageService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public TokenUsage begin() {
+        TokenUsage usage = new TokenUsage();
+        currentUsage.set(usage);
+        return usage;
+    }
+
+    public TokenUsage current() {
+        return currentUsage.get();
+    }
+
+    /**
+     * 작업 스레드에서 요청 스레드의 TokenUsage 에 기록하도록 연결 (null 이면 해제)
+     */
+    public void attach(TokenUsage usage) {
+        if (usage != null) {
+            currentUsage.set(usage);
+        } else {
+            currentUsage.remove();
+        }
+    }
+
+    public void end() {
+        currentUsage.remove();
+    }
+
+    /**
+     * ChatResponse 의 usage 기록 (응답 metadata 에 모델명이 있으면 그 값을 사용)
+     */
+    public void record(String provider, String model, ChatResponse response) {
+        if (response == null || response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage == null) {
+            return;
+        }
+        int promptTokens = usage.getPromptTokens() != null ? usage.getPromptTokens() : 0;
+        int completionTokens = usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+        int cachedTokens = 0;
+        if (usage.getNativeUsage() instanceof OpenAiApi.Usage openAiUsage
+                && openAiUsage.promptTokensDetails() != null
+                && openAiUsage.promptTokensDetails().cachedTokens() != null) {
+            cachedTokens = openAiUsage.promptTokensDetails().cachedTokens();
+        }
+        String responseModel = response.getMetadata().getModel();
+        String modelName = (responseModel != null && !responseModel.isEmpty()) ? responseModel
+                : (model != null ? model : "");
+        String stage = ChatQueryMetrics.currentStage();
+        if (stage == null) {
+            stage = "chat";
+        }
+
+        TokenUsage tokenUsage = currentUsage.get();
+        if (tokenUsage != null) {
+            tokenUsage.add(stage, provider, modelName, promptTokens, completionTokens, cachedTokens);
+        }
+
+        String company = CompanyContext.getCompany();
+        count("prompt", company, provider, modelName, stage, promptTokens);
+        count("completion", company, provider, modelName, stage, completionTokens);
+        count("cached", company, provider, modelName, stage, cachedTokens);
+    }
+
+    private void count(String kind, String company, String provider, String model, String stage, int tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        Counter.builder("chatq.llm.tokens")
+                .description("LLM tokens reported by the provider")
+                .tag("kind", kind)
+                .tag("company", company != null ? company : "default")
+                .tag("provider", provider)
+                .tag("model", model)
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .increment(tokens);
+    }
+}
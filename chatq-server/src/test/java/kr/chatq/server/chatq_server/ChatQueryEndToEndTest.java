@@ -0,0 +1,127 @@
+package kr.chatq.server.chatq_server;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kr.chatq.server.chatq_server.mock.ChatQueryScript;
+import kr.chatq.server.chatq_server.mock.EmbeddedMariaDb;
+import kr.chatq.server.chatq_server.mock.MockLlmServer;
+
+/**
+ * /api/chatq 전체 파이프라인 (테이블 선택 -> SQL 생성 -> 검증 -> 실행 -> 로그 저장) 을
+ * MockLlmServer 와 내장 MariaDB 로 실행 (실제 Ollama / OpenAI 불필요).
+ * 결과 커서와 마스터-디테일을 끄고 결과 스트리밍(QueryResultStream) 경로로 응답한다
+ */
+@SpringBootTest(properties = { "chatq.result.streaming.enabled=true", "chatq.result.cursor.enabled=false",
+        "chatq.result.master-detail.enabled=false" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ChatQueryEndToEndTest {
+
+    private static final MockLlmServer llm = MockLlmServer.start(0);
+
+    @DynamicPropertySource
+    static void offlineEnvironment(DynamicPropertyRegistry registry) throws Exception {
+        int dbPort = EmbeddedMariaDb.start();
+        registry.add("chatq.test.db-port", () -> dbPort);
+        registry.add("chatq.test.llm-port", llm::port);
+    }
+
+    @AfterAll
+    static void stopLlm() {
+        llm.close();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("jdbcTemplate")
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void script() {
+        llm.reset();
+        ChatQueryScript.apply(llm).latency(100, 5);
+    }
+
+    @Test
+    void answersChatQueryWithScriptedLlmAndEmbeddedDatabase() throws Exception {
+        String body = mockMvc.perform(post("/api/chatq")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"prompt\": \"지역별 매출 합계\", \"topicId\": 1001}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("SUCCESS"))
+                .andExpect(jsonPath("$.tableAlias").value(ChatQueryScript.TABLE_ALIAS))
+                .andExpect(jsonPath("$.columns[0]").value("지역"))
+                .andExpect(jsonPath("$.data[*]['지역']", containsInAnyOrder("서울", "부산", "대구")))
+                .andExpect(jsonPath("$.id").value(greaterThan(0)))
+                .andExpect(jsonPath("$.resultHandle").doesNotExist())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertStreamed(body);
+
+        // 테이블 선택 1회 + SQL 생성 1회
+        assertEquals(2, llm.requests("/api/chat"));
+        // 결과를 스트리밍해도 chatqlog 에는 data 를 포함한 응답이 저장됨 (대화 다시보기용)
+        String logResponse = jdbcTemplate.queryForObject("SELECT response FROM chatqlog WHERE topic_id = 1001",
+                String.class);
+        assertTrue(logResponse.contains("\"data\":[{"));
+        assertTrue(logResponse.contains("\"message\":\"SUCCESS\""));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM chatqusage u JOIN chatqlog l ON (u.log_id = l.id) WHERE l.topic_id = 1001",
+                Integer.class));
+
+        // 고정 지연이 단계별 latency 에 반영되는지 (회귀 측정 기준)
+        Timer tablePick = meterRegistry.get("chatq.query.stage").tag("stage", "table_pick").timer();
+        assertTrue(tablePick.max(TimeUnit.MILLISECONDS) >= 100);
+    }
+
+    @Test
+    void returnsColumnarDataWhenRequested() throws Exception {
+        String body = mockMvc.perform(post("/api/chatq")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"prompt\": \"지역별 매출 합계\", \"dataFormat\": \"columnar\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("SUCCESS"))
+                .andExpect(jsonPath("$.data").doesNotExist())
+                .andExpect(jsonPath("$.columnar.names[0]").value("지역"))
+                .andExpect(jsonPath("$.columnar.rowCount").value(3))
+                .andExpect(jsonPath("$.columnar.columns[0].values", containsInAnyOrder("서울", "부산", "대구")))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertStreamed(body);
+    }
+
+    // QueryResultStream 이 쓴 응답: columns 부터 ResultSet 에서 바로 쓰고 id 는 로그 저장 뒤 마지막에 씀
+    // (QueryResponse 직렬화는 id 가 처음)
+    private static void assertStreamed(String body) {
+        assertTrue(body.startsWith("{\"columns\":["), body);
+        assertTrue(body.matches("(?s).*\"id\":\\d+}$"), body);
+    }
+}
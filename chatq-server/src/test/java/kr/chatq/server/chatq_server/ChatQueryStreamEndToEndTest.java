@@ -0,0 +1,128 @@
+package kr.chatq.server.chatq_server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import kr.chatq.server.chatq_server.mock.ChatQueryScript;
+import kr.chatq.server.chatq_server.mock.EmbeddedMariaDb;
+import kr.chatq.server.chatq_server.mock.MockLlmServer;
+
+/**
+ * SSE(/api/chatq/stream): stage, token, sql 다음 결과 행을 rows 이벤트로 나눠 보내고 result 에는 data 가 없다.
+ * 지역별 합계 3행을 2행씩 (rows 이벤트 2개) 받는다
+ */
+@SpringBootTest(properties = { "chatq.result.cursor.enabled=false", "chatq.stream.rows-per-event=2" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ChatQueryStreamEndToEndTest {
+
+    private static final MockLlmServer llm = MockLlmServer.start(0);
+
+    @DynamicPropertySource
+    static void offlineEnvironment(DynamicPropertyRegistry registry) throws Exception {
+        int dbPort = EmbeddedMariaDb.start();
+        registry.add("chatq.test.db-port", () -> dbPort);
+        registry.add("chatq.test.llm-port", llm::port);
+    }
+
+    @AfterAll
+    static void stopLlm() {
+        llm.close();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void script() {
+        llm.reset();
+        ChatQueryScript.apply(llm);
+    }
+
+    @Test
+    void streamsStagesSqlAndResultRows() throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/chatq/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .content("{\"prompt\": \"지역별 매출 합계\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(10_000);
+
+        List<String[]> events = events(result.getResponse().getContentAsString(StandardCharsets.UTF_8));
+        List<String> names = events.stream().map(event -> event[0]).toList();
+        assertTrue(names.contains("stage"));
+        assertTrue(names.contains("token"));
+        assertTrue(names.indexOf("sql") >= 0);
+        assertEquals("result", names.get(names.size() - 1));
+        assertFalse(names.contains("error"));
+
+        List<JsonNode> rows = new ArrayList<>();
+        for (String[] event : events) {
+            if ("rows".equals(event[0])) {
+                rows.add(objectMapper.readTree(event[1]));
+            }
+        }
+        assertEquals(2, rows.size());
+        assertEquals(2, rows.get(0).size());
+        assertEquals(1, rows.get(1).size());
+        assertEquals("대구", rows.get(0).get(0).get("지역").asText());
+        assertEquals("서울", rows.get(1).get(0).get("지역").asText());
+        assertTrue(names.indexOf("sql") < names.indexOf("rows"));
+
+        JsonNode response = objectMapper.readTree(events.get(events.size() - 1)[1]);
+        assertEquals("SUCCESS", response.path("message").asText());
+        assertEquals(ChatQueryScript.TABLE_ALIAS, response.path("tableAlias").asText());
+        assertEquals(2, response.path("columns").size());
+        assertTrue(response.path("data").isMissingNode());
+    }
+
+    // "event:이름" 다음 "data:" 줄(들)을 [이름, 데이터] 로 모은다
+    private static List<String[]> events(String body) {
+        List<String[]> events = new ArrayList<>();
+        String name = null;
+        StringBuilder data = null;
+        for (String line : (body + "\n").split("\n", -1)) {
+            if (line.startsWith("event:")) {
+                name = line.substring("event:".length());
+                data = new StringBuilder();
+            } else if (line.startsWith("data:") && data != null) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(line.substring("data:".length()));
+            } else if (line.isEmpty() && name != null) {
+                events.add(new String[] { name, data.toString() });
+                name = null;
+                data = null;
+            }
+        }
+        return events;
+    }
+}
@@ -0,0 +1,123 @@
+package kr.chatq.server.chatq_server;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.jayway.jsonpath.JsonPath;
+
+import kr.chatq.server.chatq_server.mock.EmbeddedMariaDb;
+import kr.chatq.server.chatq_server.mock.MockLlmServer;
+
+/**
+ * 마스터-디테일 지연 조회: 첫 응답은 지역(헤더 칼럼)만 중복 없이, 상세 행은 /api/details/{handle}?row= 로 한 지역씩,
+ * 엑셀/차트용 전체 상세 행은 /api/details/{handle}/all. 만료된 핸들은 resultQuery 로 다시 연다
+ */
+@SpringBootTest(properties = "chatq.result.master-detail.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MasterDetailEndToEndTest {
+
+    private static final String SQL = "SELECT region AS `지역`, item_nm AS `품목`, amt AS `금액` FROM sales_v ORDER BY region, item_nm";
+
+    private static final MockLlmServer llm = MockLlmServer.start(0);
+
+    @DynamicPropertySource
+    static void offlineEnvironment(DynamicPropertyRegistry registry) throws Exception {
+        int dbPort = EmbeddedMariaDb.start();
+        registry.add("chatq.test.db-port", () -> dbPort);
+        registry.add("chatq.test.llm-port", llm::port);
+    }
+
+    @AfterAll
+    static void stopLlm() {
+        llm.close();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void script() {
+        llm.reset();
+        llm.reply("정보종류를 한 개만 골라줘", "가장 가까운 정보종류는 __매출상세__ 입니다.")
+                .reply("SQL문을 작성해줘", "```sql\n" + SQL + "\n```");
+    }
+
+    @Test
+    void returnsHeaderRowsFirstAndDetailsOnDemand() throws Exception {
+        String first = mockMvc.perform(post("/api/chatq")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"prompt\": \"지역별 매출 내역\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("SUCCESS"))
+                .andExpect(jsonPath("$.detailYn").value("Y"))
+                .andExpect(jsonPath("$.columns.length()").value(3))
+                .andExpect(jsonPath("$.data").doesNotExist())
+                .andExpect(jsonPath("$.headerData.length()").value(3))
+                .andExpect(jsonPath("$.headerData[2]['지역']").value("서울"))
+                .andReturn().getResponse().getContentAsString();
+        String handle = JsonPath.read(first, "$.detailHandle");
+
+        mockMvc.perform(get("/api/details/" + handle).param("row", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[*]['품목']", containsInAnyOrder("노트북", "모니터")));
+
+        mockMvc.perform(get("/api/details/" + handle).param("row", "3"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/details/" + handle + "/all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.detailYn").value("Y"))
+                .andExpect(jsonPath("$.data.length()").value(5))
+                .andExpect(jsonPath("$.data[0]['지역']").value("대구"))
+                .andExpect(jsonPath("$.headerData.length()").value(3))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        mockMvc.perform(get("/api/details/unknown/all"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void reopensExpiredHandleFromResultQuery() throws Exception {
+        String first = mockMvc.perform(post("/api/chatq")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"prompt\": \"지역별 매출 내역\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String handle = JsonPath.read(first, "$.detailHandle");
+        String resultQuery = JsonPath.read(first, "$.resultQuery");
+
+        // 대화 다시 보기: 저장된 응답의 resultQuery 와 헤더 칼럼으로 새 핸들을 연다
+        String reopened = mockMvc.perform(post("/api/results/reopen")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"resultQuery\": \"" + resultQuery + "\", \"headerColumns\": [\"지역\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.detailYn").value("Y"))
+                .andExpect(jsonPath("$.headerData.length()").value(3))
+                .andExpect(jsonPath("$.data").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        String newHandle = JsonPath.read(reopened, "$.detailHandle");
+        assertNotEquals(handle, newHandle);
+
+        mockMvc.perform(get("/api/details/" + newHandle).param("row", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2));
+    }
+}
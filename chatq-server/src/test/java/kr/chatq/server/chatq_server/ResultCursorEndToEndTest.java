@@ -0,0 +1,154 @@
+package kr.chatq.server.chatq_server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.jayway.jsonpath.JsonPath;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kr.chatq.server.chatq_server.mock.ChatQueryScript;
+import kr.chatq.server.chatq_server.mock.EmbeddedMariaDb;
+import kr.chatq.server.chatq_server.mock.MockLlmServer;
+
+/**
+ * 결과 커서: 첫 페이지 + resultHandle, 보관 행에서 읽는 페이지, keyset 으로 다시 읽는 페이지.
+ * 지역별 합계 3행을 1행씩 (보관 2행) 나눠 읽는다. 결과 전체(/all), resultQuery 로 다시 열기,
+ * 정렬 키가 없는 SQL 은 커서 없이 조회
+ */
+@SpringBootTest(properties = { "chatq.result.cursor.enabled=true", "chatq.result.cursor.page-size=1",
+        "chatq.result.cursor.retain-rows=2" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ResultCursorEndToEndTest {
+
+    private static final MockLlmServer llm = MockLlmServer.start(0);
+
+    @DynamicPropertySource
+    static void offlineEnvironment(DynamicPropertyRegistry registry) throws Exception {
+        int dbPort = EmbeddedMariaDb.start();
+        registry.add("chatq.test.db-port", () -> dbPort);
+        registry.add("chatq.test.llm-port", llm::port);
+    }
+
+    @AfterAll
+    static void stopLlm() {
+        llm.close();
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void script() {
+        llm.reset();
+        ChatQueryScript.apply(llm);
+    }
+
+    @Test
+    void pagesThroughRetainedRowsThenKeyset() throws Exception {
+        String first = mockMvc.perform(post("/api/chatq")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"prompt\": \"지역별 매출 합계\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("SUCCESS"))
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0]['지역']").value("대구"))
+                .andExpect(jsonPath("$.page").value(0))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andReturn().getResponse().getContentAsString();
+        String handle = JsonPath.read(first, "$.resultHandle");
+
+        mockMvc.perform(get("/api/results/" + handle).param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0]['지역']").value("부산"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+
+        mockMvc.perform(get("/api/results/" + handle).param("page", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0]['지역']").value("서울"))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        assertEquals(1.0, meterRegistry.get("chatq.result.page").tag("source", "keyset").counter().count());
+
+        mockMvc.perform(get("/api/results/unknown-handle").param("page", "1"))
+                .andExpect(status().isNotFound());
+
+        // 엑셀/차트용 결과 전체
+        mockMvc.perform(get("/api/results/" + handle + "/all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(3))
+                .andExpect(jsonPath("$.data[2]['지역']").value("서울"))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andExpect(jsonPath("$.resultHandle").doesNotExist());
+
+        mockMvc.perform(get("/api/results/unknown-handle/all"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void reopensExpiredCursorFromResultQuery() throws Exception {
+        String first = mockMvc.perform(post("/api/chatq")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"prompt\": \"지역별 매출 합계\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String handle = JsonPath.read(first, "$.resultHandle");
+        String resultQuery = JsonPath.read(first, "$.resultQuery");
+
+        // 대화 다시 보기: 저장된 응답의 resultQuery 로 새 커서를 연다
+        String reopened = mockMvc.perform(post("/api/results/reopen")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"resultQuery\": \"" + resultQuery + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andReturn().getResponse().getContentAsString();
+        String newHandle = JsonPath.read(reopened, "$.resultHandle");
+        assertNotEquals(handle, newHandle);
+
+        mockMvc.perform(get("/api/results/" + newHandle).param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0]['지역']").value("부산"));
+
+        mockMvc.perform(post("/api/results/reopen")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"resultQuery\": \"bm90LWVuY3J5cHRlZA==\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void runsUnorderedSqlWithoutCursor() throws Exception {
+        // SELECT * 는 정렬 키를 만들 수 없으므로 커서 없이 post_query LIMIT 로 전체 행
+        llm.reset();
+        llm.reply("정보종류를 한 개만 골라줘", "가장 가까운 정보종류는 __" + ChatQueryScript.TABLE_ALIAS + "__ 입니다.")
+                .reply("SQL문을 작성해줘", "```sql\nSELECT * FROM sales\n```");
+
+        mockMvc.perform(post("/api/chatq")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"prompt\": \"매출 전체\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("SUCCESS"))
+                .andExpect(jsonPath("$.data.length()").value(5))
+                .andExpect(jsonPath("$.resultHandle").doesNotExist())
+                .andExpect(jsonPath("$.hasMore").doesNotExist());
+    }
+}
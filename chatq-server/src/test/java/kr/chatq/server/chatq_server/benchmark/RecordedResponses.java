@@ -0,0 +1,94 @@
+package kr.chatq.server.chatq_server.benchmark;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 실제 LLM 응답 형태를 본뜬 샘플과, ResponseScanner 이전의 정규식 후처리 구현 (비교 기준)
+ */
+public final class RecordedResponses {
+
+    public static final List<String> SAMPLES = List.of(
+            // gpt-oss: 코드 블록 SQL
+            "```sql\nSELECT a.emp_nm AS \"사원명\", SUM(b.amt) AS \"금액\"\nFROM emp a JOIN sales b ON a.emp_no = b.emp_no\n"
+                    + "WHERE b.sale_dt >= '2024-01-01'\nGROUP BY a.emp_nm\nORDER BY 2 DESC;\n```",
+            // 설명 + 코드 블록 (대문자 SQL 표시)
+            "다음은 요청하신 쿼리입니다.\n\n```SQL\nselect dept_nm, count(*) cnt from emp group by dept_nm\n```\n"
+                    + "부서별 인원수를 조회합니다.",
+            // 코드 블록 없이 SELECT 문
+            "요청하신 SQL문은 다음과 같습니다: SELECT * FROM orders WHERE status = 'OPEN' LIMIT 100; 참고하세요.",
+            // ';' 없는 SELECT
+            "SELECT item_cd, item_nm FROM item WHERE use_yn = 'Y' ORDER BY item_cd",
+            // deepseek: 끝에 특수 토큰
+            "```sql\nSELECT cust_nm FROM customer WHERE grade = 'VIP';\n``` done<｜end▁of▁sentence｜>",
+            // 특수 토큰 (ASCII 표기) 과 SELECT
+            "<|begin_of_sentence|>answer: SELECT 1; trailing<|end_of_sentence|>",
+            // 테이블 선택 응답
+            "가장 가까운 정보종류는 __매출실적__ 입니다.",
+            "정보종류: __재고현황__\n이유: 문의가 재고 수량에 관한 것이기 때문입니다.",
+            // 밑줄이 섞인 alias
+            "___주문_내역__ 또는 __주문내역__",
+            // 아무것도 없는 응답
+            "죄송합니다. 요청을 이해하지 못했습니다.",
+            // 긴 설명이 붙은 응답
+            "분석 결과는 다음과 같습니다.\n".repeat(20) + "```sql\nSELECT region, SUM(qty) FROM stock GROUP BY region;\n```\n"
+                    + "추가 설명입니다.\n".repeat(20));
+
+    private RecordedResponses() {
+    }
+
+    public static String sanitizeResponse(String text) {
+        if (text == null)
+            return null;
+        return text
+                .replaceAll("\\S+\\s*<[\\|｜]begin[▁_]of[▁_]sentence[\\|｜]>", "")
+                .replaceAll("\\S+\\s*<[\\|｜]end[▁_]of[▁_]sentence[\\|｜]>", "")
+                .replaceAll("\\S+\\s*<\\|begin_of_sentence\\|>", "")
+                .replaceAll("\\S+\\s*<\\|end_of_sentence\\|>", "")
+                .trim();
+    }
+
+    public static String extractBetweenDoubleUnderscores(String text) {
+        if (text == null)
+            return null;
+        Matcher m = Pattern.compile("__([^_]+?)__").matcher(text);
+        if (m.find()) {
+            return m.group(1);
+        }
+        return null;
+    }
+
+    public static String extractSqlFromMarkdown(String text) {
+        if (text == null)
+            return null;
+        Matcher m = Pattern.compile("```sql\\s*([\\s\\S]*?)```", Pattern.CASE_INSENSITIVE).matcher(text);
+        if (m.find()) {
+            return m.group(1).trim();
+        }
+        return null;
+    }
+
+    public static String extractSelectStatement(String text) {
+        if (text == null)
+            return null;
+        Matcher m = Pattern.compile("(select[\\s\\S]*?;)", Pattern.CASE_INSENSITIVE).matcher(text);
+        if (m.find()) {
+            return m.group(1).trim();
+        }
+        int selectIndex = text.toLowerCase().indexOf("select");
+        if (selectIndex != -1) {
+            return text.substring(selectIndex).trim();
+        }
+        return null;
+    }
+
+    // 기존 QueryService.getSqlFromAI 의 SQL 추출 순서
+    public static String extractSql(String text) {
+        String sql = extractSqlFromMarkdown(text);
+        if ((sql == null || sql.isEmpty()) && text.toUpperCase().indexOf("SELECT") >= 0) {
+            sql = extractSelectStatement(text);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,54 @@
+package kr.chatq.server.chatq_server.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import kr.chatq.server.chatq_server.service.ResponseScanner;
+
+/**
+ * LLM 응답 후처리: 정규식 체인 vs ResponseScanner 단일 순회
+ * 실행: mvn -Pjmh verify -DskipTests -Djmh.include=ResponseScannerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseScannerBenchmark {
+
+    private final List<String> responses = RecordedResponses.SAMPLES;
+
+    @Benchmark
+    public void regex(Blackhole bh) {
+        for (String raw : responses) {
+            String text = RecordedResponses.sanitizeResponse(raw);
+            bh.consume(RecordedResponses.extractSql(text));
+            bh.consume(RecordedResponses.extractBetweenDoubleUnderscores(text));
+        }
+    }
+
+    @Benchmark
+    public void scanner(Blackhole bh) {
+        for (String raw : responses) {
+            ResponseScanner.Result result = ResponseScanner.scan(raw);
+            bh.consume(result.getSql());
+            bh.consume(result.getAlias());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[] { ResponseScannerBenchmark.class.getSimpleName() });
+    }
+}
@@ -0,0 +1,158 @@
+package kr.chatq.server.chatq_server.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import kr.chatq.server.chatq_server.dto.QueryResponse;
+import kr.chatq.server.chatq_server.dto.RowSet;
+import kr.chatq.server.chatq_server.service.ResultSetRows;
+
+/**
+ * executeQuery 결과 구성 + JSON 직렬화 (1000행 x 50칼럼, 상세 조회):
+ * 칼럼명으로 읽어 행마다 HashMap (기존) vs ResultSetRows + RowSet (인덱스로 읽어 Object[])
+ * 실행: mvn -Pjmh verify -DskipTests -Djmh.include=RowMaterializationBenchmark (할당량은 gc.alloc.rate.norm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMaterializationBenchmark {
+
+    private static final int ROWS = 1000;
+    private static final int COLUMNS = 50;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> headerColumns = List.of("col_0", "col_1");
+    private List<String> labels;
+    private Object[][] table;
+
+    @Setup
+    public void setUp() {
+        labels = new ArrayList<>(COLUMNS);
+        for (int c = 0; c < COLUMNS; c++) {
+            labels.add("col_" + c);
+        }
+        // 문자열(값 종류 적음), 정수, 금액, 날짜 칼럼을 섞음
+        table = new Object[ROWS][COLUMNS];
+        java.sql.Date baseDate = java.sql.Date.valueOf("2025-01-01");
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                table[r][c] = switch (c % 4) {
+                    case 0 -> "코드" + (r / 50 + c) % 20;
+                    case 1 -> (long) r * c;
+                    case 2 -> BigDecimal.valueOf(r * 1000L + c, 2);
+                    default -> new java.sql.Date(baseDate.getTime() + (r % 365) * 86_400_000L);
+                };
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] mapPerRow() throws Exception {
+        ResultSet rs = resultSet();
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        List<String> columns = new ArrayList<>();
+        for (int i = 1; i <= columnCount; i++) {
+            columns.add(metaData.getColumnLabel(i));
+        }
+        List<Map<String, Object>> data = new ArrayList<>();
+        while (rs.next()) {
+            Map<String, Object> row = new HashMap<>();
+            for (String column : columns) {
+                row.put(column, rs.getObject(column));
+            }
+            data.add(row);
+        }
+        List<Map<String, Object>> headerData = new ArrayList<>();
+        for (Map<String, Object> row : data) {
+            Map<String, Object> headerRow = new HashMap<>();
+            for (String headerColumn : headerColumns) {
+                headerRow.put(headerColumn, row.get(headerColumn));
+            }
+            headerData.add(headerRow);
+        }
+        Set<Map<String, Object>> uniqueHeaderData = new LinkedHashSet<>(headerData);
+
+        QueryResponse response = new QueryResponse();
+        response.setColumns(columns);
+        response.setData(data);
+        response.setHeaderData(new ArrayList<>(uniqueHeaderData));
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] rowSet() throws Exception {
+        ResultSetRows rows = new ResultSetRows(resultSet(), "Y", headerColumns);
+        RowSet data = new RowSet(rows.names());
+        for (Object[] values = rows.next(); values != null; values = rows.next()) {
+            data.addRow(values);
+        }
+        QueryResponse response = new QueryResponse();
+        response.setColumns(rows.columns());
+        response.setData(data);
+        response.setHeaderData(rows.headerData());
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    /**
+     * 메모리상의 ResultSet. 칼럼명 조회는 JDBC 드라이버처럼 소문자로 바꿔 찾는다
+     */
+    private ResultSet resultSet() {
+        Map<String, Integer> labelIndexes = new HashMap<>();
+        for (int c = 0; c < COLUMNS; c++) {
+            labelIndexes.put(labels.get(c).toLowerCase(Locale.ROOT), c + 1);
+        }
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ResultSetMetaData.class }, (proxy, method, args) -> switch (method.getName()) {
+                    case "getColumnCount" -> COLUMNS;
+                    case "getColumnLabel" -> labels.get((Integer) args[0] - 1);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        int[] cursor = { -1 };
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getMetaData" -> metaData;
+                    case "next" -> ++cursor[0] < ROWS;
+                    case "getObject" -> {
+                        int column = args[0] instanceof Integer index ? index
+                                : labelIndexes.getOrDefault(((String) args[0]).toLowerCase(Locale.ROOT), 0);
+                        if (column == 0) {
+                            throw new SQLException("Unknown column " + args[0]);
+                        }
+                        yield table[cursor[0]][column - 1];
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[] { RowMaterializationBenchmark.class.getSimpleName(), "-prof", "gc" });
+    }
+}
@@ -0,0 +1,63 @@
+package kr.chatq.server.chatq_server.dto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ColumnarDataTest {
+
+    @Test
+    void encodesRepeatedStringsAsDictionary() throws Exception {
+        ColumnarData.Builder builder = new ColumnarData.Builder(List.of("지역", "금액"));
+        Object[] row = new Object[2];
+        for (Object[] values : new Object[][] {
+                { "서울", new BigDecimal("10") }, { "서울", new BigDecimal("20") },
+                { null, new BigDecimal("30") }, { "부산", null } }) {
+            // 배열을 재사용해도 값이 복사되는지
+            System.arraycopy(values, 0, row, 0, row.length);
+            builder.addRow(row);
+        }
+        ColumnarData columnar = builder.build();
+
+        assertEquals(4, columnar.getRowCount());
+        ColumnarData.Column region = columnar.getColumns().get(0);
+        assertEquals(List.of("서울", "부산"), region.getDict());
+        assertArrayEquals(new int[] { 0, 0, -1, 1 }, region.getCodes());
+        assertNull(region.getValues());
+
+        ColumnarData.Column amount = columnar.getColumns().get(1);
+        assertNull(amount.getDict());
+        assertEquals(Arrays.asList(new BigDecimal("10"), new BigDecimal("20"), new BigDecimal("30"), null),
+                amount.getValues());
+
+        assertEquals("{\"names\":[\"지역\",\"금액\"],\"rowCount\":4,\"columns\":["
+                + "{\"dict\":[\"서울\",\"부산\"],\"codes\":[0,0,-1,1]},{\"values\":[10,20,30,null]}]}",
+                new ObjectMapper().writeValueAsString(columnar));
+
+        // 행 단위로 되돌리기 (사전 코드 -1 은 null)
+        RowSet rows = columnar.toRowSet();
+        assertEquals(4, rows.size());
+        assertArrayEquals(new Object[] { null, new BigDecimal("30") }, rows.getRow(2));
+        assertArrayEquals(new Object[] { "부산", null }, rows.getRow(3));
+    }
+
+    @Test
+    void keepsHighCardinalityStringsAsValues() {
+        ColumnarData.Builder builder = new ColumnarData.Builder(List.of("품목"));
+        builder.addRow(new Object[] { "A" });
+        builder.addRow(new Object[] { "B" });
+        builder.addRow(new Object[] { "C" });
+
+        ColumnarData.Column item = builder.build().getColumns().get(0);
+        assertEquals(List.of("A", "B", "C"), item.getValues());
+        assertNull(item.getCodes());
+    }
+}
@@ -0,0 +1,57 @@
+package kr.chatq.server.chatq_server.dto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class RowSetTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void serializesLikeListOfMaps() throws Exception {
+        RowSet rowSet = new RowSet(List.of("지역", "금액", "일자"));
+        Object[] row = { "서울", new BigDecimal("1200.50"), java.sql.Date.valueOf("2025-03-01") };
+        rowSet.addRow(row);
+        // 배열을 재사용해도 앞 행이 바뀌지 않음
+        row[0] = "부산";
+        row[1] = 7L;
+        row[2] = null;
+        rowSet.addRow(row);
+
+        Map<String, Object> seoul = new LinkedHashMap<>();
+        seoul.put("지역", "서울");
+        seoul.put("금액", new BigDecimal("1200.50"));
+        seoul.put("일자", java.sql.Date.valueOf("2025-03-01"));
+        Map<String, Object> busan = new LinkedHashMap<>();
+        busan.put("지역", "부산");
+        busan.put("금액", 7L);
+        busan.put("일자", null);
+
+        assertEquals(objectMapper.writeValueAsString(List.of(seoul, busan)), objectMapper.writeValueAsString(rowSet));
+        assertEquals(Arrays.asList(seoul, busan), rowSet);
+        assertEquals("부산", rowSet.get(1).get("지역"));
+        assertNull(rowSet.get(1).get("없는칼럼"));
+    }
+
+    @Test
+    void readsTypedValues() {
+        RowSet rowSet = new RowSet(List.of("수량", "금액", "일자"));
+        rowSet.addRow(new Object[] { 3, 2.5d, java.sql.Date.valueOf("2025-03-01") });
+
+        assertEquals(3L, rowSet.getLong(0, rowSet.indexOf("수량")));
+        assertEquals(new BigDecimal("2.5"), rowSet.getBigDecimal(0, 1));
+        assertEquals(LocalDate.of(2025, 3, 1), rowSet.getLocalDate(0, 2));
+        assertEquals(-1, rowSet.indexOf("없는칼럼"));
+    }
+}
@@ -0,0 +1,25 @@
+package kr.chatq.server.chatq_server.mock;
+
+/**
+ * db/chatq-seed.sql 의 매출실적(sales) 테이블 기준 LLM 응답 시나리오
+ */
+public final class ChatQueryScript {
+
+    public static final String TABLE_ALIAS = "매출실적";
+
+    public static final String SQL = "SELECT region AS `지역`, SUM(amt) AS `금액` FROM sales GROUP BY region ORDER BY region";
+
+    private ChatQueryScript() {
+    }
+
+    public static MockLlmServer apply(MockLlmServer mock) {
+        return mock
+                // 테이블 선택
+                .reply("정보종류를 한 개만 골라줘", "가장 가까운 정보종류는 __" + TABLE_ALIAS + "__ 입니다.")
+                // one-shot (테이블 선택 + SQL)
+                .reply("정보종류와 SQL문을 JSON 으로 답해줘",
+                        "{\"alias\": \"" + TABLE_ALIAS + "\", \"sql\": \"" + SQL + "\"}")
+                // SQL 생성 (재요청 포함)
+                .reply("SQL문을 작성해줘", "```sql\n" + SQL + "\n```");
+    }
+}
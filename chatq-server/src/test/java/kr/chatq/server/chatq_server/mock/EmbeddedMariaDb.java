@@ -0,0 +1,59 @@
+package kr.chatq.server.chatq_server.mock;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariaDB4j.DB;
+import ch.vorburger.mariaDB4j.DBConfiguration;
+import ch.vorburger.mariaDB4j.DBConfigurationBuilder;
+
+/**
+ * 테스트용 내장 MariaDB (MariaDB4j). JVM 당 한 번 띄우고 db/chatq-schema.sql, db/chatq-seed.sql 을 적재한다.
+ * AES_DECRYPT, ON DUPLICATE KEY UPDATE 등 운영 DB 문법을 그대로 쓰기 위해 H2 대신 사용
+ */
+public final class EmbeddedMariaDb {
+
+    public static final String DATABASE = "mysrm";
+    public static final String USER = "root";
+
+    private static DB db;
+    private static int port;
+
+    private EmbeddedMariaDb() {
+    }
+
+    /**
+     * 내장 DB 를 시작하고 (이미 떠 있으면 그대로) 포트를 반환
+     */
+    public static synchronized int start() throws ManagedProcessException {
+        if (db != null) {
+            return port;
+        }
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        builder.setPort(0);
+        builder.addArg("--character-set-server=utf8mb4");
+        builder.addArg("--collation-server=utf8mb4_unicode_ci");
+        if ("root".equals(System.getProperty("user.name"))) {
+            // mysqld 는 root 로 실행할 때 --user 가 필요
+            builder.addArg("--user=root");
+        }
+        DBConfiguration configuration = builder.build();
+        DB started = DB.newEmbeddedDB(configuration);
+        started.start();
+        started.createDB(DATABASE);
+
+        port = configuration.getPort();
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("db/chatq-schema.sql"), new ClassPathResource("db/chatq-seed.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(new DriverManagerDataSource(jdbcUrl(), USER, ""));
+        db = started;
+        return port;
+    }
+
+    public static String jdbcUrl() {
+        return "jdbc:mariadb://127.0.0.1:" + port + "/" + DATABASE;
+    }
+}
@@ -0,0 +1,457 @@
+package kr.chatq.server.chatq_server.mock;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Ollama / OpenAI chat, embedding HTTP API 를 흉내 내는 로컬 서버 (실제 LLM 없이 부하/회귀 테스트용).
+ * - 응답은 등록한 규칙(프롬프트에 포함된 문구 -> 응답) 중 처음 맞는 것, 없으면 기본 응답
+ * - 첫 토큰 지연 + 토큰당 지연으로 응답 시간을 고정 (스트리밍이면 토큰 사이에 나눠서 지연)
+ * - 임베딩은 입력 문자열로 시드한 단위 벡터 (같은 입력이면 항상 같은 벡터)
+ * Ollama: /api/chat, /api/generate, /api/embed, /api/ps
+ * OpenAI: /v1/chat/completions, /v1/embeddings
+ */
+public class MockLlmServer implements AutoCloseable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private record Rule(String contains, String reply) {
+    }
+
+    private final HttpServer server;
+    private final List<Rule> rules = new CopyOnWriteArrayList<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final Map<String, JsonNode> lastRequests = new ConcurrentHashMap<>();
+    // /api/ps 에 보여줄 (호출된 적 있는) 모델
+    private final Set<String> loadedModels = ConcurrentHashMap.newKeySet();
+
+    private volatile String defaultReply = "OK";
+    private volatile long firstTokenDelayMs;
+    private volatile long perTokenDelayMs;
+    private volatile int embeddingDimensions = 64;
+
+    private MockLlmServer(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * port 0 이면 빈 포트 사용
+     */
+    public static MockLlmServer start(int port) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+            MockLlmServer mock = new MockLlmServer(server);
+            server.createContext("/api/chat", exchange -> mock.handle(exchange, mock::ollamaChat));
+            server.createContext("/api/generate", exchange -> mock.handle(exchange, mock::ollamaGenerate));
+            server.createContext("/api/embed", exchange -> mock.handle(exchange, mock::ollamaEmbed));
+            server.createContext("/api/ps", exchange -> mock.handle(exchange, mock::ollamaPs));
+            server.createContext("/v1/chat/completions", exchange -> mock.handle(exchange, mock::openAiChat));
+            server.createContext("/v1/embeddings", exchange -> mock.handle(exchange, mock::openAiEmbeddings));
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.start();
+            return mock;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start mock LLM server on port " + port, e);
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + port();
+    }
+
+    /**
+     * 프롬프트(전체 메시지)에 contains 가 있으면 reply 로 응답 (먼저 등록한 규칙 우선)
+     */
+    public MockLlmServer reply(String contains, String reply) {
+        rules.add(new Rule(contains, reply));
+        return this;
+    }
+
+    public MockLlmServer defaultReply(String reply) {
+        this.defaultReply = reply;
+        return this;
+    }
+
+    public MockLlmServer latency(long firstTokenDelayMs, long perTokenDelayMs) {
+        this.firstTokenDelayMs = firstTokenDelayMs;
+        this.perTokenDelayMs = perTokenDelayMs;
+        return this;
+    }
+
+    public MockLlmServer embeddingDimensions(int dimensions) {
+        this.embeddingDimensions = dimensions;
+        return this;
+    }
+
+    // 경로별 요청 수
+    public int requests(String path) {
+        AtomicInteger count = requestCounts.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    // 경로별 마지막 요청 본문
+    public JsonNode lastRequest(String path) {
+        return lastRequests.get(path);
+    }
+
+    // 규칙, 지연, 요청 기록 초기화
+    public void reset() {
+        rules.clear();
+        requestCounts.clear();
+        lastRequests.clear();
+        loadedModels.clear();
+        defaultReply = "OK";
+        firstTokenDelayMs = 0;
+        perTokenDelayMs = 0;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange, JsonNode body) throws IOException, InterruptedException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        try (exchange) {
+            byte[] bytes = exchange.getRequestBody().readAllBytes();
+            JsonNode body = bytes.length > 0 ? objectMapper.readTree(bytes) : objectMapper.createObjectNode();
+            requestCounts.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+            lastRequests.put(path, body);
+            handler.handle(exchange, body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            byte[] error = ("{\"error\":\"" + e.getClass().getSimpleName() + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(500, error.length);
+            exchange.getResponseBody().write(error);
+        }
+    }
+
+    // ========== Ollama ==========
+
+    private void ollamaChat(HttpExchange exchange, JsonNode body) throws IOException, InterruptedException {
+        String model = body.path("model").asText("");
+        loadedModels.add(model);
+        String prompt = messagesText(body.path("messages"));
+        List<String> tokens = tokens(replyFor(prompt));
+        int promptTokens = estimateTokens(prompt);
+        // Ollama 는 stream 을 생략하면 스트리밍
+        if (body.path("stream").asBoolean(true)) {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            Thread.sleep(firstTokenDelayMs);
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i > 0) {
+                    Thread.sleep(perTokenDelayMs);
+                }
+                ObjectNode chunk = ollamaChatResponse(model, tokens.get(i), false);
+                writeLine(out, chunk.toString());
+            }
+            ObjectNode done = ollamaChatResponse(model, "", true);
+            done.put("prompt_eval_count", promptTokens);
+            done.put("eval_count", tokens.size());
+            writeLine(out, done.toString());
+            return;
+        }
+        sleepFor(tokens.size());
+        ObjectNode response = ollamaChatResponse(model, String.join("", tokens), true);
+        response.put("prompt_eval_count", promptTokens);
+        response.put("eval_count", tokens.size());
+        writeJson(exchange, response);
+    }
+
+    private ObjectNode ollamaChatResponse(String model, String content, boolean done) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("model", model);
+        response.put("created_at", Instant.now().toString());
+        ObjectNode message = response.putObject("message");
+        message.put("role", "assistant");
+        message.put("content", content);
+        response.put("done", done);
+        if (done) {
+            response.put("done_reason", "stop");
+        }
+        return response;
+    }
+
+    // 워밍업 (빈 프롬프트로 모델 로드)
+    private void ollamaGenerate(HttpExchange exchange, JsonNode body) throws IOException {
+        String model = body.path("model").asText("");
+        loadedModels.add(model);
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("model", model);
+        response.put("created_at", Instant.now().toString());
+        response.put("response", "");
+        response.put("done", true);
+        writeJson(exchange, response);
+    }
+
+    private void ollamaEmbed(HttpExchange exchange, JsonNode body) throws IOException, InterruptedException {
+        String model = body.path("model").asText("");
+        loadedModels.add(model);
+        List<String> inputs = inputs(body.path("input"));
+        Thread.sleep(firstTokenDelayMs);
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("model", model);
+        ArrayNode embeddings = response.putArray("embeddings");
+        for (String input : inputs) {
+            ArrayNode vector = embeddings.addArray();
+            for (float value : embedding(input)) {
+                vector.add(value);
+            }
+        }
+        writeJson(exchange, response);
+    }
+
+    private void ollamaPs(HttpExchange exchange, JsonNode body) throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode models = response.putArray("models");
+        for (String model : loadedModels) {
+            ObjectNode entry = models.addObject();
+            entry.put("name", model);
+            entry.put("model", model);
+            entry.put("expires_at", Instant.now().plusSeconds(1800).toString());
+        }
+        writeJson(exchange, response);
+    }
+
+    // ========== OpenAI ==========
+
+    private void openAiChat(HttpExchange exchange, JsonNode body) throws IOException, InterruptedException {
+        String model = body.path("model").asText("");
+        String prompt = messagesText(body.path("messages"));
+        List<String> tokens = tokens(replyFor(prompt));
+        ObjectNode usage = objectMapper.createObjectNode();
+        usage.put("prompt_tokens", estimateTokens(prompt));
+        usage.put("completion_tokens", tokens.size());
+        usage.put("total_tokens", estimateTokens(prompt) + tokens.size());
+        usage.putObject("prompt_tokens_details").put("cached_tokens", 0);
+        String id = "chatcmpl-mock-" + requests("/v1/chat/completions");
+
+        if (body.path("stream").asBoolean(false)) {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            Thread.sleep(firstTokenDelayMs);
+            for (int i = 0; i < tokens.size(); i++) {
+                if (i > 0) {
+                    Thread.sleep(perTokenDelayMs);
+                }
+                ObjectNode chunk = openAiChunk(id, model);
+                ObjectNode delta = ((ObjectNode) chunk.withArray("choices").get(0)).putObject("delta");
+                delta.put("role", "assistant");
+                delta.put("content", tokens.get(i));
+                writeLine(out, "data: " + chunk + "\n");
+            }
+            ObjectNode last = openAiChunk(id, model);
+            ObjectNode lastChoice = (ObjectNode) last.withArray("choices").get(0);
+            lastChoice.putObject("delta");
+            lastChoice.put("finish_reason", "stop");
+            writeLine(out, "data: " + last + "\n");
+            if (body.path("stream_options").path("include_usage").asBoolean(false)) {
+                ObjectNode usageChunk = openAiChunk(id, model);
+                usageChunk.putArray("choices");
+                usageChunk.set("usage", usage);
+                writeLine(out, "data: " + usageChunk + "\n");
+            }
+            writeLine(out, "data: [DONE]\n");
+            return;
+        }
+
+        sleepFor(tokens.size());
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", id);
+        response.put("object", "chat.completion");
+        response.put("created", Instant.now().getEpochSecond());
+        response.put("model", model);
+        ObjectNode choice = response.putArray("choices").addObject();
+        choice.put("index", 0);
+        ObjectNode message = choice.putObject("message");
+        message.put("role", "assistant");
+        message.put("content", String.join("", tokens));
+        choice.put("finish_reason", "stop");
+        response.set("usage", usage);
+        writeJson(exchange, response);
+    }
+
+    private ObjectNode openAiChunk(String id, String model) {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        chunk.put("id", id);
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("created", Instant.now().getEpochSecond());
+        chunk.put("model", model);
+        chunk.putArray("choices").addObject().put("index", 0);
+        return chunk;
+    }
+
+    private void openAiEmbeddings(HttpExchange exchange, JsonNode body) throws IOException, InterruptedException {
+        List<String> inputs = inputs(body.path("input"));
+        boolean base64 = "base64".equals(body.path("encoding_format").asText());
+        Thread.sleep(firstTokenDelayMs);
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("object", "list");
+        response.put("model", body.path("model").asText(""));
+        ArrayNode data = response.putArray("data");
+        int promptTokens = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            float[] vector = embedding(inputs.get(i));
+            ObjectNode item = data.addObject();
+            item.put("object", "embedding");
+            item.put("index", i);
+            if (base64) {
+                ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (float value : vector) {
+                    buffer.putFloat(value);
+                }
+                item.put("embedding", Base64.getEncoder().encodeToString(buffer.array()));
+            } else {
+                ArrayNode values = item.putArray("embedding");
+                for (float value : vector) {
+                    values.add(value);
+                }
+            }
+            promptTokens += estimateTokens(inputs.get(i));
+        }
+        ObjectNode usage = response.putObject("usage");
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("total_tokens", promptTokens);
+        writeJson(exchange, response);
+    }
+
+    // ========== 공통 ==========
+
+    private String replyFor(String prompt) {
+        for (Rule rule : rules) {
+            if (prompt.contains(rule.contains())) {
+                return rule.reply();
+            }
+        }
+        return defaultReply;
+    }
+
+    private static String messagesText(JsonNode messages) {
+        StringBuilder text = new StringBuilder();
+        for (JsonNode message : messages) {
+            JsonNode content = message.path("content");
+            if (content.isArray()) {
+                // OpenAI content parts
+                for (JsonNode part : content) {
+                    text.append(part.path("text").asText("")).append('\n');
+                }
+            } else {
+                text.append(content.asText("")).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static List<String> inputs(JsonNode input) {
+        List<String> inputs = new ArrayList<>();
+        if (input.isArray()) {
+            input.forEach(item -> inputs.add(item.asText()));
+        } else {
+            inputs.add(input.asText(""));
+        }
+        return inputs;
+    }
+
+    // 공백을 앞 토큰에 붙여 자른 토큰 (이어 붙이면 원문)
+    private static List<String> tokens(String reply) {
+        List<String> tokens = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= reply.length(); i++) {
+            if (i == reply.length() || (Character.isWhitespace(reply.charAt(i - 1))
+                    && !Character.isWhitespace(reply.charAt(i)))) {
+                tokens.add(reply.substring(start, i));
+                start = i;
+            }
+        }
+        return tokens;
+    }
+
+    // 대략 4글자 = 1토큰
+    private static int estimateTokens(String text) {
+        return Math.max(1, text.length() / 4);
+    }
+
+    private float[] embedding(String input) {
+        Random random = new Random(input.hashCode());
+        float[] vector = new float[embeddingDimensions];
+        double norm = 0;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private void sleepFor(int tokenCount) throws InterruptedException {
+        long delay = firstTokenDelayMs + perTokenDelayMs * Math.max(0, tokenCount - 1);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+    }
+
+    private static void writeJson(HttpExchange exchange, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * 단독 실행 (부하 테스트용): [port] [firstTokenDelayMs] [perTokenDelayMs]
+     * chatq-server 를 test 프로필 값과 같이 spring.ai.ollama.base-url / spring.ai.openai.base-url 로 연결해서 사용
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 11435;
+        long firstToken = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        long perToken = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        MockLlmServer mock = start(port).latency(firstToken, perToken);
+        ChatQueryScript.apply(mock);
+        System.out.println("Mock LLM server listening on " + mock.baseUrl());
+        Thread.currentThread().join();
+    }
+}
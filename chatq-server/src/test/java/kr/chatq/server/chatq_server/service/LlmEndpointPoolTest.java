@@ -0,0 +1,110 @@
+package kr.chatq.server.chatq_server.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.openai.OpenAiChatOptions;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LlmEndpointPoolTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void failsOverToHealthyOllamaEndpointAndSkipsUnhealthyOne() {
+        AtomicInteger downHits = new AtomicInteger();
+        String down = stubOllama(500, "down", downHits);
+        String up = stubOllama(200, "from up", new AtomicInteger());
+
+        LlmEndpointPool pool = new LlmEndpointPool(
+                List.of(LlmEndpointPool.ollama(down, ollamaOptions()), LlmEndpointPool.ollama(up, ollamaOptions())),
+                List.of(), 1, 60_000, false, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 3; i++) {
+            ChatResponse response = pool.call(LlmEndpointPool.OLLAMA, new Prompt("hello"));
+            assertEquals("from up", response.getResult().getOutput().getText());
+        }
+        // 한 번 실패한 endpoint 는 cooldown 동안 선택되지 않음
+        assertEquals(1, downHits.get());
+        assertFalse(pool.endpoints(LlmEndpointPool.OLLAMA).get(0).isHealthy(System.currentTimeMillis()));
+    }
+
+    @Test
+    void failsOverToOpenAiWhenOllamaPoolIsExhausted() {
+        String down = stubOllama(500, "down", new AtomicInteger());
+        String openAi = stubOpenAi("from openai");
+
+        LlmEndpointPool pool = new LlmEndpointPool(
+                List.of(LlmEndpointPool.ollama(down, ollamaOptions())),
+                List.of(LlmEndpointPool.openAi(openAi, "test-key",
+                        OpenAiChatOptions.builder().model("gpt-4o-mini").build())),
+                1, 60_000, true, new SimpleMeterRegistry());
+
+        ChatResponse response = pool.call(LlmEndpointPool.OLLAMA, new Prompt("hello"));
+        assertEquals("from openai", response.getResult().getOutput().getText());
+    }
+
+    private OllamaOptions ollamaOptions() {
+        return OllamaOptions.builder().model("test-model").build();
+    }
+
+    private String stubOllama(int status, String content, AtomicInteger hits) {
+        String body = """
+                {"model":"test-model","created_at":"2025-01-01T00:00:00Z",
+                 "message":{"role":"assistant","content":"%s"},
+                 "done":true,"done_reason":"stop","prompt_eval_count":3,"eval_count":2}
+                """.formatted(content);
+        return stub("/api/chat", status, body, hits);
+    }
+
+    private String stubOpenAi(String content) {
+        String body = """
+                {"id":"chatcmpl-1","object":"chat.completion","created":1735689600,"model":"gpt-4o-mini",
+                 "choices":[{"index":0,"message":{"role":"assistant","content":"%s"},"finish_reason":"stop"}],
+                 "usage":{"prompt_tokens":3,"completion_tokens":2,"total_tokens":5}}
+                """.formatted(content);
+        return stub("/v1/chat/completions", 200, body, new AtomicInteger());
+    }
+
+    private String stub(String path, int status, String body, AtomicInteger hits) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext(path, exchange -> {
+                hits.incrementAndGet();
+                exchange.getRequestBody().readAllBytes();
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            });
+            server.start();
+            servers.add(server);
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
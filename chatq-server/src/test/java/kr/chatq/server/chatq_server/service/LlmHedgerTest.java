@@ -0,0 +1,143 @@
+package kr.chatq.server.chatq_server.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LlmHedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void startExecutor() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void latencyWindowReturnsPercentileOfRecentSamples() {
+        LlmHedger.LatencyWindow window = new LlmHedger.LatencyWindow();
+        for (int i = 1; i <= 19; i++) {
+            window.record(i);
+        }
+        // 표본이 min-samples 보다 적으면 -1
+        assertEquals(-1, window.percentile(0.95, 20));
+
+        window.record(20);
+        assertEquals(19, window.percentile(0.95, 20));
+        assertEquals(10, window.percentile(0.5, 20));
+
+        // 최근 200개만 사용 (처음 20개는 밀려남)
+        for (int i = 0; i < 200; i++) {
+            window.record(1000 + i);
+        }
+        assertEquals(1000, window.percentile(0.0, 20));
+        assertEquals(1189, window.percentile(0.95, 20));
+    }
+
+    @Test
+    void hedgeDelayUsesInitialDelayUntilEnoughSamplesAndMinDelayAsFloor() {
+        LlmHedger hedger = hedger(pool(List.of(), List.of(), false));
+        assertEquals(10_000, hedger.hedgeDelay(LlmEndpointPool.OLLAMA));
+
+        for (int i = 1; i <= 20; i++) {
+            hedger.record(LlmEndpointPool.OLLAMA, i * 100L);
+        }
+        assertEquals(1_900, hedger.hedgeDelay(LlmEndpointPool.OLLAMA));
+
+        ReflectionTestUtils.setField(hedger, "minDelayMs", 5_000L);
+        assertEquals(5_000, hedger.hedgeDelay(LlmEndpointPool.OLLAMA));
+    }
+
+    @Test
+    void hedgeWinsAgainstSlowPrimaryWithoutMarkingItUnhealthy() throws Exception {
+        LlmEndpointPool.Endpoint slow = endpoint(LlmEndpointPool.OLLAMA, "http://slow", slowModel());
+        LlmEndpointPool.Endpoint fast = endpoint(LlmEndpointPool.OLLAMA, "http://fast", prompt -> reply("fast"));
+        LlmEndpointPool pool = pool(List.of(slow, fast), List.of(), false);
+        LlmHedger hedger = hedger(pool);
+        ReflectionTestUtils.setField(hedger, "initialDelayMs", 50L);
+        ReflectionTestUtils.setField(hedger, "minDelayMs", 50L);
+
+        // 새 pool 의 첫 선택은 첫 endpoint (slow)
+        ChatResponse response = hedger.call(LlmEndpointPool.OLLAMA, new Prompt("hello"));
+        assertEquals("fast", response.getResult().getOutput().getText());
+
+        assertEquals(1.0, meterRegistry.get("chatq.llm.hedge.sent").tag("provider", "ollama").counter().count());
+        assertEquals(1.0, meterRegistry.get("chatq.llm.hedge.wins").tag("provider", "ollama").counter().count());
+        // 취소된 요청이 끝날 때까지 기다린 뒤 확인 (failure-threshold 1 이어도 장애로 기록하지 않음)
+        for (int i = 0; i < 100 && slow.getOutstanding() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, slow.getOutstanding());
+        assertTrue(slow.isHealthy(System.currentTimeMillis()));
+    }
+
+    @Test
+    void failsOverToOtherProviderWhenAllAttemptsFail() {
+        LlmEndpointPool.Endpoint down = endpoint(LlmEndpointPool.OLLAMA, "http://down", prompt -> {
+            throw new IllegalStateException("down");
+        });
+        LlmEndpointPool.Endpoint openAi = endpoint(LlmEndpointPool.OPENAI, "http://openai",
+                prompt -> reply("from openai"));
+        LlmHedger hedger = hedger(pool(List.of(down), List.of(openAi), true));
+
+        ChatResponse response = hedger.call(LlmEndpointPool.OLLAMA, new Prompt("hello"));
+        assertEquals("from openai", response.getResult().getOutput().getText());
+        assertEquals(1.0, meterRegistry.get("chatq.llm.failover").counter().count());
+    }
+
+    private LlmHedger hedger(LlmEndpointPool pool) {
+        LlmHedger hedger = new LlmHedger(pool, executor, meterRegistry);
+        ReflectionTestUtils.setField(hedger, "enabled", true);
+        ReflectionTestUtils.setField(hedger, "percentile", 0.95);
+        ReflectionTestUtils.setField(hedger, "minDelayMs", 1_000L);
+        ReflectionTestUtils.setField(hedger, "initialDelayMs", 10_000L);
+        ReflectionTestUtils.setField(hedger, "minSamples", 20);
+        return hedger;
+    }
+
+    private LlmEndpointPool pool(List<LlmEndpointPool.Endpoint> ollama, List<LlmEndpointPool.Endpoint> openAi,
+            boolean failover) {
+        return new LlmEndpointPool(ollama, openAi, 1, 60_000, failover, meterRegistry);
+    }
+
+    private static LlmEndpointPool.Endpoint endpoint(String provider, String baseUrl, ChatModel model) {
+        return new LlmEndpointPool.Endpoint(provider, baseUrl, model);
+    }
+
+    // 취소(interrupt)될 때까지 응답하지 않는 모델 (HTTP 클라이언트처럼 interrupt 상태를 지우고 예외)
+    private static ChatModel slowModel() {
+        return prompt -> {
+            try {
+                Thread.sleep(10_000);
+                return reply("slow");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("cancelled", e);
+            }
+        };
+    }
+
+    private static ChatResponse reply(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+}
@@ -0,0 +1,151 @@
+package kr.chatq.server.chatq_server.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LlmRequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExecutorService executor;
+    private LlmRequestCoalescer coalescer;
+
+    @BeforeEach
+    void startExecutor() {
+        executor = Executors.newCachedThreadPool();
+        coalescer = new LlmRequestCoalescer(executor, meterRegistry);
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+    }
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void identicalRequestsShareOneCallAndRecordUsageOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger received = new AtomicInteger();
+        ChatResponse reply = reply("sql");
+
+        Future<ChatResponse> first = executor.submit(() -> coalescer.call("ollama", "m", new Prompt("같은 질문"), () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return reply;
+        }, response -> received.incrementAndGet()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<ChatResponse> second = executor.submit(() -> coalescer.call("ollama", "m", new Prompt("같은 질문"),
+                () -> {
+                    calls.incrementAndGet();
+                    return reply("other");
+                }, response -> received.incrementAndGet()));
+        waitFor(() -> meterRegistry.counter("chatq.llm.coalesced").count() == 1.0);
+        release.countDown();
+
+        assertSame(reply, first.get(5, TimeUnit.SECONDS));
+        assertSame(reply, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, received.get());
+    }
+
+    @Test
+    void requestsWithDifferentOptionsAreNotShared() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        Prompt plain = new Prompt("같은 질문", OllamaOptions.builder().temperature(0.0).build());
+        Prompt structured = new Prompt("같은 질문", OllamaOptions.builder().temperature(0.0)
+                .format(Map.of("type", "object")).build());
+        Future<ChatResponse> first = executor.submit(() -> coalescer.call("ollama", "m", plain, () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return reply("text");
+        }, response -> {
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Ollama format 스키마만 다른 요청은 따로 호출
+        ChatResponse second = coalescer.call("ollama", "m", structured, () -> {
+            calls.incrementAndGet();
+            return reply("{}");
+        }, response -> {
+        });
+        release.countDown();
+
+        assertEquals("{}", second.getResult().getOutput().getText());
+        assertEquals("text", first.get(5, TimeUnit.SECONDS).getResult().getOutput().getText());
+        assertEquals(2, calls.get());
+        assertEquals(0.0, meterRegistry.counter("chatq.llm.coalesced").count());
+    }
+
+    @Test
+    void detachingLastWaiterCancelsTheCall() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        Future<ChatResponse> waiter = executor.submit(() -> coalescer.call("ollama", "m", new Prompt("느린 질문"), () -> {
+            started.countDown();
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return reply("late");
+        }, response -> {
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 기다리던 요청이 빠지면 (임베딩 선택으로 LLM 선택 취소) 호출도 중단
+        waiter.cancel(true);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        waitFor(() -> meterRegistry.counter("chatq.llm.coalesce.cancelled").count() == 1.0);
+    }
+
+    private static ChatResponse reply(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
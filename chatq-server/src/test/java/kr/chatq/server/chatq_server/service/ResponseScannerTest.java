@@ -0,0 +1,35 @@
+package kr.chatq.server.chatq_server.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import kr.chatq.server.chatq_server.benchmark.RecordedResponses;
+
+class ResponseScannerTest {
+
+    @Test
+    void matchesRegexPostProcessingOnRecordedResponses() {
+        for (String raw : RecordedResponses.SAMPLES) {
+            String sanitized = RecordedResponses.sanitizeResponse(raw);
+            ResponseScanner.Result result = ResponseScanner.scan(raw);
+
+            assertEquals(sanitized, result.getText(), raw);
+            assertEquals(RecordedResponses.extractSqlFromMarkdown(sanitized), result.getFencedSql(), raw);
+            assertEquals(RecordedResponses.extractSelectStatement(sanitized), result.getSelectSql(), raw);
+            assertEquals(RecordedResponses.extractBetweenDoubleUnderscores(sanitized), result.getAlias(), raw);
+            assertEquals(RecordedResponses.extractSql(sanitized), result.getSql(), raw);
+        }
+    }
+
+    @Test
+    void keepsSpecialTokenWithoutPrecedingWord() {
+        // 정규식 \S+\s*TOKEN 과 같이 앞 단어가 없으면 토큰을 남긴다
+        assertEquals("<|end_of_sentence|>", ResponseScanner.sanitize("<|end_of_sentence|>"));
+        assertEquals("SELECT 1;", ResponseScanner.sanitize("SELECT 1; x <｜end▁of▁sentence｜>"));
+        assertNull(ResponseScanner.scan("__a_b__").getAlias());
+        // 단어에 붙은 토큰이 이어지면 마지막 토큰까지 한 번에 제거
+        assertEquals("c", ResponseScanner.sanitize("e<|begin_of_sentence|><|begin_of_sentence|>c"));
+    }
+}
@@ -0,0 +1,93 @@
+package kr.chatq.server.chatq_server.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kr.chatq.server.chatq_server.dto.QueryResponse;
+import kr.chatq.server.chatq_server.dto.RowSet;
+
+class ResultCacheServiceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ResultCacheService cache;
+
+    @BeforeEach
+    void setUp() {
+        // acme 회사는 chatqcomp.result_cache_ttl_sec = 0 (사용 안 함)
+        CompanySettingService settings = new CompanySettingService(null) {
+            @Override
+            public long getLong(String company, String column, long defaultValue) {
+                return "acme".equals(company) ? 0 : defaultValue;
+            }
+        };
+        cache = new ResultCacheService(meterRegistry, settings);
+        ReflectionTestUtils.setField(cache, "defaultEnabled", true);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "maxBytes", 1200L);
+        ReflectionTestUtils.setField(cache, "maxEntryBytes", 1000L);
+    }
+
+    @Test
+    void returnsStoredRowsForSameCompanyLevelAndSql() {
+        store("chatq", 9, "SELECT region, amt FROM sales", 3);
+
+        assertNull(cache.get("chatq", 1, "SELECT region, amt FROM sales"));
+        assertNull(cache.get("other", 9, "SELECT region, amt FROM sales"));
+        ResultCacheService.CachedResult cached = cache.get("chatq", 9, "SELECT region, amt FROM sales");
+        assertNotNull(cached);
+
+        QueryResponse response = cached.toResponse("Y", List.of("지역"), false);
+        RowSet data = (RowSet) response.getData();
+        assertEquals(3, data.size());
+        assertArrayEquals(new Object[] { "서울", 2L }, data.getRow(2));
+        assertEquals(2, response.getHeaderData().size());
+        assertEquals("Y", response.getDetailYn());
+        assertEquals(3, cached.toResponse("N", null, true).getColumnar().getRowCount());
+
+        assertEquals(1.0, meterRegistry.get("chatq.result.cache").tag("result", "hit").counter().count());
+        assertEquals(2.0, meterRegistry.get("chatq.result.cache").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenOverMaxBytes() {
+        store("chatq", 9, "SELECT 1", 10);
+        store("chatq", 9, "SELECT 2", 10);
+        cache.get("chatq", 9, "SELECT 1");
+        // SELECT 2 가 가장 오래 쓰지 않은 항목
+        store("chatq", 9, "SELECT 3", 10);
+
+        assertNull(cache.get("chatq", 9, "SELECT 2"));
+        assertNotNull(cache.get("chatq", 9, "SELECT 1"));
+        assertNotNull(cache.get("chatq", 9, "SELECT 3"));
+        assertEquals(2.0, meterRegistry.get("chatq.result.cache.entries").gauge().value());
+    }
+
+    @Test
+    void skipsOversizedResultsAndDisabledCompanies() {
+        store("chatq", 9, "SELECT big", 100);
+        assertNull(cache.get("chatq", 9, "SELECT big"));
+        assertEquals(1.0, meterRegistry.get("chatq.result.cache").tag("result", "oversize").counter().count());
+
+        store("acme", 9, "SELECT 1", 1);
+        assertNull(cache.get("acme", 9, "SELECT 1"));
+        assertEquals(0.0, meterRegistry.get("chatq.result.cache.bytes").gauge().value());
+    }
+
+    private void store(String company, int level, String sql, int rows) {
+        ResultCacheService.Collector collector = cache.collector(company, level, sql);
+        collector.start(List.of("지역", "금액"), List.of("지역", "금액"));
+        for (int r = 0; r < rows; r++) {
+            collector.add(new Object[] { r % 2 == 0 ? "서울" : "부산", (long) r });
+        }
+        collector.finish();
+    }
+}
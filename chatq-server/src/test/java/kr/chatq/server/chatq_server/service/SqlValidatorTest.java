@@ -0,0 +1,103 @@
+package kr.chatq.server.chatq_server.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import kr.chatq.server.chatq_server.config.CompanyContext;
+
+class SqlValidatorTest {
+
+    private static final String BASE_QUERY = "SELECT region, amount, sale_date FROM sales";
+    private static final List<String> COLUMNS = List.of("region", "amount", "sale_date");
+
+    private SqlValidator validator;
+
+    @BeforeEach
+    void createValidator() {
+        CompanyContext.clear();
+        validator = new SqlValidator(null);
+    }
+
+    @Test
+    void repairsQuotedAliasLiteralOrderByAndAddsLimitOnMariaDb() {
+        product("mariadb");
+
+        SqlValidator.Result result = validator.validate(
+                "SELECT region AS \"지역\", SUM(amount) AS \"합계\" FROM sales GROUP BY region ORDER BY '합계' DESC;",
+                BASE_QUERY, COLUMNS, 100L);
+
+        assertTrue(result.isValid(), result.getError());
+        assertTrue(result.getRepairs().contains("trailing semicolon"));
+        assertTrue(result.getRepairs().contains("alias quoting: \"지역\""));
+        assertTrue(result.getRepairs().contains("order by alias: '합계'"));
+        assertTrue(result.getRepairs().contains("limit 100"));
+        assertTrue(result.getSql().contains("AS `지역`"), result.getSql());
+        assertTrue(result.getSql().contains("ORDER BY `합계` DESC"), result.getSql());
+        assertTrue(result.getSql().endsWith("LIMIT 100"), result.getSql());
+    }
+
+    @Test
+    void repairsLiteralGroupBy() {
+        product("mariadb");
+
+        SqlValidator.Result result = validator.validate(
+                "SELECT region AS `지역`, SUM(amount) AS `합계` FROM sales GROUP BY '지역'", BASE_QUERY, COLUMNS, null);
+
+        assertTrue(result.isValid(), result.getError());
+        assertTrue(result.getRepairs().contains("group by alias: '지역'"));
+        assertTrue(result.getSql().contains("GROUP BY `지역`"), result.getSql());
+        assertFalse(result.getSql().contains("LIMIT"), result.getSql());
+    }
+
+    @Test
+    void replacesGroupByWithoutAggregateWithDistinct() {
+        product("mariadb");
+
+        SqlValidator.Result result = validator.validate("SELECT region, sale_date FROM sales GROUP BY region, sale_date",
+                BASE_QUERY, COLUMNS, null);
+
+        assertTrue(result.isValid(), result.getError());
+        assertTrue(result.getRepairs().contains("group by without aggregate -> distinct"));
+        assertTrue(result.getSql().startsWith("SELECT DISTINCT"), result.getSql());
+        assertFalse(result.getSql().contains("GROUP BY"), result.getSql());
+    }
+
+    @Test
+    void keepsDoubleQuotedAliasAndQuotesLiteralOrderByWithDoubleQuotesOnPostgreSql() {
+        product("postgresql");
+
+        SqlValidator.Result result = validator.validate("SELECT region AS \"지역\" FROM sales ORDER BY '지역'",
+                BASE_QUERY, COLUMNS, 50L);
+
+        assertTrue(result.isValid(), result.getError());
+        assertTrue(result.getRepairs().stream().noneMatch(repair -> repair.startsWith("alias quoting")));
+        assertTrue(result.getSql().contains("AS \"지역\""), result.getSql());
+        assertTrue(result.getSql().contains("ORDER BY \"지역\""), result.getSql());
+        assertFalse(result.getSql().contains("`"), result.getSql());
+        assertTrue(result.getSql().endsWith("LIMIT 50"), result.getSql());
+    }
+
+    @Test
+    void reportsUnknownColumn() {
+        product("mariadb");
+
+        SqlValidator.Result result = validator.validate("SELECT region, price FROM sales", BASE_QUERY, COLUMNS, null);
+
+        assertFalse(result.isValid());
+        assertTrue(result.getError().startsWith("다음 칼럼은 조회 대상에 없는 칼럼이다: price."), result.getError());
+        assertTrue(result.getRepairs().isEmpty());
+    }
+
+    // secondaryDataSource 대신 제품명을 캐시에 넣음 (CompanyContext 가 없으면 "chatq")
+    @SuppressWarnings("unchecked")
+    private void product(String name) {
+        ((Map<String, String>) ReflectionTestUtils.getField(validator, "dbProductNames")).put("chatq", name);
+    }
+}
@@ -0,0 +1,114 @@
+-- chatq 메타 테이블 (오프라인 end-to-end 테스트용, 코드에서 사용하는 칼럼만)
+
+CREATE TABLE chatqcomp (
+    company VARCHAR(50) NOT NULL PRIMARY KEY,
+    jdbc_url VARCHAR(500),
+    user_nm VARCHAR(100),
+    password VARCHAR(200),
+    driver_class_name VARCHAR(200),
+    auto_logout_sec INT DEFAULT 3600,
+    sql_cache_yn CHAR(1),
+    one_shot_yn CHAR(1),
+    one_shot_max_tokens INT,
+    result_cache_ttl_sec INT
+);
+
+CREATE TABLE chatquser (
+    company VARCHAR(50) NOT NULL,
+    user VARCHAR(50) NOT NULL,
+    user_nm VARCHAR(100),
+    password VARCHAR(200),
+    auth VARCHAR(50),
+    level INT DEFAULT 9,
+    pwd_fired_yn CHAR(1) DEFAULT 'N',
+    PRIMARY KEY (company, user)
+);
+
+CREATE TABLE chatqcode (
+    company VARCHAR(50) NOT NULL,
+    codetype VARCHAR(30) NOT NULL,
+    code VARCHAR(50) NOT NULL,
+    text1 VARCHAR(200),
+    sortorder INT DEFAULT 0,
+    PRIMARY KEY (company, codetype, code)
+);
+
+CREATE TABLE chatqauth (
+    company VARCHAR(50) NOT NULL,
+    auth VARCHAR(50) NOT NULL,
+    table_nm VARCHAR(100) NOT NULL,
+    add_date CHAR(8),
+    add_time CHAR(6),
+    add_user VARCHAR(50),
+    PRIMARY KEY (company, auth, table_nm)
+);
+
+CREATE TABLE chatqtable (
+    company VARCHAR(50) NOT NULL,
+    table_nm VARCHAR(100) NOT NULL,
+    table_alias VARCHAR(100),
+    detail_yn CHAR(1) DEFAULT 'N',
+    meta_yn CHAR(1) DEFAULT 'N',
+    tail_query VARCHAR(1000),
+    table_metab BLOB,
+    keywords VARCHAR(1000),
+    change_date CHAR(8),
+    change_time CHAR(6),
+    change_user VARCHAR(50),
+    PRIMARY KEY (company, table_nm)
+);
+
+CREATE TABLE chatqcolumn (
+    company VARCHAR(50) NOT NULL,
+    table_nm VARCHAR(100) NOT NULL,
+    column_cd VARCHAR(200) NOT NULL,
+    column_nm VARCHAR(100),
+    column_desc VARCHAR(1000),
+    column_order INT DEFAULT 0,
+    level INT DEFAULT 9,
+    subquery_yn CHAR(1) DEFAULT 'N',
+    code_map VARCHAR(1000),
+    header_column_yn CHAR(1) DEFAULT 'N',
+    PRIMARY KEY (company, table_nm, column_cd)
+);
+
+CREATE TABLE chatqtopic (
+    company VARCHAR(50) NOT NULL,
+    user VARCHAR(50) NOT NULL,
+    topic_id BIGINT NOT NULL,
+    first_query TEXT,
+    table_alias VARCHAR(100),
+    started_at DATETIME,
+    add_date CHAR(8),
+    add_time CHAR(6),
+    PRIMARY KEY (company, user, topic_id)
+);
+
+CREATE TABLE chatqlog (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    company VARCHAR(50),
+    user VARCHAR(50),
+    topic_id BIGINT,
+    add_date CHAR(8),
+    add_time CHAR(6),
+    add_user VARCHAR(50),
+    request LONGTEXT,
+    response LONGTEXT
+);
+
+CREATE TABLE chatqusage (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    log_id INT NOT NULL,
+    company VARCHAR(50),
+    user VARCHAR(50),
+    add_date CHAR(8),
+    add_time CHAR(6),
+    stage VARCHAR(30),
+    provider VARCHAR(20),
+    model VARCHAR(100),
+    calls INT,
+    prompt_tokens INT,
+    completion_tokens INT,
+    cached_tokens INT,
+    INDEX idx_chatqusage_company_date (company, add_date)
+);
@@ -0,0 +1,45 @@
+-- 기본 회사(chatq) 와 매출실적 테이블 하나 (jdbc_url 이 없으면 조회용 DB 는 spring.datasource.secondary 사용)
+
+INSERT INTO chatqcomp (company, auto_logout_sec) VALUES ('chatq', 3600);
+
+INSERT INTO chatqcode (company, codetype, code, text1, sortorder) VALUES ('chatq', 'AUTH', 'GUEST', '게스트', 1);
+
+INSERT INTO chatqauth (company, auth, table_nm) VALUES ('chatq', 'GUEST', 'sales');
+
+INSERT INTO chatqtable (company, table_nm, table_alias, detail_yn, meta_yn, tail_query, keywords)
+VALUES ('chatq', 'sales', '매출실적', 'N', 'N', '', '매출, 판매, 지역별 매출, 품목별 매출');
+
+INSERT INTO chatqcolumn (company, table_nm, column_cd, column_nm, column_order, level) VALUES
+('chatq', 'sales', 'sale_dt', '매출일자', 1, 9),
+('chatq', 'sales', 'region', '지역', 2, 9),
+('chatq', 'sales', 'item_nm', '품목', 3, 9),
+('chatq', 'sales', 'qty', '수량', 4, 9),
+('chatq', 'sales', 'amt', '금액', 5, 9);
+
+CREATE TABLE sales (
+    sale_dt DATE NOT NULL,
+    region VARCHAR(50) NOT NULL,
+    item_nm VARCHAR(100) NOT NULL,
+    qty INT NOT NULL,
+    amt DECIMAL(15, 2) NOT NULL
+);
+
+INSERT INTO sales (sale_dt, region, item_nm, qty, amt) VALUES
+('2024-01-02', '서울', '노트북', 3, 4500000),
+('2024-01-03', '서울', '모니터', 5, 1500000),
+('2024-01-03', '부산', '노트북', 2, 3000000),
+('2024-01-04', '부산', '키보드', 10, 500000),
+('2024-01-05', '대구', '모니터', 4, 1200000);
+
+-- 마스터-디테일 (detail_yn = Y, 지역이 헤더 칼럼) 조회용 매출상세
+CREATE VIEW sales_v AS SELECT * FROM sales;
+
+INSERT INTO chatqauth (company, auth, table_nm) VALUES ('chatq', 'GUEST', 'sales_v');
+
+INSERT INTO chatqtable (company, table_nm, table_alias, detail_yn, meta_yn, tail_query, keywords)
+VALUES ('chatq', 'sales_v', '매출상세', 'Y', 'N', '', '매출 상세, 지역별 매출 내역');
+
+INSERT INTO chatqcolumn (company, table_nm, column_cd, column_nm, column_order, level, header_column_yn) VALUES
+('chatq', 'sales_v', 'region', '지역', 1, 9, 'Y'),
+('chatq', 'sales_v', 'item_nm', '품목', 2, 9, 'N'),
+('chatq', 'sales_v', 'amt', '금액', 3, 9, 'N');
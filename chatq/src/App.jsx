@@ -13,6 +13,7 @@ import ChartResultModal from './components/ChartResultModal'
 import ConfirmModal from './components/ConfirmModal'
 import chatqLogo from './assets/chatqicon51x51.png'
 import translations from './translation'
+import { COLUMNAR_FORMAT, decodeRows } from './columnar'
 
 // Configure axios to send cookies with requests
 axios.defaults.withCredentials = true
@@ -92,12 +93,140 @@ const App = () => {
     return newId
   }
 
-  const toggleShowDetail = (gridId) => {
+  const toggleShowDetail = async (gridId) => {
+    const grid = grids.find(g => g.id === gridId)
+    // 마스터-디테일 지연 조회 그리드는 전체 상세 행을 먼저 받음
+    if (grid && grid.detailHandle && (await loadAllDetails(grid)).detailHandle) return
     setGrids(prevGrids => prevGrids.map(grid =>
       grid.id === gridId ? { ...grid, showDetail: !grid.showDetail } : grid
     ))
   }
 
+  // 만료된 핸들(서버 재시작, TTL)을 응답의 resultQuery 로 다시 열어 그리드의 핸들을 바꿈 (다시 열 수 없으면 null)
+  const reopenResult = async (grid) => {
+    if (!grid.resultQuery) return null
+    try {
+      const response = await axios.post('/api/results/reopen', {
+        resultQuery: grid.resultQuery,
+        headerColumns: grid.headerColumns.map(col => col.key),
+        dataFormat: COLUMNAR_FORMAT
+      })
+      const reopened = {
+        ...grid,
+        resultHandle: response.data.resultHandle,
+        detailHandle: response.data.detailHandle
+      }
+      if (!reopened.resultHandle && !reopened.detailHandle) {
+        // 이제 한 페이지에 모두 들어가는 결과
+        reopened.data = decodeRows(response.data)
+        reopened.hasMore = false
+      }
+      setGrids(prevGrids => prevGrids.map(g => g.id === grid.id ? { ...g, ...reopened } : g))
+      return reopened
+    } catch (error) {
+      console.error('Error reopening result:', error)
+      return null
+    }
+  }
+
+  // 핸들 요청이 404(만료)면 resultQuery 로 핸들을 다시 열고 한 번 더 요청
+  const requestWithReopen = async (grid, request) => {
+    try {
+      return await request(grid)
+    } catch (error) {
+      if (!error.response || error.response.status !== 404) throw error
+      const reopened = await reopenResult(grid)
+      if (!reopened) throw error
+      return request(reopened)
+    }
+  }
+
+  // 결과 커서의 다음 페이지를 받아 그리드에 이어 붙임
+  const loadMoreRows = async (gridId) => {
+    const grid = grids.find(g => g.id === gridId)
+    if (!grid || !grid.resultHandle) return
+    try {
+      const response = await requestWithReopen(grid,
+        g => axios.get(`/api/results/${g.resultHandle}`, { params: { page: grid.page + 1 } }))
+      const rows = decodeRows(response.data)
+      setGrids(prevGrids => prevGrids.map(g => {
+        if (g.id !== gridId) return g
+        // 헤더 데이터는 페이지 단위로 오므로 이미 있는 값은 제외하고 합침
+        const headerKey = row => JSON.stringify(g.headerColumns.map(col => row[col.key]))
+        const seen = new Set((g.headerData || []).map(headerKey))
+        const newHeaderData = (response.data.headerData || []).filter(row => !seen.has(headerKey(row)))
+        return {
+          ...g,
+          data: [...g.data, ...rows],
+          headerData: [...(g.headerData || []), ...newHeaderData],
+          page: response.data.page,
+          hasMore: !!response.data.hasMore
+        }
+      }))
+    } catch (error) {
+      // 만료된 커서 등
+      console.error('Error loading more rows:', error)
+      setGrids(prevGrids => prevGrids.map(g => g.id === gridId ? { ...g, hasMore: false } : g))
+    }
+  }
+
+  // 마스터-디테일: 선택한 헤더 행의 상세 행을 서버에서 받음
+  const loadDetailRows = async (grid, headerRow) => {
+    try {
+      const row = grid.headerData.indexOf(headerRow)
+      const response = await requestWithReopen(grid, g => axios.get(`/api/details/${g.detailHandle}`, { params: { row } }))
+      return decodeRows(response.data)
+    } catch (error) {
+      // 만료된 핸들 등
+      console.error('Error loading detail rows:', error)
+      setAlertMessage(translations[language].apiError)
+      setShowAlert(true)
+      return []
+    }
+  }
+
+  // 마스터-디테일 지연 조회 그리드의 상세 행 전체(서버 max-rows 까지)를 받아 그리드에 채움 (엑셀/차트/전체 보기)
+  const loadAllDetails = async (grid) => {
+    if (!grid.detailHandle) return grid
+    try {
+      const response = await requestWithReopen(grid, g => axios.get(`/api/details/${g.detailHandle}/all`))
+      // 상세 행을 모두 가졌으므로 이후에는 일반 마스터-디테일 그리드로 동작
+      const loaded = { ...grid, data: decodeRows(response.data), detailHandle: undefined }
+      setGrids(prevGrids => prevGrids.map(g => g.id === grid.id ? loaded : g))
+      return loaded
+    } catch (error) {
+      // 만료된 핸들 등
+      console.error('Error loading all detail rows:', error)
+      setAlertMessage(translations[language].apiError)
+      setShowAlert(true)
+      return grid
+    }
+  }
+
+  // 엑셀/차트용 전체 행: 결과 커서 그리드는 결과 전체(서버 max-rows 까지), 마스터-디테일 그리드는 상세 행 전체
+  const loadAllRows = async (grid) => {
+    if (grid.detailHandle) return loadAllDetails(grid)
+    if (!grid.resultHandle || !grid.hasMore) return grid
+    try {
+      const response = await requestWithReopen(grid, g => axios.get(`/api/results/${g.resultHandle}/all`))
+      // 결과 전체를 가졌으므로 더 받을 페이지 없음
+      const loaded = {
+        ...grid,
+        data: decodeRows(response.data),
+        headerData: response.data.headerData || grid.headerData,
+        resultHandle: undefined,
+        hasMore: false
+      }
+      setGrids(prevGrids => prevGrids.map(g => g.id === grid.id ? loaded : g))
+      return loaded
+    } catch (error) {
+      console.error('Error loading all rows:', error)
+      setAlertMessage(translations[language].apiError)
+      setShowAlert(true)
+      return grid
+    }
+  }
+
   // 로그아웃 처리 함수
   const handleLogout = async (isAutoLogout = false) => {
     try {
@@ -282,7 +411,8 @@ const App = () => {
       setIsLoading(true)
       try {
         const postData = {
-          prompt: effectivePrompt
+          prompt: effectivePrompt,
+          dataFormat: COLUMNAR_FORMAT
         }
         
 
@@ -323,11 +453,16 @@ const App = () => {
           request: postData,
           id: response.data.id || Date.now(),
           query: effectivePrompt,
-          data: response.data.data,
+          data: decodeRows(response.data),
           columns: columns,
           headerColumns: headerColumnsData,
           headerData: response.data.headerData,
           detailYn: response.data.detailYn,
+          resultHandle: response.data.resultHandle,
+          detailHandle: response.data.detailHandle,
+          resultQuery: response.data.resultQuery,
+          page: response.data.page || 0,
+          hasMore: !!response.data.hasMore,
           showDetail: false
         }
         
@@ -420,11 +555,16 @@ const App = () => {
               request: logRequest,
               id: logResponse.id || Date.now(),
               query: logRequest.prompt || '',
-              data: logResponse.data || [],
+              data: decodeRows(logResponse),
               columns: columns,
               headerColumns: headerColumns,
               headerData: logResponse.headerData || [],
               detailYn: logResponse.detailYn || 'N',
+              resultHandle: logResponse.resultHandle,
+              detailHandle: logResponse.detailHandle,
+              resultQuery: logResponse.resultQuery,
+              page: logResponse.page || 0,
+              hasMore: !!logResponse.hasMore,
               showDetail: false
             }
           })
@@ -661,11 +801,12 @@ const App = () => {
       
       if (newGrid) {
         console.log('Using new grid data - columns:', newGrid.columns.length, 'rows:', newGrid.data.length)
+        const loaded = await loadAllRows(newGrid)
         const payload = {
           prompt: prompt,
           chartType,
-          columns: newGrid.columns,
-          data: newGrid.data
+          columns: loaded.columns,
+          data: loaded.data
         }
         console.log('Payload for chart generation:', { chartType, columnsCount: payload.columns.length, dataRowCount: payload.data.length })
         await generateChart(payload, newGrid.id)
@@ -680,11 +821,12 @@ const App = () => {
     // prompt가 없으면 기존 그리드로 차트 생성
     console.log('Using existing grid data - columns:', grid.columns.length, 'rows:', grid.data.length)
     setShowChartModal(false)
+    const loaded = await loadAllRows(grid)
     const payload = {
       prompt: '',
       chartType,
-      columns: grid.columns,
-      data: grid.data
+      columns: loaded.columns,
+      data: loaded.data
     }
     await generateChart(payload, grid.id)
   }
@@ -1007,7 +1149,8 @@ const App = () => {
                         </button>
                       )}
                       <button
-                        onClick={() => {
+                        onClick={async () => {
+                          const loaded = await loadAllRows(grid)
                           // Generate HTML table for Excel compatibility
                           const html = `
                             <html>
@@ -1015,10 +1158,10 @@ const App = () => {
                               <body>
                                 <table>
                                   <thead>
-                                    <tr>${grid.columns.map(col => `<th>${col.label}</th>`).join('')}</tr>
+                                    <tr>${loaded.columns.map(col => `<th>${col.label}</th>`).join('')}</tr>
                                   </thead>
                                   <tbody>
-                                    ${grid.data.map(row => `<tr>${grid.columns.map(col => `<td>${row[col.key] ?? ''}</td>`).join('')}</tr>`).join('')}
+                                    ${loaded.data.map(row => `<tr>${loaded.columns.map(col => `<td>${row[col.key] ?? ''}</td>`).join('')}</tr>`).join('')}
                                   </tbody>
                                 </table>
                               </body>
@@ -1057,7 +1200,16 @@ const App = () => {
                     headerColumns={grid.headerColumns}
                     detailYn={grid.detailYn}
                     showDetail={grid.showDetail}
+                    loadDetails={grid.detailHandle ? (row) => loadDetailRows(grid, row) : undefined}
                   />
+                  {grid.hasMore && (
+                    <button
+                      onClick={() => loadMoreRows(grid.id)}
+                      className="mt-2 w-full p-2 text-sm text-slate-300 bg-slate-700 hover:bg-slate-600 rounded-md transition-colors"
+                    >
+                      {translations[language].loadMore}
+                    </button>
+                  )}
                 </div>
               ))}
               <div ref={bottomRef} />
@@ -0,0 +1,31 @@
+// 칼럼 단위 결과(dataFormat: 'columnar')를 행 객체 배열로 풀어준다.
+// columnar 가 없으면 기존 행 단위 data 를 그대로 사용
+export const COLUMNAR_FORMAT = 'columnar'
+
+export function decodeRows(result) {
+  const columnar = result && result.columnar
+  if (!columnar) {
+    return (result && result.data) || []
+  }
+  const { names, rowCount, columns } = columnar
+  const rows = new Array(rowCount)
+  for (let r = 0; r < rowCount; r++) {
+    rows[r] = {}
+  }
+  columns.forEach((column, c) => {
+    const name = names[c]
+    if (column.dict) {
+      // 사전 인코딩: 코드 -1 은 null
+      const { dict, codes } = column
+      for (let r = 0; r < rowCount; r++) {
+        rows[r][name] = codes[r] < 0 ? null : dict[codes[r]]
+      }
+    } else {
+      const { values } = column
+      for (let r = 0; r < rowCount; r++) {
+        rows[r][name] = values[r]
+      }
+    }
+  })
+  return rows
+}
@@ -1,13 +1,16 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import Modal from './Modal';
 import './DataGrid.css';
 
-const DataGrid = ({ data, columns, headerData, headerColumns, detailYn, showDetail = false }) => {
+// loadDetails 가 있으면 (마스터-디테일 지연 조회) 헤더 행을 누를 때 상세 행을 받아온다
+const DataGrid = ({ data, columns, headerData, headerColumns, detailYn, showDetail = false, loadDetails }) => {
   const [selectedRows, setSelectedRows] = useState([]);
   const [isModalOpen, setIsModalOpen] = useState(false);
   const [sortConfig, setSortConfig] = useState({ key: null, direction: null });
   const [columnWidths, setColumnWidths] = useState({});
   const [resizingColumn, setResizingColumn] = useState(null);
+  // 헤더 행 -> 받아온 상세 행
+  const detailCache = useRef(new Map());
 
   const handleHeaderClick = (columnKey) => {
     let direction = 'asc';
@@ -17,8 +20,19 @@ const DataGrid = ({ data, columns, headerData, headerColumns, detailYn, showDeta
     setSortConfig({ key: columnKey, direction });
   };
 
-  const handleRowClick = (row) => {
+  const handleRowClick = async (row) => {
     if (detailYn !== 'Y' || showDetail) return;
+    if (loadDetails) {
+      let rows = detailCache.current.get(row);
+      if (!rows) {
+        rows = await loadDetails(row);
+        // 실패(빈 결과)는 다시 시도할 수 있게 보관하지 않음
+        if (rows.length > 0) detailCache.current.set(row, rows);
+      }
+      setSelectedRows(rows);
+      setIsModalOpen(true);
+      return;
+    }
     if (data && headerColumns) {
       const matchingRows = data.filter(dataRow =>
         headerColumns.every(col => dataRow[col.key] === row[col.key])
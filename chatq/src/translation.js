@@ -28,6 +28,7 @@ const translations = {
         downloadExcel: 'Excel로 다운로드',
         showHeaderData: '헤더 데이터 보기',
         showDetailData: '상세 데이터 보기',
+        loadMore: '더 보기',
         replay: '다시 실행',
         inputPlaceholder: 'DB에서 조회하고 싶은 것을 물어보세요...',
         searchTarget: '검색대상',
@@ -152,6 +153,7 @@ const translations = {
         downloadExcel: 'Download as Excel',
         showHeaderData: 'Show Header Data',
         showDetailData: 'Show Detail Data',
+        loadMore: 'Load more',
         replay: 'Replay',
         inputPlaceholder: 'Ask whatever you want to query from the DB...',
         searchTarget: 'Search Target',